@@ -0,0 +1,149 @@
+package com.cats.power.gatling;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.FeederBuilder;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.*;
+
+/**
+ * Requests of the power REST API shared by the simulations.
+ * The target is configured with system properties:
+ * <ul>
+ *     <li>{@code baseUrl} - url of the instance, including the context path, default http://localhost:9090/power</li>
+ *     <li>{@code slots} - number of mapped slots, slots 1 to slots are used, default 16</li>
+ *     <li>{@code planSize} - number of slots in a custom power plan, default 4</li>
+ * </ul>
+ */
+final class PowerApiRequests {
+
+    static final String BASE_URL = System.getProperty("baseUrl", "http://localhost:9090/power");
+
+    static final int SLOTS = Integer.getInteger("slots", 16);
+
+    static final int PLAN_SIZE = Math.min(Integer.getInteger("planSize", 4), SLOTS);
+
+    /** Group of the requests reading status, answered from the status cache. */
+    static final String READ = "read";
+
+    /** Group of the requests switching outlets, these wait for the devices. */
+    static final String POWER = "power";
+
+    /** Group of the rack wide monitoring requests. */
+    static final String MONITOR = "monitor";
+
+    private PowerApiRequests() {
+    }
+
+    static HttpProtocolBuilder protocol() {
+        return http.baseUrl(BASE_URL)
+                .acceptHeader("application/json, text/plain")
+                .contentTypeHeader("application/json")
+                .shareConnections();
+    }
+
+    /**
+     * Every runner owns one slot, runners beyond the slot count share slots.
+     */
+    static FeederBuilder<Object> slotFeeder() {
+        List<Map<String, Object>> records = IntStream.rangeClosed(1, SLOTS)
+                .mapToObj(slot -> Map.<String, Object>of("slot", String.valueOf(slot)))
+                .collect(Collectors.toList());
+        return listFeeder(records).circular();
+    }
+
+    static ChainBuilder slotStatus() {
+        return exec(http("slot status").get("/rest/slot/#{slot}/status")
+                .check(status().is(200), bodyString().in("ON", "OFF")));
+    }
+
+    static ChainBuilder freshSlotStatus() {
+        return exec(http("slot status fresh").get("/rest/slot/#{slot}/status").queryParam("fresh", "true")
+                .check(status().is(200), bodyString().in("ON", "OFF")));
+    }
+
+    static ChainBuilder slotReboot() {
+        return exec(http("slot reboot").post("/rest/slot/#{slot}/reboot")
+                .check(status().is(200)));
+    }
+
+    /**
+     * Custom plan over a block of slots starting at the runner's slot, one slot is rebooted and the others
+     * powered on, as a runner preparing its devices does.
+     */
+    static ChainBuilder customPlan() {
+        return exec(session -> session.set("plan", plan(Integer.parseInt(session.getString("slot")))))
+                .exec(http("custom plan").post("/rest/slot/all")
+                        .body(StringBody("#{plan}"))
+                        .check(status().is(200)));
+    }
+
+    /**
+     * One step of a test runner on its slot: mostly status polls between test steps, sometimes a reboot of the
+     * device under test checked with a fresh status, sometimes a custom plan preparing the slots of the run.
+     */
+    static ChainBuilder runnerStep() {
+        return randomSwitch().on(
+                percent(70.0).then(group(READ).on(slotStatus())
+                        .pause(Duration.ofSeconds(1), Duration.ofSeconds(3))),
+                percent(20.0).then(group(POWER).on(slotReboot())
+                        .group(READ).on(freshSlotStatus())
+                        .pause(Duration.ofSeconds(2), Duration.ofSeconds(5))),
+                percent(10.0).then(group(POWER).on(customPlan())
+                        .pause(Duration.ofSeconds(2), Duration.ofSeconds(5))));
+    }
+
+    /**
+     * Rack wide poll of a dashboard or the health checks of the orchestration.
+     */
+    static ChainBuilder monitorPoll() {
+        return group(MONITOR).on(deviceStatus().exec(health()));
+    }
+
+    static ChainBuilder deviceStatus() {
+        return exec(http("device all status").get("/rest/device/all/status")
+                .check(status().is(200)));
+    }
+
+    static ChainBuilder health() {
+        return exec(http("health").get("/rest/health")
+                .check(status().is(200)));
+    }
+
+    static String plan(int first) {
+        int reboot = ThreadLocalRandom.current().nextInt(PLAN_SIZE);
+        List<String> outlets = new ArrayList<>(PLAN_SIZE);
+        for (int i = 0; i < PLAN_SIZE; i++) {
+            int slot = (first - 1 + i) % SLOTS + 1;
+            outlets.add(String.format("{\"slot\":\"%d\",\"status\":\"%s\"}", slot, i == reboot ? "REBOOT" : "ON"));
+        }
+        return "{\"outlets\":[" + String.join(",", outlets) + "]}";
+    }
+}
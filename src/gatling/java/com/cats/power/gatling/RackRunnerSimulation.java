@@ -0,0 +1,80 @@
+package com.cats.power.gatling;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+
+import java.time.Duration;
+
+import static com.cats.power.gatling.PowerApiRequests.*;
+import static io.gatling.javaapi.core.CoreDsl.*;
+
+/**
+ * A rack served by one instance: a fixed number of test runners, each working on its slot, and a dashboard
+ * polling the rack. Fails when the latency or error thresholds are not met.
+ * <p>
+ * System properties, on top of the ones of {@link PowerApiRequests}:
+ * <ul>
+ *     <li>{@code runners} - concurrent test runners, default 16</li>
+ *     <li>{@code rampSeconds} - time to start the runners, default 30</li>
+ *     <li>{@code durationSeconds} - time all runners run, default 300</li>
+ *     <li>{@code monitorRate} - rack polls per second, default 1</li>
+ *     <li>{@code readP95Ms}, {@code readP99Ms} - status latency percentiles, default 200 and 500</li>
+ *     <li>{@code powerP95Ms} - reboot and custom plan latency percentile, default 15000</li>
+ *     <li>{@code monitorP95Ms} - rack poll latency percentile, default 1000</li>
+ *     <li>{@code maxFailedPercent} - failed requests, default 1</li>
+ *     <li>{@code minRps} - throughput of the whole run, default 5</li>
+ * </ul>
+ */
+public class RackRunnerSimulation extends Simulation {
+
+    private static final int RUNNERS = Integer.getInteger("runners", 16);
+
+    private static final Duration RAMP = Duration.ofSeconds(Long.getLong("rampSeconds", 30));
+
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("durationSeconds", 300));
+
+    private static final double MONITOR_RATE = Double.parseDouble(System.getProperty("monitorRate", "1"));
+
+    private final ScenarioBuilder runners = scenario("test runner")
+            .feed(slotFeeder())
+            .forever().on(runnerStep());
+
+    private final ScenarioBuilder monitor = scenario("rack monitor")
+            .exec(monitorPoll());
+
+    {
+        setUp(
+                runners.injectClosed(
+                        rampConcurrentUsers(0).to(RUNNERS).during(RAMP),
+                        constantConcurrentUsers(RUNNERS).during(DURATION)),
+                monitor.injectOpen(
+                        constantUsersPerSec(MONITOR_RATE).during(RAMP.plus(DURATION))))
+                .protocols(protocol())
+                .maxDuration(RAMP.plus(DURATION))
+                .assertions(
+                        details(READ).responseTime().percentile(95.0).lt(Integer.getInteger("readP95Ms", 200)),
+                        details(READ).responseTime().percentile(99.0).lt(Integer.getInteger("readP99Ms", 500)),
+                        details(POWER).responseTime().percentile(95.0).lt(Integer.getInteger("powerP95Ms", 15000)),
+                        details(MONITOR).responseTime().percentile(95.0).lt(Integer.getInteger("monitorP95Ms", 1000)),
+                        global().failedRequests().percent().lte(Double.parseDouble(System.getProperty("maxFailedPercent", "1"))),
+                        global().requestsPerSec().gte(Double.parseDouble(System.getProperty("minRps", "5"))));
+    }
+}
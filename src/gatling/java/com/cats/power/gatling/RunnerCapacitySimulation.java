@@ -0,0 +1,82 @@
+package com.cats.power.gatling;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+
+import java.time.Duration;
+
+import static com.cats.power.gatling.PowerApiRequests.*;
+import static io.gatling.javaapi.core.CoreDsl.*;
+
+/**
+ * Steps the number of concurrent test runners up to find how many one instance serves. Each level holds
+ * for a while so the report shows the latency of every level: the capacity is the last level whose status
+ * latency and errors stay within the thresholds used by {@link RackRunnerSimulation}.
+ * <p>
+ * System properties, on top of the ones of {@link PowerApiRequests}:
+ * <ul>
+ *     <li>{@code startRunners} - runners of the first level, default 8</li>
+ *     <li>{@code stepRunners} - runners added per level, default 8</li>
+ *     <li>{@code levels} - number of levels, default 8</li>
+ *     <li>{@code levelSeconds} - time a level holds, default 60</li>
+ *     <li>{@code monitorRate} - rack polls per second, default 1</li>
+ *     <li>{@code maxFailedPercent} - failed requests, default 5</li>
+ * </ul>
+ */
+public class RunnerCapacitySimulation extends Simulation {
+
+    private static final int START = Integer.getInteger("startRunners", 8);
+
+    private static final int STEP = Integer.getInteger("stepRunners", 8);
+
+    private static final int LEVELS = Integer.getInteger("levels", 8);
+
+    private static final Duration LEVEL = Duration.ofSeconds(Long.getLong("levelSeconds", 60));
+
+    private static final Duration STEP_RAMP = Duration.ofSeconds(10);
+
+    private static final Duration TOTAL = LEVEL.plus(STEP_RAMP).multipliedBy(LEVELS);
+
+    private static final double MONITOR_RATE = Double.parseDouble(System.getProperty("monitorRate", "1"));
+
+    private final ScenarioBuilder runners = scenario("test runner")
+            .feed(slotFeeder())
+            .forever().on(runnerStep());
+
+    private final ScenarioBuilder monitor = scenario("rack monitor")
+            .exec(monitorPoll());
+
+    {
+        setUp(
+                runners.injectClosed(
+                        incrementConcurrentUsers(STEP)
+                                .times(LEVELS)
+                                .eachLevelLasting(LEVEL)
+                                .separatedByRampsLasting(STEP_RAMP)
+                                .startingFrom(START)),
+                monitor.injectOpen(
+                        constantUsersPerSec(MONITOR_RATE).during(TOTAL)))
+                .protocols(protocol())
+                .maxDuration(TOTAL)
+                .assertions(
+                        global().failedRequests().percent().lte(Double.parseDouble(System.getProperty("maxFailedPercent", "5"))));
+    }
+}
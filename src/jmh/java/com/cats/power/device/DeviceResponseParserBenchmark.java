@@ -0,0 +1,147 @@
+package com.cats.power.device;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
+import com.cats.power.model.PowerInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the device response parsers run on every status request.
+ * Responses are canned so only the parsing and the outlet state updates are measured, no network is involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceResponseParserBenchmark {
+
+    @Param({"8", "24"})
+    private int outlets;
+
+    private SynaccessHttpPowerControllerDevice synaccess;
+    private DigitalLoggerHttpPowerControllerDevice digitalLogger;
+    private DigitalLoggerRestHttpPowerControllerDevice digitalLoggerRest;
+    private LindySnmpPowerDevice lindy;
+
+    private String synaccessResponse;
+    private String statusPageResponse;
+    private String indexPageResponse;
+    private String restResponse;
+    private String lindyResponse;
+
+    @Setup
+    public void setup() {
+        synaccess = new SynaccessHttpPowerControllerDevice("127.0.0.1", 80, "user", "password");
+        digitalLogger = new DigitalLoggerHttpPowerControllerDevice("127.0.0.1", 80, "user", "password");
+        digitalLoggerRest = new DigitalLoggerRestHttpPowerControllerDevice("127.0.0.1", 80, "user", "password");
+        lindy = new LindySnmpPowerDevice("127.0.0.1");
+        for (PowerControllerDevice device : List.of(synaccess, digitalLogger, digitalLoggerRest, lindy)) {
+            device.setPowerInfo(powerInfo(outlets));
+        }
+
+        StringBuilder bits = new StringBuilder();
+        StringBuilder rest = new StringBuilder("[");
+        StringBuilder snmp = new StringBuilder();
+        for (int i = 1; i <= outlets; i++) {
+            boolean on = i % 3 != 0;
+            bits.append(on ? '1' : '0');
+            if (i > 1) {
+                rest.append(',');
+                snmp.append(',');
+            }
+            rest.append("{\"name\":\"Outlet ").append(i).append("\",\"locked\":false,\"critical\":false,")
+                    .append("\"transient_state\":").append(on).append(",\"physical_state\":").append(on)
+                    .append(",\"cycle_delay\":0,\"state\":").append(on).append('}');
+            snmp.append(on ? 1 : 0);
+        }
+        rest.append(']');
+
+        synaccessResponse = "$A0," + bits + ",0.21,0.21,XX";
+        // the digital logger web power switches report up to 8 outlets as a hex bit vector
+        String hexState = Integer.toHexString(Integer.parseInt(bits.substring(0, Math.min(8, outlets)), 2));
+        statusPageResponse = "<html><body><div id=\"model\">LPC7</div><div id=\"state\">" + hexState
+                + "</div><div id=\"lock\">00</div></body></html>";
+        indexPageResponse = "<html><!-- state=" + hexState + " lock=00 --><head><title>Outlet Control</title></head></html>";
+        restResponse = rest.toString();
+        lindyResponse = snmp.toString();
+    }
+
+    private static PowerInfo powerInfo(int numOfOutlets) {
+        PowerInfo powerInfo = new PowerInfo();
+        powerInfo.setNumOfOutlets(numOfOutlets);
+        List<OutletInfo> outletList = new ArrayList<>();
+        for (int i = 1; i <= numOfOutlets; i++) {
+            OutletInfo outletInfo = new OutletInfo();
+            outletInfo.setOutlet(i);
+            outletInfo.setStatus("UNKNOWN");
+            outletList.add(outletInfo);
+        }
+        powerInfo.setOutlets(outletList);
+        return powerInfo;
+    }
+
+    @Benchmark
+    public List<OutletInfo> synaccessStatus() {
+        return synaccess.parseOutletStatus(synaccessResponse);
+    }
+
+    @Benchmark
+    public List<OutletInfo> digitalLoggerStatusPage() {
+        return digitalLogger.parseStatusPage(statusPageResponse);
+    }
+
+    @Benchmark
+    public List<OutletInfo> digitalLoggerIndexPage() {
+        return digitalLogger.parseIndexPage(indexPageResponse);
+    }
+
+    @Benchmark
+    public List<OutletInfo> digitalLoggerRestOutlets() {
+        return digitalLoggerRest.parseOutlets(restResponse);
+    }
+
+    @Benchmark
+    public OutletState lindySingleOutlet() {
+        return lindy.parseLindyOutletState(lindyResponse, outlets);
+    }
+
+    @Benchmark
+    public OutletState lindyAllOutlets() {
+        return lindy.parseLindyOutletState(lindyResponse, 0);
+    }
+}
@@ -0,0 +1,95 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the outlet lookups and state updates every command and status read goes through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PowerInfoBenchmark {
+
+    @Param({"8", "48"})
+    private int outlets;
+
+    private PowerInfo powerInfo;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        powerInfo = new PowerInfo("SYNACCESS", "127.0.0.1", 80);
+        powerInfo.setNumOfOutlets(outlets);
+        List<OutletInfo> outletList = new ArrayList<>();
+        for (int i = 1; i <= outlets; i++) {
+            OutletInfo outletInfo = new OutletInfo();
+            outletInfo.setOutlet(i);
+            outletInfo.setStatus("OFF");
+            outletList.add(outletInfo);
+        }
+        powerInfo.setOutlets(outletList);
+    }
+
+    private int nextOutlet() {
+        next = next % outlets + 1;
+        return next;
+    }
+
+    @Benchmark
+    public OutletInfo getOutlet() {
+        return powerInfo.getOutlet(nextOutlet());
+    }
+
+    @Benchmark
+    public OutletState getOutletState() {
+        return powerInfo.getOutletState(nextOutlet());
+    }
+
+    @Benchmark
+    public long setOutletStatus() {
+        int outlet = nextOutlet();
+        powerInfo.setOutletStatus(outlet, (outlet & 1) == 0 ? "ON" : "OFF");
+        return powerInfo.getOutletStatesVersion();
+    }
+
+    @Benchmark
+    public List<OutletInfo> getOutlets() {
+        return powerInfo.getOutlets();
+    }
+}
@@ -0,0 +1,187 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.model.HealthReport;
+import com.cats.power.utils.ScheduledJobs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the health reports of the registered devices, answered from the last reports and checked again.
+ * The devices answer from memory, so only the report building is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PowerHealthMonitorBenchmark {
+
+    @Param({"1", "20"})
+    private int devices;
+
+    private ScheduledJobs scheduledJobs;
+
+    private DeviceFanOutExecutor fanOutExecutor;
+
+    private DeviceCircuitBreaker circuitBreaker;
+
+    private PowerHealthMonitor healthMonitor;
+
+    private PowerControllerDevice device;
+
+    @Setup
+    public void setup() {
+        List<PowerControllerDevice> deviceList = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            deviceList.add(new StaticPowerControllerDevice("10.0.0." + (i + 1), i % 4 == 3 ? "UNKNOWN" : "ON"));
+        }
+        PowerDeviceManager manager = (PowerDeviceManager) Proxy.newProxyInstance(
+                PowerDeviceManager.class.getClassLoader(), new Class<?>[]{PowerDeviceManager.class},
+                (proxy, method, args) -> {
+                    if ("getAllPowerDevices".equals(method.getName())) {
+                        return deviceList;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        fanOutExecutor = new DeviceFanOutExecutor();
+        fanOutExecutor.init();
+        scheduledJobs = new ScheduledJobs(manager, fanOutExecutor);
+        scheduledJobs.init();
+        circuitBreaker = new DeviceCircuitBreaker(new PowerDeviceRegistry(), new DeviceMetrics(), fanOutExecutor);
+        circuitBreaker.init();
+        healthMonitor = new PowerHealthMonitor(manager, scheduledJobs, circuitBreaker, fanOutExecutor);
+        healthMonitor.init();
+        healthMonitor.getReports(0);
+        device = deviceList.get(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        healthMonitor.close();
+        circuitBreaker.close();
+        fanOutExecutor.close();
+        scheduledJobs.close();
+    }
+
+    @Benchmark
+    public List<HealthReport> cachedReports() {
+        return healthMonitor.getReports(Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public HealthReport probe() {
+        return healthMonitor.probe(device);
+    }
+
+    /**
+     * Device answering every request from memory.
+     */
+    static class StaticPowerControllerDevice extends PowerControllerDevice {
+
+        private final String status;
+
+        StaticPowerControllerDevice(String host, String status) {
+            this.status = status;
+            powerInfo.setId(host);
+            powerInfo.setIp(host);
+            powerInfo.setType("SYNACCESS");
+            powerInfo.setNumOfOutlets(8);
+        }
+
+        @Override
+        public boolean powerOn(int outlet) {
+            return true;
+        }
+
+        @Override
+        public boolean powerOff(int outlet) {
+            return true;
+        }
+
+        @Override
+        public boolean powerToggle(int outlet) {
+            return true;
+        }
+
+        @Override
+        public String getOutletStatus(int outlet) {
+            return status;
+        }
+
+        @Override
+        public void createPowerDevConn() {
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public Boolean powerOnAllOutlets() {
+            return true;
+        }
+
+        @Override
+        public Boolean powerOffAllOutlets() {
+            return true;
+        }
+
+        @Override
+        public Boolean rebootAllOutlets() {
+            return true;
+        }
+
+        @Override
+        public Map<String, String> getVersions() {
+            Map<String, String> versions = new LinkedHashMap<>();
+            versions.put("hardware", "NA");
+            versions.put("FW", "1.0.4");
+            return versions;
+        }
+
+        @Override
+        public Map<String, String> getMetadata() {
+            Map<String, String> metadata = new LinkedHashMap<>();
+            metadata.put("serial", "SN-" + powerInfo.getId());
+            return metadata;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.cats.power.config;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.model.PowerDevice;
+import com.cats.power.service.PowerDeviceLookupService;
+import com.cats.power.service.PowerDeviceManager;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PowerConfigurationReloader watches prod.yml and applies changes of the power devices without a restart.
+ * Only new, changed and removed devices are built or destroyed, the other devices keep their connections,
+ * outlet status and slots. A file without power devices is ignored, so a file caught mid-write never empties the rack.
+ */
+@Component
+public class PowerConfigurationReloader {
+    private static final Logger log = LoggerFactory.getLogger(PowerConfigurationReloader.class);
+
+    @Value("${devices.reload.enabled:true}")
+    private boolean enabled;
+
+    @Value("${devices.reload.file:./powerms/prod.yml}")
+    private String file;
+
+    @Value("${devices.reload.debounceMs:500}")
+    private long debounceMs;
+
+    @Autowired
+    private PowerDeviceManager deviceManager;
+
+    @Autowired
+    private PowerDeviceLookupService lookupService;
+
+    private WatchService watchService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Power device configuration reload disabled");
+            return;
+        }
+        Path path = Paths.get(file).toAbsolutePath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("Cannot watch {}, power device configuration reload disabled: {}", path, e.getMessage());
+            return;
+        }
+        Thread thread = new Thread(() -> watch(path), "config-reloader");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} for power device changes", path);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch(Path path) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = concerns(key, path);
+                // Editors write in several steps, wait until the file is quiet.
+                while ((key = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= concerns(key, path);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Stopped watching {}", path);
+        }
+    }
+
+    private static boolean concerns(WatchKey key, Path path) {
+        boolean concerns = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (path.getFileName().equals(event.context())) {
+                concerns = true;
+            }
+        }
+        key.reset();
+        return concerns;
+    }
+
+    /**
+     * Read the power devices from the configuration file and apply them.
+     * @return true if the device set changed.
+     */
+    public synchronized boolean reload() {
+        List<PowerDevice> powerDevices;
+        try {
+            powerDevices = readPowerDevices();
+        } catch (RuntimeException e) {
+            log.error("Could not read power devices from {}, keeping the current devices: {}", file, e.getMessage());
+            return false;
+        }
+        if (powerDevices.isEmpty()) {
+            log.warn("No power devices in {}, keeping the current devices", file);
+            return false;
+        }
+        boolean changed = deviceManager.applyPowerDevices(powerDevices);
+        if (changed) {
+            lookupService.refreshDeviceMappings();
+        }
+        return changed;
+    }
+
+    private List<PowerDevice> readPowerDevices() {
+        YamlPropertiesFactoryBean factory = new YamlPropertiesFactoryBean();
+        factory.setResources(new FileSystemResource(file));
+        Properties properties = factory.getObject();
+        Binder binder = new Binder(ConfigurationPropertySources.from(new PropertiesPropertySource(file, properties)));
+        return binder.bind("power-devices", Bindable.listOf(PowerDevice.class)).orElse(List.of());
+    }
+}
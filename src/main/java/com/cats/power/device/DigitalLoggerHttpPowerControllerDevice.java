@@ -20,6 +20,7 @@ package com.cats.power.device;
 
 import com.cats.power.exceptions.DeviceUnreachableException;
 import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
 
 import java.util.*;
 import java.util.regex.Matcher;
@@ -58,57 +59,44 @@ public class DigitalLoggerHttpPowerControllerDevice extends DigitalLoggerPowerCo
 	@Override
     public List<OutletInfo> retrieveOutletStatus(){
 	    try{
-	        String resp = "";
-	        String regExp = "(?<=<div id=\"state\">).*?(?=<)";
 		    String buildUrl = String.format("%s/status", url);
-		    String response = transmit(buildUrl);
-                
-		    if (response != null) {
-		        Pattern pattern = Pattern.compile(regExp);
-			    Matcher matcher = pattern.matcher(response);
-			    matcher.find();
-			    resp = matcher.group();
-		    }
-		    String bitVector = String.format("%8s", Integer.toBinaryString(Integer.parseInt(resp,16)).replace(' ', '0'));
-		    log.debug("Response: " + bitVector);
-		    char bit;
-		    int outlet;
-		    String outletState;
-		    for(int i = 0; i < bitVector.length(); i++){
-		        outlet = i + 1;
-		        try{
-		            bit = bitVector.charAt(bitVector.length() - outlet);
-		            if(bit == '1'){
-		                outletState = "ON";
-		            }
-		            else{
-		                outletState = "OFF";
-		            }
-		        }
-		        catch(StringIndexOutOfBoundsException ex){
-		            if(outlet <= powerInfo.getNumOfOutlets()){
-		                outletState = "OFF";
-		            }
-		            else{
-		                throw ex;
-		            }
-		        }
-		        powerInfo.setOutletStatus(outlet, outletState);
-		        log.debug("Outlet " + outlet + " is " + outletState);
-		    }
-		    return powerInfo.getOutlets();
+		    return parseStatusPage(transmit(buildUrl));
 	    }
-	    catch(NumberFormatException | StringIndexOutOfBoundsException ex){
+	    catch(NumberFormatException | StringIndexOutOfBoundsException | IllegalStateException ex){
 	        return legacyRetrieveOutletStatus();
 	    }
 	}
-        
+
 	private List<OutletInfo> legacyRetrieveOutletStatus(){
-            
+	    String buildUrl = String.format("%s/index.htm", url);
+	    return parseIndexPage(transmit(buildUrl));
+	}
+
+	/**
+	 * Parses the state of the /status page.
+	 * @param response
+	 * @return the updated outlets
+	 */
+	List<OutletInfo> parseStatusPage(String response){
+	    String resp = "";
+	    String regExp = "(?<=<div id=\"state\">).*?(?=<)";
+	    if (response != null) {
+	        Pattern pattern = Pattern.compile(regExp);
+	        Matcher matcher = pattern.matcher(response);
+	        matcher.find();
+	        resp = matcher.group();
+	    }
+	    return applyBitVector(resp);
+	}
+
+	/**
+	 * Parses the state comment of the legacy /index.htm page.
+	 * @param response
+	 * @return the updated outlets
+	 */
+	List<OutletInfo> parseIndexPage(String response){
 	    String resp = "";
 	    String regExp = "(?<=<!-- state=).*?(?=\\s)";
-	    String buildUrl = String.format("%s/index.htm", url);
-	    String response = transmit(buildUrl);
 
 	    if(response == null){
 	        throw new DeviceUnreachableException("Cannot connect to device.");
@@ -119,8 +107,12 @@ public class DigitalLoggerHttpPowerControllerDevice extends DigitalLoggerPowerCo
 	    matcher.find();
 	    resp = matcher.group();
 
-	    System.out.println("response = " + response);
-	    System.out.println("resp = " + resp);
+	    log.debug("response = " + response);
+	    log.debug("resp = " + resp);
+	    return applyBitVector(resp);
+	}
+
+	private List<OutletInfo> applyBitVector(String resp){
 	    String bitVector = String.format("%8s", Integer.toBinaryString(Integer.parseInt(resp,16)).replace(' ', '0'));
 	    if (bitVector.length() == 0){
 	        throw new DeviceUnreachableException("Could not connect to digital logger");
@@ -128,28 +120,28 @@ public class DigitalLoggerHttpPowerControllerDevice extends DigitalLoggerPowerCo
 	    log.debug("Response: " + bitVector);
 	    char bit;
 	    int outlet;
-	    String outletState;
+	    OutletState outletState;
 	    for(int i = 0; i < bitVector.length(); i++){
 	        outlet = i + 1;
 	        try{
 	            bit = bitVector.charAt(bitVector.length() - outlet);
 	            if(bit == '1'){
-	                outletState = "ON";
+	                outletState = OutletState.ON;
 	            }
 	            else{
-	                outletState = "OFF";
+	                outletState = OutletState.OFF;
 	            }
 	        }
 	        catch(StringIndexOutOfBoundsException ex){
 	            if(outlet <= powerInfo.getNumOfOutlets()){
-	                outletState = "OFF";
+	                outletState = OutletState.OFF;
 	            }
 	            else{
 	                throw ex;
 	            }
 	        }
-	        powerInfo.setOutletStatus(outlet, outletState);
-	        log.debug("Outlet " + outlet + " is " + outletState);
+	        powerInfo.setOutletState(outlet, outletState);
+	        log.debug("Outlet {} is {}", outlet, outletState);
 	    }
 	    return powerInfo.getOutlets();
 	}
@@ -21,6 +21,7 @@ package com.cats.power.device;
 import com.cats.power.config.CustomApplicationContext;
 import com.cats.power.model.DigitalLoggerOutletInfo;
 import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
 import com.cats.power.model.PowerInfo;
 import com.cats.power.utils.HttpClientUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -71,31 +72,38 @@ public class DigitalLoggerRestHttpPowerControllerDevice extends DigitalLoggerPow
         String buildUrl = String.format("%s/restapi/relay/outlets/", url);
         String response = transmit(buildUrl);
         log.info("Got response in: " + (System.currentTimeMillis() - start));
+        return parseOutlets(response);
+    }
+
+    /**
+     * Parses the outlets list of the REST API.
+     * @param response
+     * @return the updated outlets
+     */
+    List<OutletInfo> parseOutlets(String response){
+        long start = System.currentTimeMillis();
         try{
             List<DigitalLoggerOutletInfo> outletInfo = mapper.readValue(response, mapper.getTypeFactory().constructCollectionType(List.class, DigitalLoggerOutletInfo.class));
 
-            log.info("Parsed response in: " + (System.currentTimeMillis() - start));
             outletInfo.stream().forEach(outlet -> {
                 int outletNum;
-                String outletState = "UNKNOWN";
+                OutletState outletState = OutletState.UNKNOWN;
                 String outletName = outlet.getName();
                 String[] parts = outletName.split("\\s+");
                 outletNum = Integer.parseInt(parts[1]);
                 if(outlet.getState()){
-                    outletState = "ON";
+                    outletState = OutletState.ON;
                 }
                 else if (!outlet.getState()){
-                    outletState = "OFF";
+                    outletState = OutletState.OFF;
                 }
-                powerInfo.setOutletStatus(outletNum, outletState);
-                log.debug("Outlet " + outletNum + " is " + outletState);
+                powerInfo.setOutletState(outletNum, outletState);
+                log.debug("Outlet {} is {}", outletNum, outletState);
             });
-            log.info("updated info in: " + (System.currentTimeMillis() - start));
-        }catch(IOException | NumberFormatException ex){
+            log.info("Parsed response in: " + (System.currentTimeMillis() - start));
+        }catch(IOException | IllegalArgumentException ex){
             log.error("Could not parse digital logger REST response: " + ex.getLocalizedMessage());
         }
-
-        log.info("Returning in response in: " + (System.currentTimeMillis() - start));
         return powerInfo.getOutlets();
     }
 
@@ -209,6 +217,93 @@ public class DigitalLoggerRestHttpPowerControllerDevice extends DigitalLoggerPow
         }
     }
 
+    /**
+     * Sets several outlets with one request using the REST API matrix selector (=1,2,3).
+     */
+    @Override
+    public Map<Integer, Boolean> powerOnOutlets(Collection<Integer> outlets){
+        return setOutletStates(outlets, "true");
+    }
+
+    @Override
+    public Map<Integer, Boolean> powerOffOutlets(Collection<Integer> outlets){
+        return setOutletStates(outlets, "false");
+    }
+
+    @Override
+    public Map<Integer, Boolean> powerToggleOutlets(Collection<Integer> outlets){
+        List<String> initialStates = getOutletStates(outlets);
+        String buildUrl = String.format("%s/restapi/relay/outlets/%s/cycle/", url, outletMatrix(outlets));
+        HttpPost httpPost = new HttpPost(buildUrl);
+
+        try {
+            httpPost.setHeader("X-CSRF", "x");
+            String response = transmit(httpPost);
+
+            Thread.sleep(REBOOT_WAIT_TIME);
+            log.info("Power Toggle Outlets Response: {}", response);
+        } catch (InterruptedException e) {
+            log.warn("Caught exception while power toggling outlets: {}", e.getMessage());
+        }
+
+        return compareStates(outlets, getOutletStates(outlets), initialStates);
+    }
+
+    private Map<Integer, Boolean> setOutletStates(Collection<Integer> outlets, String state){
+        String buildUrl = String.format("%s/restapi/relay/outlets/%s/state/", url, outletMatrix(outlets));
+        HttpPut httpPut = new HttpPut(buildUrl);
+
+        try {
+            StringEntity stringEntity = new StringEntity(state);
+            httpPut.setEntity(stringEntity);
+            httpPut.setHeader("X-CSRF", "x");
+            String response = transmit(httpPut);
+
+            TimeUnit.SECONDS.sleep(1);
+            log.info("Power {} Outlets Response: {}", state, response);
+        } catch (UnsupportedEncodingException | InterruptedException e) {
+            log.warn("Caught exception while setting outlets {}: {}", state, e.getMessage());
+        }
+
+        return compareStates(outlets, getOutletStates(outlets), Collections.nCopies(outlets.size(), state));
+    }
+
+    /**
+     * @param outlets
+     * @return physical state of the outlets in order, null entries if the state could not be read
+     */
+    private List<String> getOutletStates(Collection<Integer> outlets){
+        String buildUrl = String.format("%s/restapi/relay/outlets/%s/physical_state/", url, outletMatrix(outlets));
+        String response = transmit(buildUrl);
+        List<String> states = new ArrayList<>();
+        try {
+            List<Boolean> values = mapper.readValue(response, mapper.getTypeFactory().constructCollectionType(List.class, Boolean.class));
+            values.forEach(value -> states.add(String.valueOf(value)));
+        } catch (IOException | IllegalArgumentException ex) {
+            log.error("Could not parse digital logger REST response: " + ex.getLocalizedMessage());
+        }
+        while (states.size() < outlets.size()) {
+            states.add(null);
+        }
+        return states;
+    }
+
+    private Map<Integer, Boolean> compareStates(Collection<Integer> outlets, List<String> states, List<String> expected){
+        Map<Integer, Boolean> results = new LinkedHashMap<>();
+        int i = 0;
+        for (Integer outlet : outlets) {
+            results.put(outlet, states.get(i) != null && states.get(i).equals(expected.get(i)));
+            i++;
+        }
+        return results;
+    }
+
+    private String outletMatrix(Collection<Integer> outlets){
+        StringJoiner matrix = new StringJoiner(",", "=", "");
+        outlets.forEach(outlet -> matrix.add(String.valueOf(outlet)));
+        return matrix.toString();
+    }
+
     public String getAllOutletStatuses() {
         long startTime = System.currentTimeMillis();
         String buildUrl = String.format("%s/restapi/relay/outlets/all;/physical_state/", url);
@@ -18,11 +18,17 @@ package com.cats.power.device;
  * SPDX-License-Identifier: Apache-2.0
  */
 
-import com.cats.power.utils.PowerConstants;
+import com.cats.power.model.OutletState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snmp4j.mp.SnmpConstants;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This is the implementation class for Eaton G3 using SNMP commands.
  * This implementation uses the SNMP v1/v2c.
@@ -101,7 +107,13 @@ public class Eaton_G3_SNMPPowerDevice extends SnmpPowerControllerDevice
     @Override
     public String getOutletStatus(int outlet)
     {
-        return super.queryOutletStatus(OID_PLUG_STATUS_EATON + outlet);
+        return super.queryOutletStatus(getOutletStatusOid(outlet));
+    }
+
+    @Override
+    protected String getOutletStatusOid(int outlet)
+    {
+        return OID_PLUG_STATUS_EATON + outlet;
     }
 
     @Override
@@ -113,60 +125,62 @@ public class Eaton_G3_SNMPPowerDevice extends SnmpPowerControllerDevice
 
 	@Override
 	public Boolean powerOnAllOutlets() {
-		boolean retVal = true;
-		// There is no interface to send powerOn to all ports via SNMP
-		// so send one by one.
-		for(int i = 1; i <= EATON_G3_OUTLET_LIST.length; i++){
-			boolean isSuccess = powerOn(i);
-			if(!isSuccess){
-				retVal = false;
-			}
-		}
-		return retVal;
+		return !powerOnOutlets(allOutlets()).containsValue(false);
 	}
 
 	@Override
 	public Boolean powerOffAllOutlets() {
-		boolean retVal = true;
-		// There is no interface to send powerOn to all ports via SNMP
-		// so send one by one.
-		for(int i = 1; i <= EATON_G3_OUTLET_LIST.length; i++){
-			boolean isSuccess = powerOff(i);
-			if(!isSuccess){
-				retVal = false;
-			}
-		}
-		return retVal;
+		return !powerOffOutlets(allOutlets()).containsValue(false);
 	}
-	
+
 	@Override
 	public Boolean rebootAllOutlets() {
-		boolean retVal = true;
-		// There is no interface to send powerOn to all ports via SNMP
-		// so send one by one.
+		return !powerToggleOutlets(allOutlets()).containsValue(false);
+	}
+
+	@Override
+	public Map<Integer, Boolean> powerOnOutlets(Collection<Integer> outlets) {
+		return transmitBatch(target, POWER_COMMAND_EATON, outletOids(OID_PLUG_ON_EATON, outlets));
+	}
+
+	@Override
+	public Map<Integer, Boolean> powerOffOutlets(Collection<Integer> outlets) {
+		return transmitBatch(target, POWER_COMMAND_EATON, outletOids(OID_PLUG_OFF_EATON, outlets));
+	}
+
+	@Override
+	public Map<Integer, Boolean> powerToggleOutlets(Collection<Integer> outlets) {
+		return transmitBatch(target, POWER_COMMAND_EATON, outletOids(OID_PLUG_REBOOT_EATON, outlets));
+	}
+
+	private List<Integer> allOutlets() {
+		List<Integer> outlets = new ArrayList<>();
 		for(int i = 1; i <= EATON_G3_OUTLET_LIST.length; i++){
-			boolean isSuccess = powerToggle(i);
-			if(!isSuccess){
-				retVal = false;
-			}
+			outlets.add(i);
 		}
-		return retVal;
+		return outlets;
+	}
+
+	private Map<Integer, String> outletOids(String oid, Collection<Integer> outlets) {
+		Map<Integer, String> outletOids = new LinkedHashMap<>();
+		outlets.forEach(outlet -> outletOids.put(outlet, oid + outlet));
+		return outletOids;
 	}
 
 	public boolean transmit( int command, String oidStr ){ return super.transmit(command, oidStr); }
 
     @Override
-    protected String parseSNMPResponse(Integer response) {
+    protected OutletState parseSNMPResponse(Integer response) {
         if ( response == 1 )
         {
-            return ON;
+            return OutletState.ON;
         }
         else if ( response == 0 )
         {
-            return OFF;
+            return OutletState.OFF;
         }
 
-        return PowerConstants.STATUS_UNKNOWN;
+        return OutletState.UNKNOWN;
     }
 
 
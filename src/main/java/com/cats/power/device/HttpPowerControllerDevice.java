@@ -23,7 +23,8 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * PowerControllerDevice over Http protocol
+ * PowerControllerDevice over Http protocol.
+ * The calls are blocking, they run on the device lane of the DeviceCommandQueue and never on a request thread.
  */
 public abstract class HttpPowerControllerDevice extends PowerControllerDevice
 
@@ -19,6 +19,8 @@ package com.cats.power.device;
  */
 
 import com.cats.power.config.CustomApplicationContext;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
 import com.cats.power.utils.MeasuredSnmpClientUtil;
 import com.cats.power.utils.PowerConstants;
 import org.slf4j.Logger;
@@ -26,14 +28,17 @@ import org.slf4j.LoggerFactory;
 import org.snmp4j.PDU;
 import org.snmp4j.event.ResponseEvent;
 import org.snmp4j.mp.SnmpConstants;
-import org.snmp4j.smi.Integer32;
 import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.VariableBinding;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -138,6 +143,24 @@ public class LindySnmpPowerDevice extends SnmpPowerControllerDevice
         return response;
     }
     
+    /**
+     * Lindy returns the state of every outlet in the OID_PLUG string, one GET serves the whole device.
+     */
+    @Override
+    public List<OutletInfo> retrieveOutletStatus() {
+    	String response = transmit("",OID_PLUG);
+    	for(int i = 1; i <= getPowerInfo().getNumOfOutlets(); i++) {
+    		OutletState state;
+    		try {
+    			state = parseLindyOutletState(response, i);
+    		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+    			state = OutletState.UNKNOWN;
+    		}
+    		powerInfo.setOutletState(i, state);
+    	}
+    	return powerInfo.getOutlets();
+    }
+
     @Override
   	public Boolean powerOnAllOutlets() {
   		return powerOn("ALL");
@@ -165,6 +188,64 @@ public class LindySnmpPowerDevice extends SnmpPowerControllerDevice
   	}
 
 
+    /**
+     * Sets several outlets with a single SET of the OID_PLUG comma string.
+     */
+    @Override
+    public Map<Integer, Boolean> powerOnOutlets(Collection<Integer> outlets) {
+        return setOutlets(outlets, PowerConstants.POWER_ON_SNMP_VALUE, PowerConstants.POWER_ON);
+    }
+
+    @Override
+    public Map<Integer, Boolean> powerOffOutlets(Collection<Integer> outlets) {
+        return setOutlets(outlets, PowerConstants.POWER_OFF_SNMP_VALUE, PowerConstants.POWER_OFF);
+    }
+
+    @Override
+    public Map<Integer, Boolean> powerToggleOutlets(Collection<Integer> outlets) {
+        Map<Integer, Boolean> results = powerOffOutlets(outlets);
+        List<Integer> offOutlets = new ArrayList<>();
+        results.forEach((outlet, off) -> {
+            if (off) {
+                offOutlets.add(outlet);
+            }
+        });
+        if (!offOutlets.isEmpty()) {
+            try {
+                Thread.sleep(REBOOT_WAIT_PERIOD);
+            } catch (InterruptedException e) {
+            }
+            results.putAll(powerOnOutlets(offOutlets));
+        }
+        return results;
+    }
+
+    private Map<Integer, Boolean> setOutlets(Collection<Integer> outlets, int command, String expected) {
+        Map<Integer, Boolean> results = new LinkedHashMap<>();
+        String current = transmit("",OID_PLUG);
+        if (null == current || "Did not get a response".equalsIgnoreCase(current)) {
+            outlets.forEach(outlet -> results.put(outlet, false));
+            return results;
+        }
+        String[] outletStatus = current.split(",");
+        for (Integer outlet : outlets) {
+            if (outlet >= 1 && outlet <= outletStatus.length) {
+                outletStatus[outlet - 1] = String.valueOf(command);
+            }
+        }
+        String response = transmit(String.join(",", outletStatus), OID_PLUG);
+        for (Integer outlet : outlets) {
+            boolean success;
+            try {
+                success = expected.equalsIgnoreCase(parseLindySNMPResponse(response, outlet));
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                success = false;
+            }
+            results.put(outlet, success);
+        }
+        return results;
+    }
+
     @Override
     public void destroy()
     {
@@ -211,11 +292,18 @@ public class LindySnmpPowerDevice extends SnmpPowerControllerDevice
     }
 
     @Override
-    protected String parseSNMPResponse(Integer response) {
-    	return PowerConstants.STATUS_UNKNOWN;
+    protected OutletState parseSNMPResponse(Integer response) {
+    	return OutletState.UNKNOWN;
     }
     
     public String parseLindySNMPResponse(String snmpResponse, int outlet) {
+    	return parseLindyOutletState(snmpResponse, outlet).name();
+    }
+
+    /**
+     * Parse the state of one outlet, or of the whole device when outlet is 0, from the OID_PLUG string.
+     */
+    public OutletState parseLindyOutletState(String snmpResponse, int outlet) {
     	log.info("Prase lindy snmp Response " + snmpResponse);
     	if(null != snmpResponse && !("Did not get a response".equalsIgnoreCase(snmpResponse))) {
     		String [] outletStatus = snmpResponse.split(",");
@@ -223,22 +311,22 @@ public class LindySnmpPowerDevice extends SnmpPowerControllerDevice
     		if(outlet>0) {
     			response = outletStatus[outlet-1];
     			if (PowerConstants.POWER_ON_SNMP_VALUE == Integer.parseInt(response)) {
-        			return PowerConstants.POWER_ON;
+        			return OutletState.ON;
         			
         		}else {
-        			return PowerConstants.POWER_OFF;
+        			return OutletState.OFF;
         		}
     		}else {
         		if (Arrays.stream(outletStatus)
                         .allMatch(x -> Integer.parseInt(x) != PowerConstants.POWER_OFF_SNMP_VALUE)) {
-        			return PowerConstants.POWER_ON;
+        			return OutletState.ON;
         			
         		}else {
-        			return PowerConstants.POWER_OFF;
+        			return OutletState.OFF;
         		}
     		}
     	}
-    	return PowerConstants.STATUS_UNKNOWN;
+    	return OutletState.UNKNOWN;
     }
     
 
@@ -254,13 +342,12 @@ public class LindySnmpPowerDevice extends SnmpPowerControllerDevice
         	
         }else{
         	 request.setType( PDU.SET );
-             request.setRequestID( new Integer32( reqId++ ) );
              request.add( new VariableBinding( oid, new OctetString(command)) );
         }
         try{
             log.info("request prior -- " +request);
                 MeasuredSnmpClientUtil snmpClientUtil = CustomApplicationContext.getBean(MeasuredSnmpClientUtil.class);
-                ResponseEvent responseEvent = snmpClientUtil.measuredExecute(snmp, request,target);
+                ResponseEvent responseEvent = snmpClientUtil.measuredExecute(request,target);
              if ( responseEvent != null && responseEvent.getResponse() != null ){
             	/**
             	 * for every success response we get the status of all  outlets
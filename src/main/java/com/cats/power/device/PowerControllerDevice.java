@@ -22,7 +22,9 @@ import com.cats.power.model.OutletInfo;
 
 import com.cats.power.model.PowerInfo;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -122,6 +124,45 @@ public abstract class PowerControllerDevice {
 	public abstract Boolean powerOffAllOutlets();
 	public abstract Boolean rebootAllOutlets();    
         
+	/**
+	 * Power on several outlets. Devices able to batch commands override this, the default powers on one by one.
+	 *
+	 * @param outlets
+	 *            The outlets to power on.
+	 * @return success of every outlet.
+	 */
+	public Map<Integer, Boolean> powerOnOutlets(Collection<Integer> outlets) {
+		Map<Integer, Boolean> results = new LinkedHashMap<>();
+		outlets.forEach(outlet -> results.put(outlet, powerOn(outlet)));
+		return results;
+	}
+
+	/**
+	 * Power off several outlets. Devices able to batch commands override this, the default powers off one by one.
+	 *
+	 * @param outlets
+	 *            The outlets to power off.
+	 * @return success of every outlet.
+	 */
+	public Map<Integer, Boolean> powerOffOutlets(Collection<Integer> outlets) {
+		Map<Integer, Boolean> results = new LinkedHashMap<>();
+		outlets.forEach(outlet -> results.put(outlet, powerOff(outlet)));
+		return results;
+	}
+
+	/**
+	 * Power toggle several outlets. Devices able to batch commands override this, the default toggles one by one.
+	 *
+	 * @param outlets
+	 *            The outlets to power toggle.
+	 * @return success of every outlet.
+	 */
+	public Map<Integer, Boolean> powerToggleOutlets(Collection<Integer> outlets) {
+		Map<Integer, Boolean> results = new LinkedHashMap<>();
+		outlets.forEach(outlet -> results.put(outlet, powerToggle(outlet)));
+		return results;
+	}
+
     public List<OutletInfo> retrieveOutletStatus(){
         String status;
         for(int i = 1; i <= powerInfo.getNumOfOutlets(); i++){
@@ -18,14 +18,18 @@ package com.cats.power.device;
  * SPDX-License-Identifier: Apache-2.0
  */
 
-import com.cats.power.utils.PowerConstants;
+import com.cats.power.model.OutletState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snmp4j.CommunityTarget;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.smi.OctetString;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -141,7 +145,12 @@ public class RaritanSnmpPowerDevice extends SnmpPowerControllerDevice
 
     @Override
     public String getOutletStatus(int outlet) {
-        return super.queryOutletStatus(OID_PLUG_STATUS+pduId+"."+outlet);
+        return super.queryOutletStatus(getOutletStatusOid(outlet));
+    }
+
+    @Override
+    protected String getOutletStatusOid(int outlet) {
+        return getOidStringForOutlet(OID_PLUG_STATUS, outlet);
     }
 
     @Override
@@ -152,68 +161,64 @@ public class RaritanSnmpPowerDevice extends SnmpPowerControllerDevice
     }
 
     @Override
-    protected String parseSNMPResponse(Integer response) {
+    protected OutletState parseSNMPResponse(Integer response) {
         if ( response == 7 )
         {
-            return ON;
+            return OutletState.ON;
         }
         else if ( response == 8 )
         {
-            return OFF;
+            return OutletState.OFF;
         }
 
-        return PowerConstants.STATUS_UNKNOWN;
+        return OutletState.UNKNOWN;
     }
 
     @Override
 	public Boolean powerOnAllOutlets() {
-		boolean retVal = true;
-		// There is no interface to send powerOn to all ports via SNMP
-		// so send one by one.
-        if(getPowerInfo().getNumOfOutlets() < 0 ){
-            throw new IllegalArgumentException("Raritan max ports is not defined "+getPowerInfo().getNumOfOutlets());
-        }
-		for(int i = 1; i <= getPowerInfo().getNumOfOutlets(); i++){
-			boolean isSuccess = powerOn(i);
-			if(!isSuccess){
-				retVal = false;
-			}
-		}
-		return retVal;
+		return !powerOnOutlets(allOutlets()).containsValue(false);
 	}
 
 	@Override
 	public Boolean powerOffAllOutlets() {
-		boolean retVal = true;
-		// There is no interface to send powerOn to all ports via SNMP
-		// so send one by one.
-        if(getPowerInfo().getNumOfOutlets() < 0 ){
-            throw new IllegalArgumentException("Raritan max ports is not defined "+getPowerInfo().getNumOfOutlets());
-        }
-        for(int i = 1; i <= getPowerInfo().getNumOfOutlets(); i++){
-			boolean isSuccess = powerOff(i);
-			if(!isSuccess){
-				retVal = false;
-			}
-		}
-		return retVal;
+		return !powerOffOutlets(allOutlets()).containsValue(false);
 	}
-	
+
 	@Override
 	public Boolean rebootAllOutlets() {
-		boolean retVal = true;
-		// There is no interface to send powerOn to all ports via SNMP
-		// so send one by one.
+		return !powerToggleOutlets(allOutlets()).containsValue(false);
+	}
+
+	@Override
+	public Map<Integer, Boolean> powerOnOutlets(Collection<Integer> outlets) {
+		return transmitBatch(writeTarget, ON_COMMAND, outletOids(OID_PLUG_ON, outlets));
+	}
+
+	@Override
+	public Map<Integer, Boolean> powerOffOutlets(Collection<Integer> outlets) {
+		return transmitBatch(writeTarget, OFF_COMMAND, outletOids(OID_PLUG_OFF, outlets));
+	}
+
+	@Override
+	public Map<Integer, Boolean> powerToggleOutlets(Collection<Integer> outlets) {
+		return transmitBatch(writeTarget, CYCLE_COMMAND, outletOids(OID_PLUG_REBOOT, outlets));
+	}
+
+	private List<Integer> allOutlets() {
         if(getPowerInfo().getNumOfOutlets() < 0 ){
             throw new IllegalArgumentException("Raritan max ports is not defined "+getPowerInfo().getNumOfOutlets());
         }
-        for(int i = 1; i <= getPowerInfo().getNumOfOutlets(); i++){
-			boolean isSuccess = powerToggle(i);
-			if(!isSuccess){
-				retVal = false;
-			}
+		List<Integer> outlets = new ArrayList<>();
+		for(int i = 1; i <= getPowerInfo().getNumOfOutlets(); i++){
+			outlets.add(i);
 		}
-		return retVal;
+		return outlets;
+	}
+
+	private Map<Integer, String> outletOids(String oid, Collection<Integer> outlets) {
+		Map<Integer, String> outletOids = new LinkedHashMap<>();
+		outlets.forEach(outlet -> outletOids.put(outlet, getOidStringForOutlet(oid, outlet)));
+		return outletOids;
 	}
 
 	public boolean transmit(CommunityTarget target, Integer command, String oidStr ){
@@ -19,16 +19,22 @@ package com.cats.power.device;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
-import com.cats.power.exceptions.UnableToCreatePowerControllerDevice;
 import com.cats.power.config.CustomApplicationContext;
+import com.cats.power.exceptions.DeviceUnreachableException;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
+import com.cats.power.service.DeviceMetrics;
 import com.cats.power.utils.MeasuredSnmpClientUtil;
+import com.cats.power.utils.SnmpEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snmp4j.CommunityTarget;
 import org.snmp4j.PDU;
-import org.snmp4j.Snmp;
-import org.snmp4j.TransportMapping;
 import org.snmp4j.event.ResponseEvent;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.smi.Address;
@@ -37,13 +43,11 @@ import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.VariableBinding;
-import org.snmp4j.transport.DefaultUdpTransportMapping;
-
-import com.cats.power.utils.PowerConstants;
 
 /**
  * SNMP Power Controller Device is a class that extends PowerControllerDevice
  * and provides implementation for SNMP power controller device.
+ * All devices send through the shared {@link SnmpEngine}, the device only holds its target.
  * */
 public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
 {
@@ -53,36 +57,27 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
     protected final static int DEFAULT_PORT    = 161;
     protected final static int DEFAULT_TIMEOUT = 2000;
     protected final static int DEFAULT_RETRIES = 2;
+    /**
+     * Max outlet OIDs packed in one GET or SET, keeps the messages well under the PDU agent's max message size.
+     */
+    protected final static int MAX_VARBINDS = 32;
 
 
-    protected Snmp             snmp;
     protected CommunityTarget  target;
 
-    protected Integer          reqId           = 456;
-
     public SnmpPowerControllerDevice( String host, int port, int timeout, int retries )
     {
         super();
         log.info( "New {} {} {} ", SnmpPowerControllerDevice.class.getSimpleName(), host, port );
         powerInfo.setId(host);
         powerInfo.setPort(port);
-        TransportMapping transport;
-        try
-        {
-            transport = new DefaultUdpTransportMapping();
-            snmp = new Snmp( transport );
-            Address add = new UdpAddress( host + "/" + port );
-            target = new CommunityTarget();
-            target.setAddress( add );
-            target.setTimeout( timeout );
-            target.setRetries( retries );
-            target.setCommunity( new OctetString( "public" ) );
-            target.setVersion( SnmpConstants.version2c );
-        }
-        catch ( IOException e )
-        {
-            throw new UnableToCreatePowerControllerDevice( e );
-        }
+        Address add = new UdpAddress( host + "/" + port );
+        target = new CommunityTarget();
+        target.setAddress( add );
+        target.setTimeout( timeout );
+        target.setRetries( retries );
+        target.setCommunity( new OctetString( "public" ) );
+        target.setVersion( SnmpConstants.version2c );
     }
 
     public SnmpPowerControllerDevice( String host, int port ) throws IOException
@@ -115,29 +110,15 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
     @Override
     public void createPowerDevConn()
     {
+        // The shared SNMP engine is already listening.
         log.info( "Connect {} {} {} ", this.getClass().getSimpleName(), powerInfo.getIp(), powerInfo.getPort() );
-        try
-        {
-            snmp.listen();
-        }
-        catch ( IOException e )
-        {
-            e.printStackTrace();
-        }
     }
 
     @Override
     public void destroy()
     {
+        // The shared SNMP engine outlives the device, it is closed on shutdown.
         log.info( "Destroy {} {} {} ", this.getClass().getSimpleName(), powerInfo.getIp(), powerInfo.getPort() );
-        try
-        {
-            snmp.close();
-        }
-        catch ( IOException e )
-        {
-
-        }
     }
 
     protected boolean transmit( int command, String oidStr )
@@ -150,7 +131,6 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
         boolean rtn = false;
         PDU request = new PDU();
         request.setType( PDU.SET );
-        request.setRequestID( new Integer32( reqId++ ) );
 
         OID oid = new OID( oidStr );
         request.add( new VariableBinding( oid, new Integer32( command ) ) );
@@ -159,7 +139,7 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
         {
             log.info("request prior" +request);
             MeasuredSnmpClientUtil snmpClientUtil = CustomApplicationContext.getBean(MeasuredSnmpClientUtil.class);
-            ResponseEvent responseEvent = snmpClientUtil.measuredExecute(snmp, request,target);
+            ResponseEvent responseEvent = snmpClientUtil.measuredExecute(request,target);
             log.info("response ----" +responseEvent);
             if ( responseEvent != null && responseEvent.getResponse() != null )
             {
@@ -187,10 +167,95 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
         return rtn;
     }
 
+    /**
+     * Sends the same command to several outlets with multi-varbind SETs, {@link #MAX_VARBINDS} outlets per PDU.
+     * @param target
+     * @param command
+     * @param outletOids control OID of every outlet, in order
+     * @return success of every outlet
+     */
+    protected Map<Integer, Boolean> transmitBatch( CommunityTarget target, int command, Map<Integer, String> outletOids )
+    {
+        Map<Integer, Boolean> results = new LinkedHashMap<>();
+        List<Integer> outlets = new ArrayList<>( outletOids.keySet() );
+        for ( int from = 0; from < outlets.size(); from += MAX_VARBINDS )
+        {
+            List<Integer> chunk = outlets.subList( from, Math.min( from + MAX_VARBINDS, outlets.size() ) );
+            transmitChunk( target, command, chunk, outletOids, results );
+        }
+        return results;
+    }
+
+    private void transmitChunk( CommunityTarget target, int command, List<Integer> outlets, Map<Integer, String> outletOids,
+            Map<Integer, Boolean> results )
+    {
+        if ( outlets.size() == 1 )
+        {
+            Integer outlet = outlets.get( 0 );
+            results.put( outlet, transmit( target, command, outletOids.get( outlet ) ) );
+            return;
+        }
+
+        PDU request = new PDU();
+        request.setType( PDU.SET );
+        for ( Integer outlet : outlets )
+        {
+            request.add( new VariableBinding( new OID( outletOids.get( outlet ) ), new Integer32( command ) ) );
+        }
+
+        ResponseEvent responseEvent = null;
+        try
+        {
+            log.info( "batch request prior " + request );
+            MeasuredSnmpClientUtil snmpClientUtil = CustomApplicationContext.getBean(MeasuredSnmpClientUtil.class);
+            responseEvent = snmpClientUtil.measuredExecute( request, target );
+        }
+        catch ( IOException e )
+        {
+            log.error( "BATCH FAILED {} {} {} ERROR[{}]", this.getClass().getSimpleName(), powerInfo.getIp(), powerInfo.getPort(),
+                    e.getMessage() );
+        }
+
+        if ( responseEvent == null || responseEvent.getResponse() == null )
+        {
+            log.error( "Did not get a response from the power device" );
+            outlets.forEach( outlet -> results.put( outlet, false ) );
+            return;
+        }
+
+        PDU response = responseEvent.getResponse();
+        if ( response.getErrorStatus() != PDU.noError || response.size() != outlets.size() )
+        {
+            // A SET is applied all or nothing, split it so the outlets that can be set still are.
+            log.debug( "Batch SET error {} index {}, splitting", response.getErrorStatusText(), response.getErrorIndex() );
+            CustomApplicationContext.getBean( DeviceMetrics.class ).recordRetry( this, "set" );
+            int middle = outlets.size() / 2;
+            transmitChunk( target, command, outlets.subList( 0, middle ), outletOids, results );
+            transmitChunk( target, command, outlets.subList( middle, outlets.size() ), outletOids, results );
+            return;
+        }
+
+        for ( int i = 0; i < response.size(); i++ )
+        {
+            VariableBinding vb = response.get( i );
+            results.put( outlets.get( i ), !vb.isException() && vb.getVariable().toInt() == command );
+        }
+    }
+
     protected String queryOutletStatus( String strOid )
+    {
+        OutletState state = queryOutletState( strOid );
+        return state == null ? "Did not get a response" : state.name();
+    }
+
+    /**
+     * Reads the state of one outlet.
+     * @return The state, null if the device did not answer.
+     */
+    protected OutletState queryOutletState( String strOid )
     {
 
-        String rtn = PowerConstants.STATUS_UNKNOWN;
+        OutletState rtn = OutletState.UNKNOWN;
 
         PDU request = new PDU();
         request.setType( PDU.GET );
@@ -201,7 +266,8 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
         ResponseEvent responseEvent;
         try
         {
-            responseEvent = snmp.send( request, target );
+            MeasuredSnmpClientUtil snmpClientUtil = CustomApplicationContext.getBean(MeasuredSnmpClientUtil.class);
+            responseEvent = snmpClientUtil.measuredExecute( request, target );
             
             if ( responseEvent != null && responseEvent.getResponse() != null )
             {
@@ -215,7 +281,7 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
             }
             else
             {
-                rtn = "Did not get a response";
+                rtn = null;
                 log.error( "Did not get a response from the power device" );
             }
 
@@ -243,7 +309,8 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
         ResponseEvent responseEvent;
         try
         {
-            responseEvent = snmp.send( request, target );
+            MeasuredSnmpClientUtil snmpClientUtil = CustomApplicationContext.getBean(MeasuredSnmpClientUtil.class);
+            responseEvent = snmpClientUtil.measuredExecute( request, target );
             if ( responseEvent != null && responseEvent.getResponse() != null )
             {
                 String response = responseEvent.getResponse().get( 0 ).getVariable().toString();
@@ -269,6 +336,100 @@ public abstract class SnmpPowerControllerDevice extends PowerControllerDevice
    
 
     
-    protected abstract String parseSNMPResponse(Integer response);
+    /**
+     * Status OID of an outlet, used to read every outlet in a single GET.
+     * @param outlet
+     * @return the OID, or null if the device has no per outlet status OID
+     */
+    protected String getOutletStatusOid( int outlet )
+    {
+        return null;
+    }
+
+    /**
+     * Reads the status of all outlets with multi-varbind GETs, one round trip per {@link #MAX_VARBINDS} outlets.
+     */
+    @Override
+    public List<OutletInfo> retrieveOutletStatus()
+    {
+        if ( getOutletStatusOid( 1 ) == null )
+        {
+            return super.retrieveOutletStatus();
+        }
+        int numOfOutlets = powerInfo.getNumOfOutlets();
+        for ( int first = 1; first <= numOfOutlets; first += MAX_VARBINDS )
+        {
+            queryOutletStatusBulk( first, Math.min( first + MAX_VARBINDS - 1, numOfOutlets ) );
+        }
+        return powerInfo.getOutlets();
+    }
+
+    /**
+     * Reads the outlets first..last in one GET and stores the statuses in the power info.
+     * Halves the range if the agent answers tooBig and falls back to single GETs on any other error.
+     * @throws DeviceUnreachableException if the agent did not answer, the outlets are then UNKNOWN
+     */
+    protected void queryOutletStatusBulk( int first, int last )
+    {
+        PDU request = new PDU();
+        request.setType( PDU.GET );
+        for ( int outlet = first; outlet <= last; outlet++ )
+        {
+            request.add( new VariableBinding( new OID( getOutletStatusOid( outlet ) ) ) );
+        }
+
+        ResponseEvent responseEvent = null;
+        try
+        {
+            MeasuredSnmpClientUtil snmpClientUtil = CustomApplicationContext.getBean(MeasuredSnmpClientUtil.class);
+            responseEvent = snmpClientUtil.measuredExecute( request, target );
+        }
+        catch ( IOException e )
+        {
+            log.error( "STATUS FAILED {} {} {} ERROR[{}]", this.getClass().getSimpleName(), powerInfo.getIp(), powerInfo.getPort(),
+                    e.getMessage() );
+        }
+
+        if ( responseEvent == null || responseEvent.getResponse() == null )
+        {
+            // The last states read are no longer known, and the read must not count as fresh.
+            for ( int outlet = first; outlet <= last; outlet++ )
+            {
+                powerInfo.setOutletState( outlet, OutletState.UNKNOWN );
+            }
+            throw new DeviceUnreachableException( "Did not get a response from the power device " + powerInfo.getIp() );
+        }
+
+        PDU response = responseEvent.getResponse();
+        if ( response.getErrorStatus() == PDU.tooBig && first < last )
+        {
+            CustomApplicationContext.getBean( DeviceMetrics.class ).recordRetry( this, "status" );
+            int middle = ( first + last ) / 2;
+            queryOutletStatusBulk( first, middle );
+            queryOutletStatusBulk( middle + 1, last );
+            return;
+        }
+        if ( response.getErrorStatus() != PDU.noError || response.size() != last - first + 1 )
+        {
+            log.debug( "Bulk status error {}, querying outlets {}-{} one by one", response.getErrorStatusText(), first, last );
+            CustomApplicationContext.getBean( DeviceMetrics.class ).recordRetry( this, "status" );
+            for ( int outlet = first; outlet <= last; outlet++ )
+            {
+                OutletState state = queryOutletState( getOutletStatusOid( outlet ) );
+                powerInfo.setOutletState( outlet, state == null ? OutletState.UNKNOWN : state );
+            }
+            return;
+        }
+
+        for ( int i = 0; i < response.size(); i++ )
+        {
+            VariableBinding vb = response.get( i );
+            OutletState state = vb.isException() ? OutletState.UNKNOWN : parseSNMPResponse( vb.getVariable().toInt() );
+            powerInfo.setOutletState( first + i, state );
+        }
+        log.info( "STATUS {} {} {} outlets {}-{}", this.getClass().getSimpleName(), powerInfo.getIp(), powerInfo.getPort(), first, last );
+    }
+
+    protected abstract OutletState parseSNMPResponse(Integer response);
 
 }
@@ -20,6 +20,7 @@ package com.cats.power.device;
 
 import com.cats.power.config.CustomApplicationContext;
 import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
 import com.cats.power.utils.HttpClientUtil;
 import com.cats.power.utils.PowerConstants;
 import com.cats.power.utils.TelnetConnection;
@@ -40,6 +41,7 @@ import java.util.logging.Level;
  * */
 public class SynaccessHttpPowerControllerDevice extends HttpPowerControllerDevice {
 	private final Logger       log                   = LoggerFactory.getLogger(SynaccessHttpPowerControllerDevice.class);
+	private static final int REBOOT_WAIT_TIME = 2100;
 	String url;
 	Map<String,String> version = new HashMap<>();
 
@@ -120,7 +122,7 @@ public class SynaccessHttpPowerControllerDevice extends HttpPowerControllerDevic
                 if (response.contains("$A0")) {
                     resp = true;
                 }
-                Thread.sleep(2100);
+                Thread.sleep(REBOOT_WAIT_TIME);
                 return resp;
             } catch (InterruptedException ex) {
                 java.util.logging.Logger.getLogger(SynaccessHttpPowerControllerDevice.class.getName()).log(Level.SEVERE, null, ex);
@@ -139,28 +141,37 @@ public class SynaccessHttpPowerControllerDevice extends HttpPowerControllerDevic
         public List<OutletInfo> retrieveOutletStatus(){
             String buildUrl = url + PowerConstants.SYNACCESS_HTTP_STATUS_CODE + "%20" + 1;
 		String response = transmit(buildUrl);
+                return parseOutletStatus(response);
+        }
+
+        /**
+         * Parses the $A5 status response into the outlet states.
+         * @param response
+         * @return the updated outlets
+         */
+        List<OutletInfo> parseOutletStatus(String response){
                 log.info("Response: " + response);
 		if (response != null && response.contains("$A0")) {
 			String[] responseSplit = response.split(PowerConstants.SYNACCESS_HTTP_STATUS_RESPONSE_DELIMITER);
 			String allOutletStatus = responseSplit[1];
                         int outlet;
-                        String outletStatus;
+                        OutletState outletStatus;
                         for(int i = 0; i < allOutletStatus.length(); i++){
                             outlet = i + 1;
                             char status = allOutletStatus.charAt(allOutletStatus.length() - outlet);
                             switch (Character.getNumericValue(status)) {
                                 case PowerConstants.OFF_COMMAND_HTTP_SYNACCESS:
-                                    outletStatus = "OFF";
+                                    outletStatus = OutletState.OFF;
                                     break;
                                 case PowerConstants.ON_COMMAND_HTTP_SYNACCESS:
-                                    outletStatus = "ON";
+                                    outletStatus = OutletState.ON;
                                     break;
                                 default:
-                                    outletStatus = "UNKNOWN";
+                                    outletStatus = OutletState.UNKNOWN;
                                     break;
                             }
-                            powerInfo.setOutletStatus(outlet, outletStatus);
-                            log.debug("Outlet " + outlet + " is " + outletStatus);
+                            powerInfo.setOutletState(outlet, outletStatus);
+                            log.debug("Outlet {} is {}", outlet, outletStatus);
                         }
 		}
                 return powerInfo.getOutlets();
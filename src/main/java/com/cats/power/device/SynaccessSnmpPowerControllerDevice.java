@@ -18,8 +18,13 @@ package com.cats.power.device;
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import com.cats.power.model.OutletState;
 import com.cats.power.utils.PowerConstants;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Synaccess SNMP Power Controller Device
  */
@@ -63,7 +68,13 @@ public class SynaccessSnmpPowerControllerDevice extends SnmpPowerControllerDevic
     @Override
     public String getOutletStatus(int outlet)
     {
-        return queryOutletStatus(PowerConstants.OID_PLUG_STATUS_SYNACCESS + outlet);
+        return queryOutletStatus(getOutletStatusOid(outlet));
+    }
+
+    @Override
+    protected String getOutletStatusOid(int outlet)
+    {
+        return PowerConstants.OID_PLUG_STATUS_SYNACCESS + outlet;
     }
 
 	@Override
@@ -81,23 +92,44 @@ public class SynaccessSnmpPowerControllerDevice extends SnmpPowerControllerDevic
 		throw new UnsupportedOperationException("rebootAllOutlets is not implemented for SynaccessSnmpPowerControllerDevice");
 	}
 
+	@Override
+	public Map<Integer, Boolean> powerOnOutlets(Collection<Integer> outlets) {
+		return transmitBatch(target, PowerConstants.ON_COMMAND_SYNACCESS, outletOids(outlets));
+	}
+
+	@Override
+	public Map<Integer, Boolean> powerOffOutlets(Collection<Integer> outlets) {
+		return transmitBatch(target, PowerConstants.OFF_COMMAND_SYNACCESS, outletOids(outlets));
+	}
+
+	@Override
+	public Map<Integer, Boolean> powerToggleOutlets(Collection<Integer> outlets) {
+		return transmitBatch(target, PowerConstants.REBOOT_COMMAND_SYNACCESS, outletOids(outlets));
+	}
+
+	private Map<Integer, String> outletOids(Collection<Integer> outlets) {
+		Map<Integer, String> outletOids = new LinkedHashMap<>();
+		outlets.forEach(outlet -> outletOids.put(outlet, PowerConstants.OID_PLUG_ACTION_SYNACCESS + outlet));
+		return outletOids;
+	}
+
 	//Need this hack to expose endpoint for test stubbing
 	public boolean transmit( int command, String oidStr ){
         return super.transmit(command, oidStr);
     }
 
     @Override
-    protected String parseSNMPResponse(Integer response) {
+    protected OutletState parseSNMPResponse(Integer response) {
         if ( response == 1 )
         {
-            return ON;
+            return OutletState.ON;
         }
         else if ( response == 0 )
         {
-            return OFF;
+            return OutletState.OFF;
         }
 
-        return PowerConstants.STATUS_UNKNOWN;
+        return OutletState.UNKNOWN;
     }
 
     @Override
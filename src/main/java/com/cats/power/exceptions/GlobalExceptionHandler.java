@@ -27,6 +27,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @ControllerAdvice
 @RestController
 public class GlobalExceptionHandler {
@@ -53,6 +55,14 @@ public class GlobalExceptionHandler {
 	@ResponseStatus( code = HttpStatus.SERVICE_UNAVAILABLE  )
     @ExceptionHandler( value = SNMPException.class )
     public String handleSNMPException( SNMPException e )
+    {
+        logger.warn( "Exception Caught : " + e.getMessage() );
+        return  e.getMessage();
+    }
+	
+	@ResponseStatus( code = HttpStatus.SERVICE_UNAVAILABLE  )
+    @ExceptionHandler( value = RejectedExecutionException.class )
+    public String handleRejectedExecutionException( RejectedExecutionException e )
     {
         logger.warn( "Exception Caught : " + e.getMessage() );
         return  e.getMessage();
@@ -0,0 +1,31 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+/**
+ * Connection state of a power device.
+ */
+public enum DeviceConnectionState {
+    /** The initial status read of the device has not completed yet. */
+    CONNECTING,
+    /** The device answered with the status of its outlets. */
+    CONNECTED,
+    /** The device did not answer the status read. */
+    UNREACHABLE
+}
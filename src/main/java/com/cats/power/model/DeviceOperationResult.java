@@ -0,0 +1,53 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import lombok.Data;
+
+/**
+ * DeviceOperationResult: outcome of an operation fanned out to one power device.
+ */
+@Data
+public class DeviceOperationResult<T> {
+
+    /**
+     * @return the deviceId the operation ran on
+     */
+    String deviceId;
+
+    /**
+     * @return the value returned by the operation, null if it failed or timed out
+     */
+    T value;
+
+    /**
+     * @return the error message if the operation failed
+     */
+    String error;
+
+    /**
+     * @return true if the operation did not complete before the deadline
+     */
+    boolean timedOut;
+
+    /**
+     * @return the duration of the operation in milliseconds
+     */
+    long durationMs;
+}
@@ -65,4 +65,9 @@ public class HealthReport{
      * @return metadata for Power Device
      */
     Map<String,String> metadata;
+
+    /**
+     * @return the time of the health check, epoch milliseconds
+     */
+    Long checkedAt;
 }
\ No newline at end of file
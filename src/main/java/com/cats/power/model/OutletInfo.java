@@ -18,23 +18,16 @@ package com.cats.power.model;
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonView;
 import io.swagger.v3.oas.annotations.media.Schema;
 
-import java.util.Arrays;
-import java.util.List;
-
 /**
  * OutletInfo: Defines common information for a power device outlet.
  */
 @Schema(name = "OutletInfo", description = "Outlet Information for a given Power Device")
 public class OutletInfo {
 
-    /**
-     * List of possible status for a slot
-     */
-    private final List<String> SLOT_STATUS = Arrays.asList("ON", "OFF", "UNKNOWN", "REBOOT", "IGNORE");
-
     /**
      * @return the outlet number
      */
@@ -48,9 +41,14 @@ public class OutletInfo {
     private String slot;
 
     /**
-     * @return the status of the slot
+     * @return the status of the slot, held here until the outlet is bound to the state table of its device
      */
-    private String status;
+    private OutletState state;
+
+    /**
+     * State table of the device, once bound the status is read from and written to the table
+     */
+    private OutletStateTable table;
 
 
     public int getOutlet() {
@@ -62,18 +60,49 @@ public class OutletInfo {
     }
 
     public String getStatus() {
-        return status;
+        OutletState current = getState();
+        return current == null ? null : current.name();
     }
 
     public void setStatus(String status) {
-        if(SLOT_STATUS.contains(status.toUpperCase())){
-            this.status = status.toUpperCase();
+        OutletState parsed = OutletState.parse(status);
+        if(parsed != null){
+            setState(parsed);
+        }
+    }
+
+    @JsonIgnore
+    public OutletState getState() {
+        OutletStateTable current = table;
+        return current == null ? state : current.get(outlet);
+    }
+
+    @JsonIgnore
+    public void setState(OutletState state) {
+        OutletStateTable current = table;
+        if(current == null){
+            this.state = state;
+        }
+        else{
+            current.set(outlet, state);
+        }
+    }
+
+    /**
+     * Bind the outlet to the state table of its device, the status held so far is moved into the table.
+     * @param table The state table.
+     */
+    void bind(OutletStateTable table) {
+        if(state != null || !table.contains(outlet)){
+            table.set(outlet, state == null ? OutletState.UNKNOWN : state);
         }
+        this.state = null;
+        this.table = table;
     }
     
     @Override
     public String toString(){
-        return String.format("Outlet: %s, Status: %s", outlet, status);
+        return String.format("Outlet: %s, Status: %s", outlet, getStatus());
     }
 
     public String getSlot() {
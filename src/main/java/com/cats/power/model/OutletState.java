@@ -0,0 +1,53 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+/**
+ * Possible status of an outlet.
+ */
+public enum OutletState {
+    ON, OFF, UNKNOWN, REBOOT, IGNORE;
+
+    private static final OutletState[] VALUES = values();
+
+    /**
+     * Parse a status, ignoring case.
+     * @param status The status.
+     * @return The state, null if the status is not one of the outlet states.
+     */
+    public static OutletState parse(String status) {
+        if (status != null) {
+            for (OutletState state : VALUES) {
+                if (state.name().equalsIgnoreCase(status)) {
+                    return state;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the state of an ordinal stored in an {@link OutletStateTable}.
+     * @param ordinal The ordinal.
+     * @return The state.
+     */
+    static OutletState of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,60 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * OutletStateEvent: change of the status of an outlet, as streamed to clients.
+ */
+@Data
+@Schema(name = "OutletStateEvent", description = "Change of the status of an outlet")
+public class OutletStateEvent {
+
+    /**
+     * @return the sequence number of the event, increasing across all devices
+     */
+    long sequence;
+
+    /**
+     * @return the deviceId of the outlet
+     */
+    String deviceId;
+
+    /**
+     * @return the outlet number
+     */
+    int outlet;
+
+    /**
+     * @return the slot the outlet is mapped to, null if none
+     */
+    String slot;
+
+    /**
+     * @return the new status of the outlet
+     */
+    String status;
+
+    /**
+     * @return time of the change in epoch milliseconds
+     */
+    long timestamp;
+}
@@ -0,0 +1,147 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * OutletStateTable holds the state of every outlet of a device as one byte per outlet, indexed by outlet number.
+ * Updates do not allocate, and the version is bumped on every change of a state so that a reader can tell whether
+ * anything changed since it last looked by comparing two longs. A listener, if set, is told of every change while
+ * the table is locked, so it sees the changes in the order they were made.
+ */
+public class OutletStateTable implements Serializable {
+
+    private static final long serialVersionUID = 3517294069260474186L;
+
+    private static final byte NONE = -1;
+
+    private volatile byte[] states = new byte[0];
+
+    private volatile long version;
+
+    private transient volatile Listener listener;
+
+    /**
+     * Receives the changes of the states of a table.
+     */
+    public interface Listener {
+        /**
+         * @param outlet The outlet number.
+         * @param state The new state.
+         */
+        void changed(int outlet, OutletState state);
+    }
+
+    /**
+     * Get the state of an outlet.
+     * @param outlet The outlet number.
+     * @return The state, null if the outlet is not in the table.
+     */
+    public OutletState get(int outlet) {
+        byte[] current = states;
+        if (outlet < 0 || outlet >= current.length || current[outlet] == NONE) {
+            return null;
+        }
+        return OutletState.of(current[outlet]);
+    }
+
+    /**
+     * Check whether an outlet is in the table.
+     * @param outlet The outlet number.
+     * @return true if the outlet has a state.
+     */
+    public boolean contains(int outlet) {
+        return get(outlet) != null;
+    }
+
+    /**
+     * Set the state of an outlet, adding the outlet if needed.
+     * @param outlet The outlet number.
+     * @param state The state.
+     * @return true if the state changed.
+     */
+    public synchronized boolean set(int outlet, OutletState state) {
+        if (outlet < 0) {
+            return false;
+        }
+        byte[] current = states;
+        if (outlet >= current.length) {
+            byte[] grown = Arrays.copyOf(current, outlet + 1);
+            Arrays.fill(grown, current.length, grown.length, NONE);
+            current = grown;
+        }
+        byte ordinal = (byte) state.ordinal();
+        if (current[outlet] == ordinal) {
+            return false;
+        }
+        current[outlet] = ordinal;
+        states = current;
+        version++;
+        notifyListener(outlet, state);
+        return true;
+    }
+
+    /**
+     * Set every outlet in the table to one state.
+     * @param state The state.
+     * @return true if any state changed.
+     */
+    public synchronized boolean setAll(OutletState state) {
+        byte[] current = states;
+        byte ordinal = (byte) state.ordinal();
+        boolean changed = false;
+        for (int outlet = 0; outlet < current.length; outlet++) {
+            if (current[outlet] != NONE && current[outlet] != ordinal) {
+                current[outlet] = ordinal;
+                changed = true;
+                notifyListener(outlet, state);
+            }
+        }
+        if (changed) {
+            states = current;
+            version++;
+        }
+        return changed;
+    }
+
+    /**
+     * Set the listener told of every change of a state, replacing the previous one.
+     * @param listener The listener, null to remove it.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    private void notifyListener(int outlet, OutletState state) {
+        Listener current = listener;
+        if (current != null) {
+            current.changed(outlet, state);
+        }
+    }
+
+    /**
+     * Get the version of the table, incremented on every change of a state.
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
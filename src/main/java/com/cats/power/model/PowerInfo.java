@@ -18,12 +18,13 @@ package com.cats.power.model;
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonView;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.xml.bind.annotation.XmlAttribute;
@@ -80,11 +81,27 @@ public class PowerInfo implements Serializable {
      */
 	private String state;
 
+    /**
+     * @return connection state of the power device
+     */
+    @JsonView(View.Shallow.class)
+    private volatile DeviceConnectionState connection;
+
     /**
      * @return list of outlets in the power device
      */
     @JsonView(View.Shallow.class)
     private List<OutletInfo> outlets        = new ArrayList<>();
+
+    /**
+     * State of every outlet, the outlets are views on this table.
+     */
+    private final OutletStateTable outletStates = new OutletStateTable();
+
+    /**
+     * Outlets by outlet number.
+     */
+    private volatile OutletInfo[] outletIndex = new OutletInfo[0];
 			
 	public PowerInfo(){
 		
@@ -136,26 +153,61 @@ public class PowerInfo implements Serializable {
             return outlets;
         }
         
-        public void setOutlets(List<OutletInfo> outlets){
+        public synchronized void setOutlets(List<OutletInfo> outlets){
             this.outlets = outlets;
+            OutletInfo[] index = new OutletInfo[0];
+            for(OutletInfo outletInfo : outlets){
+                outletInfo.bind(outletStates);
+                index = indexOutlet(index, outletInfo);
+            }
+            outletIndex = index;
         }
-        
+
+        /**
+         * Get an outlet by number, an outlet not known yet is added with status UNKNOWN.
+         */
         public OutletInfo getOutlet(int outlet){
-            OutletInfo outletInfo;
-            try{
-                outletInfo = this.getOutlets().stream()
-                    .filter(state -> state.getOutlet() == outlet)
-                    .findFirst()
-                    .get();
+            OutletInfo[] index = outletIndex;
+            if(outlet >= 0 && outlet < index.length && index[outlet] != null){
+                return index[outlet];
             }
-            catch(NoSuchElementException ex){
-                outletInfo = new OutletInfo();
-                outletInfo.setOutlet(outlet);
-                outletInfo.setStatus("UNKNOWN");
-                outlets.add(outletInfo);
+            return addOutlet(outlet);
+        }
+
+        /**
+         * Get an outlet by number without adding it.
+         * @return the outlet, null if it is not known yet
+         */
+        public OutletInfo findOutlet(int outlet){
+            OutletInfo[] index = outletIndex;
+            return outlet >= 0 && outlet < index.length ? index[outlet] : null;
+        }
+
+        private synchronized OutletInfo addOutlet(int outlet){
+            OutletInfo[] index = outletIndex;
+            if(outlet >= 0 && outlet < index.length && index[outlet] != null){
+                return index[outlet];
             }
+            OutletInfo outletInfo = new OutletInfo();
+            outletInfo.setOutlet(outlet);
+            outletInfo.setState(OutletState.UNKNOWN);
+            outletInfo.bind(outletStates);
+            outlets.add(outletInfo);
+            outletIndex = indexOutlet(index, outletInfo);
             return outletInfo;
         }
+
+        private static OutletInfo[] indexOutlet(OutletInfo[] index, OutletInfo outletInfo){
+            int outlet = outletInfo.getOutlet();
+            if(outlet < 0){
+                return index;
+            }
+            OutletInfo[] updated = outlet < index.length ? index.clone() : Arrays.copyOf(index, outlet + 1);
+            if(updated[outlet] == null){
+                updated[outlet] = outletInfo;
+            }
+            return updated;
+        }
         
         public String getOutletStatus(int outlet){
             OutletInfo outletInfo;
@@ -164,9 +216,40 @@ public class PowerInfo implements Serializable {
         }
         
         public void setOutletStatus(int outlet, String status){
-            OutletInfo outletInfo;
-            outletInfo = getOutlet(outlet);
-            outletInfo.setStatus(status);
+            OutletState state = OutletState.parse(status);
+            if(state != null){
+                setOutletState(outlet, state);
+            }
+        }
+
+        public OutletState getOutletState(int outlet){
+            OutletState state = outletStates.get(outlet);
+            return state != null ? state : getOutlet(outlet).getState();
+        }
+
+        public void setOutletState(int outlet, OutletState state){
+            if(!outletStates.contains(outlet)){
+                getOutlet(outlet);
+            }
+            outletStates.set(outlet, state);
+        }
+
+        /**
+         * Set the listener told of every change of the status of an outlet.
+         * @param listener The listener, null to remove it.
+         */
+        @JsonIgnore
+        public void setOutletStateListener(OutletStateTable.Listener listener){
+            outletStates.setListener(listener);
+        }
+
+        /**
+         * Get the version of the outlet states, it changes whenever the status of an outlet changes.
+         * @return The version.
+         */
+        @JsonIgnore
+        public long getOutletStatesVersion(){
+            return outletStates.getVersion();
         }
         
 	@Override
@@ -230,4 +313,18 @@ public class PowerInfo implements Serializable {
     public void setState(String state) {
         this.state = state;
     }
+
+    /**
+     * @return the connection state
+     */
+    public DeviceConnectionState getConnection() {
+        return connection;
+    }
+
+    /**
+     * @param connection the connection state to set
+     */
+    public void setConnection(DeviceConnectionState connection) {
+        this.connection = connection;
+    }
 }
@@ -0,0 +1,79 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * PowerJob: progress and results of power actions running in the background.
+ */
+@Data
+@Schema(name = "PowerJob", description = "Power actions running in the background")
+public class PowerJob {
+
+    public enum State { RUNNING, COMPLETED, EXPIRED }
+
+    /**
+     * @return the job id
+     */
+    String id;
+
+    /**
+     * @return the job state, COMPLETED once every slot has a result, EXPIRED if it ran for longer than the limit
+     */
+    State state;
+
+    /**
+     * @return number of slots in the job
+     */
+    int total;
+
+    /**
+     * @return number of slots finished
+     */
+    int completed;
+
+    /**
+     * @return number of slots that failed
+     */
+    int failed;
+
+    /**
+     * @return the result of every finished slot, in completion order
+     */
+    List<SlotPowerResult> results;
+
+    /**
+     * @return URL the job is POSTed to once it finished
+     */
+    String callbackUrl;
+
+    /**
+     * @return creation time in epoch milliseconds
+     */
+    long createdAt;
+
+    /**
+     * @return finish time in epoch milliseconds, 0 while running
+     */
+    long finishedAt;
+}
@@ -0,0 +1,47 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * PowerJobRequest: power actions to run as a job.
+ */
+@Data
+@Schema(name = "PowerJobRequest", description = "Power actions to run in the background")
+public class PowerJobRequest {
+
+    /**
+     * @return the slot and status pairs, status is ON, OFF, REBOOT or IGNORE
+     */
+    List<OutletInfo> outlets;
+
+    /**
+     * @return action applied to every mapped slot when no outlets are given, ON, OFF or REBOOT
+     */
+    String action;
+
+    /**
+     * @return URL the job is POSTed to once it finished, optional
+     */
+    String callbackUrl;
+}
@@ -0,0 +1,60 @@
+package com.cats.power.model;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * SlotPowerResult: outcome of the power action requested for one slot of a custom power plan.
+ */
+@Data
+@Schema(name = "SlotPowerResult", description = "Result of a power action on a slot")
+public class SlotPowerResult {
+
+    /**
+     * @return the slot
+     */
+    String slot;
+
+    /**
+     * @return the deviceId the slot is mapped to
+     */
+    String deviceId;
+
+    /**
+     * @return the outlet of the device the slot is mapped to
+     */
+    int outlet;
+
+    /**
+     * @return the requested action, ON, OFF or REBOOT
+     */
+    String action;
+
+    /**
+     * @return true if the action succeeded
+     */
+    boolean success;
+
+    /**
+     * @return the error message if the device failed
+     */
+    String error;
+}
@@ -0,0 +1,65 @@
+package com.cats.power.resources;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.utils.HttpConnectionPool;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the HTTP power device connection pool statistics at /actuator/httppool.
+ */
+@Component
+@Endpoint(id = "httppool")
+public class HttpConnectionPoolEndpoint {
+
+    @Autowired
+    private HttpConnectionPool connectionPool;
+
+    /**
+     * Get the pool totals and the stats of every host:port route.
+     *
+     * @return - map with "total" and "routes" entries.
+     */
+    @ReadOperation
+    public Map<String, Object> poolStats() {
+        Map<String, Object> routes = new LinkedHashMap<>();
+        connectionPool.getRouteStats().forEach((route, stats) -> routes.put(route, toMap(stats)));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", toMap(connectionPool.getTotalStats()));
+        result.put("routes", routes);
+        return result;
+    }
+
+    private Map<String, Integer> toMap(PoolStats stats) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("available", stats.getAvailable());
+        map.put("pending", stats.getPending());
+        map.put("max", stats.getMax());
+        return map;
+    }
+}
@@ -0,0 +1,67 @@
+package com.cats.power.resources;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.service.OutletStateStream;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Outlet State Stream Rest Resource -> Push outlet status changes instead of polling the status endpoints.
+ */
+@RestController
+@Tag(name = "Outlet State Stream", description = "Server-Sent Events stream of outlet status changes.")
+@RequestMapping("/rest/stream")
+public class OutletStateStreamResource {
+
+    @Autowired
+    private OutletStateStream outletStateStream;
+
+    /**
+     * Subscribe to outlet status changes.
+     * The stream starts with a "snapshot" event holding every outlet, followed by one "outlet" event per change.
+     * A client reconnecting with the Last-Event-ID header, or the since parameter, gets the changes it missed
+     * instead of the snapshot while they are still kept.
+     *
+     * @return {@link SseEmitter} - The event stream.
+     */
+    @Operation(summary = "Stream Outlet Status Changes", description = "Server-Sent Events stream of outlet status changes, resumable with Last-Event-ID.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened")
+    })
+    @RequestMapping(value = "/outlets", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOutlets(@Parameter(description = "Sequence of the last event received, sent by EventSource on reconnect.")
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @Parameter(description = "Sequence of the last event received, for clients that cannot set headers.")
+                                    @RequestParam(required = false, name = "since") Long since) {
+        return outletStateStream.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
@@ -19,11 +19,18 @@ package com.cats.power.resources;
  */
 
 import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.model.DeviceOperationResult;
 import com.cats.power.model.DeviceRequestBody;
 import com.cats.power.model.OutletInfo;
 import com.cats.power.model.PowerInfo;
 import com.cats.power.model.View;
 import com.cats.power.config.PowerConfiguration;
+import com.cats.power.service.DeviceCircuitBreaker;
+import com.cats.power.service.DeviceCommandQueue;
+import com.cats.power.service.DeviceCommandQueue.Command;
+import com.cats.power.service.DeviceFanOutExecutor;
+import com.cats.power.service.DeviceMetrics;
+import com.cats.power.service.OutletStatusCache;
 import com.cats.power.utils.ScheduledJobs;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -40,8 +47,15 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.ws.rs.core.Response;
@@ -68,6 +82,16 @@ public class PowerDeviceResource
     private ScheduledJobs scheduledJobs;
     @Autowired
     public PowerConfiguration pconfig;
+    @Autowired
+    private OutletStatusCache statusCache;
+    @Autowired
+    private DeviceFanOutExecutor fanOutExecutor;
+    @Autowired
+    private DeviceCommandQueue commandQueue;
+    @Autowired
+    private DeviceMetrics deviceMetrics;
+    @Autowired
+    private DeviceCircuitBreaker circuitBreaker;
 
 
 
@@ -114,7 +138,7 @@ public class PowerDeviceResource
         Response res;
         if(!isValidRequestBody(requestBody)){
             res = Response.status(Response.Status.BAD_REQUEST)
-                    .entity("The request body was invalid, check device ID, outlet number, and outlet state").build();
+                    .entity("The request body was invalid, check device ID, outlet number, and outlet state, and list each outlet once").build();
             return res;
         }
         
@@ -223,27 +247,50 @@ public class PowerDeviceResource
         Response res;
         if(!isValidRequestBody(requestBody)){
             res = Response.status(Response.Status.BAD_REQUEST)
-                    .entity("The request body was invalid, check device ID, outlet number, and outlet state").build();
+                    .entity("The request body was invalid, check device ID, outlet number, and outlet state, and list each outlet once").build();
             return res;
         }
         
         device = deviceManager.getPowerControllerDeviceById(deviceId);
+        List<Integer> offOutlets = new ArrayList<>();
+        List<Integer> onOutlets = new ArrayList<>();
+        List<Integer> rebootOutlets = new ArrayList<>();
         requestBody.getOutlets().stream().forEach(outlet -> {
             String status = outlet.getStatus();
             switch (status) {
                 case "OFF":
-                    device.powerOff(outlet.getOutlet());
+                    offOutlets.add(outlet.getOutlet());
                     break;
                 case "ON":
-                    device.powerOn(outlet.getOutlet());
+                    onOutlets.add(outlet.getOutlet());
                     break;
                 case "REBOOT":
-                    device.powerToggle(outlet.getOutlet());
+                    rebootOutlets.add(outlet.getOutlet());
                     break;
                 default:
                     break;
             }
         });
+        // One batch per command so devices that support it can send all outlets in a single request.
+        List<CompletableFuture<Map<Integer, Boolean>>> batches = new ArrayList<>();
+        if(!offOutlets.isEmpty()){
+            batches.add(commandQueue.submitAll(device, offOutlets, Command.OFF));
+        }
+        if(!onOutlets.isEmpty()){
+            batches.add(commandQueue.submitAll(device, onOutlets, Command.ON));
+        }
+        if(!rebootOutlets.isEmpty()){
+            batches.add(commandQueue.submitAll(device, rebootOutlets, Command.TOGGLE));
+        }
+        try {
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException ex) {
+            // Rethrow the cause so an unreachable device maps to 503, not to the generic 500.
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
         
         if(returnState){
             String entity = getPowerDevice(deviceId);
@@ -264,6 +311,8 @@ public class PowerDeviceResource
         boolean isValid = true;
         String status;
         PowerControllerDevice device;
+        // Outlets are batched per command, an outlet listed twice would not be switched in request order.
+        Set<Integer> outlets = new HashSet<>();
         try{
             device = deviceManager.getPowerControllerDeviceById(requestBody.getId());
             for(OutletInfo outlet : requestBody.getOutlets()){
@@ -271,6 +320,10 @@ public class PowerDeviceResource
                     isValid = false;
                     return isValid;
                 }
+                if(!outlets.add(outlet.getOutlet())){
+                    isValid = false;
+                    return isValid;
+                }
                 status = outlet.getStatus().toUpperCase();
                 if( !(status.equals("OFF") || status.equals("ON") || status.equals("REBOOT") || status.equals("IGNORE"))){
                     isValid = false;
@@ -298,14 +351,12 @@ public class PowerDeviceResource
             @ApiResponse(responseCode = "400", description = "Invalid Request. Please check device/outlet IDs and retry request.")
     })
     @RequestMapping(value = "/{deviceId}/{outlet}/on",method=RequestMethod.POST)
-    public Boolean on(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId,
+    public CompletableFuture<Boolean> on(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId,
                       @Parameter(description = "Outlet ID of given Power Device to power ON.") @PathVariable("outlet") Integer outlet)
     {
-        synchronized(String.valueOf(outlet).intern()){
-            validateOutlet(deviceId, outlet);
-            PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
-            return device.powerOn(outlet);
-        }
+        validateOutlet(deviceId, outlet);
+        PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
+        return commandQueue.submit(device, outlet, Command.ON);
     }
 
 
@@ -321,14 +372,12 @@ public class PowerDeviceResource
             @ApiResponse(responseCode = "400", description = "Invalid Request. Please check device/outlet IDs and retry request.")
     })
     @RequestMapping(value = "/{deviceId}/{outlet}/off",method=RequestMethod.POST)
-    public Boolean off(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId,
+    public CompletableFuture<Boolean> off(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId,
                        @Parameter(description = "Outlet ID of given Power Device to power OFF.") @PathVariable("outlet") Integer outlet)
     {
-        synchronized(String.valueOf(outlet).intern()){
-            validateOutlet(deviceId, outlet);
-            PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
-            return device.powerOff(outlet);
-        }
+        validateOutlet(deviceId, outlet);
+        PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
+        return commandQueue.submit(device, outlet, Command.OFF);
     }
 
 
@@ -344,14 +393,12 @@ public class PowerDeviceResource
             @ApiResponse(responseCode = "400", description = "Invalid Request. Please check device/outlet IDs and retry request.")
     })
     @RequestMapping(value = "/{deviceId}/{outlet}/reboot",method=RequestMethod.POST)
-    public Boolean reboot(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId,
+    public CompletableFuture<Boolean> reboot(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId,
                           @Parameter(description = "Outlet ID of given Power Device to REBOOT.") @PathVariable("outlet") Integer outlet)
     {
-        synchronized(String.valueOf(outlet).intern()){
-            validateOutlet(deviceId, outlet);
-            PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
-            return device.powerToggle(outlet);
-        }
+        validateOutlet(deviceId, outlet);
+        PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
+        return commandQueue.submit(device, outlet, Command.TOGGLE);
     }
 
 
@@ -373,7 +420,7 @@ public class PowerDeviceResource
         validateOutlet(deviceId, outlet);
         String ret;
             PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
-            ret = device.getOutletStatus(outlet);
+            ret = fanOutExecutor.call(device, d -> circuitBreaker.call(d, () -> d.getOutletStatus(outlet)));
         return ret;
     }
 
@@ -392,17 +439,7 @@ public class PowerDeviceResource
     @RequestMapping(value = "/all/off",method=RequestMethod.POST)
     public Boolean allOff()
     {
-    	Boolean retVal = true;
-    	for(PowerInfo powerInfo : deviceManager.getAllPowerDevicesInfo()){
-            try{
-    		retVal = allOffOnDevice(powerInfo.getId());
-            }
-            catch(Exception ex){
-                retVal = false;
-            }
-    	}
-    	
-        return retVal;
+        return allDevices(device -> allOffOnDevice(device.getPowerInfo().getId()));
     }
 
 
@@ -420,17 +457,7 @@ public class PowerDeviceResource
     @RequestMapping(value = "/all/on",method=RequestMethod.POST)
     public Boolean allOn()
     {
-    	Boolean retVal = true;
-    	for(PowerInfo powerInfo : deviceManager.getAllPowerDevicesInfo()){
-            try{
-    		retVal = allOnDevice(powerInfo.getId());
-            }
-            catch(Exception ex){
-                retVal = false;
-            }
-    	}
-    	
-        return retVal;
+        return allDevices(device -> allOnDevice(device.getPowerInfo().getId()));
     }
 
     /**
@@ -447,12 +474,7 @@ public class PowerDeviceResource
     @RequestMapping(value = "/all/reboot",method=RequestMethod.POST)
     public Boolean allReboot()
     {
-    	Boolean retVal = null;
-    	for(PowerInfo powerInfo : deviceManager.getAllPowerDevicesInfo()){
-            retVal = allRebootOnDevice(powerInfo.getId());
-    	}
-    	
-        return retVal;
+        return allDevices(device -> allRebootOnDevice(device.getPowerInfo().getId()));
     }
 
     /**
@@ -497,7 +519,7 @@ public class PowerDeviceResource
     public Boolean allOffOnDevice(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId)
     {
     	 PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
-         return device.powerOffAllOutlets();
+        return allOutlets(device, DeviceMetrics.Operation.OFF, PowerControllerDevice::powerOffAllOutlets);
     }
 
 
@@ -516,7 +538,7 @@ public class PowerDeviceResource
     public Boolean allOnDevice(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId)
     {
     	PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
-        return device.powerOnAllOutlets();
+        return allOutlets(device, DeviceMetrics.Operation.ON, PowerControllerDevice::powerOnAllOutlets);
     }
 
     /**
@@ -534,7 +556,7 @@ public class PowerDeviceResource
     public Boolean allRebootOnDevice(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId)
     {
     	PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
-        return device.rebootAllOutlets();
+        return allOutlets(device, DeviceMetrics.Operation.TOGGLE, PowerControllerDevice::rebootAllOutlets);
     }
 
 
@@ -550,12 +572,51 @@ public class PowerDeviceResource
             @ApiResponse(responseCode = "400", description = "Invalid Request. Please check device ID and retry request.")
     })
     @RequestMapping(value = "/{deviceId}/all/status",method=RequestMethod.GET,produces = {"application/json"})
-    public PowerInfo allStatusOfDevice(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId)
+    public PowerInfo allStatusOfDevice(@Parameter(description = "ID of Power Device on Rack.") @PathVariable("deviceId") String deviceId,
+                                       @Parameter(description = "If true, read the status from the device instead of the cache.")
+                                       @RequestParam(required=false,name="fresh",defaultValue="false") boolean fresh,
+                                       @Parameter(description = "Max age in milliseconds of a cached status.")
+                                       @RequestParam(required=false,name="maxAge") Long maxAge)
     {
     	PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
+    	statusCache.getOutlets(device, fresh ? 0 : (maxAge != null ? maxAge : statusCache.getTtlMs()));
     	return device.getPowerInfo();
     }
 
+    /**
+     * Runs an all-outlet command on the device lane, after the commands queued for the device, through its breaker.
+     *
+     * @return - the command result.
+     */
+    private Boolean allOutlets(PowerControllerDevice device, DeviceMetrics.Operation operation, Function<PowerControllerDevice, Boolean> command)
+    {
+        circuitBreaker.checkClosed(device);
+        try {
+            return fanOutExecutor.call(device,
+                    d -> circuitBreaker.call(d, () -> deviceMetrics.timeCommand(d, operation, () -> command.apply(d))));
+        } finally {
+            statusCache.invalidate(device);
+        }
+    }
+
+    /**
+     * Runs an all-outlet command on every device, devices in parallel. Devices with an open breaker fail at once.
+     *
+     * @return - true if the command succeeded on every device.
+     */
+    private Boolean allDevices(Function<PowerControllerDevice, Boolean> command)
+    {
+        Boolean retVal = true;
+        for(DeviceOperationResult<Boolean> result : fanOutExecutor.forEachDevice(deviceManager.getAllPowerDevices(), command).values()){
+            if(!Boolean.TRUE.equals(result.getValue())){
+                Logger.getLogger(PowerDeviceResource.class.getName()).log(Level.WARNING, "Power command failed on device {0}: {1}",
+                        new Object[]{result.getDeviceId(), result.getError()});
+                retVal = false;
+            }
+        }
+        return retVal;
+    }
+
     /**
      * Validates if device outlet exists based on max ports for Power device.
      */
@@ -586,9 +647,8 @@ public class PowerDeviceResource
         Map<String,Map<String,String>> infoMap = new HashMap<>();
         PowerControllerDevice device = deviceManager.getPowerControllerDeviceById(deviceId);
         if(device != null) {
-        	ScheduledJobs.setPowerDevices(pconfig.getPowerDevices());
-            infoMap.put("version", scheduledJobs.getVersion().get(deviceId));
-            infoMap.put("metadata", scheduledJobs.getMetadata().get(deviceId));
+            infoMap.put("version", scheduledJobs.getVersion(deviceId));
+            infoMap.put("metadata", scheduledJobs.getMetadata(deviceId));
             return infoMap;
         }
         else {
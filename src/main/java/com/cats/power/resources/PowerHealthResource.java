@@ -18,14 +18,12 @@ package com.cats.power.resources;
  * SPDX-License-Identifier: Apache-2.0
  */
 
-import com.cats.power.model.HealthReport;
 import com.cats.power.model.HealthStatusBean;
 import com.cats.power.config.PowerConfiguration;
 import com.cats.power.model.PowerInfo;
-import com.cats.power.service.DefaultPowerDeviceManager;
-import com.cats.power.utils.PowerDeviceHealthCheck;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.cats.power.service.PowerHealthMonitor;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -36,12 +34,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 
 /**
  * PowerHealthResource supports operations for getting health of Power service,
@@ -52,13 +49,12 @@ import java.util.List;
 @RequestMapping("/rest")
 public class PowerHealthResource {
 
-    private final ObjectMapper mapper = new ObjectMapper();
     @Autowired
     private PowerConfiguration pconfig;
     Logger logger = LoggerFactory.getLogger(PowerHealthResource.class);
 
     @Autowired
-    DefaultPowerDeviceManager powerDeviceManager;
+    PowerHealthMonitor healthMonitor;
 
 
     /**
@@ -75,13 +71,11 @@ public class PowerHealthResource {
             @ApiResponse(responseCode = "503", description = "Cannot connect to provided power device ID.")
     })
     @RequestMapping(value = "/health",method=RequestMethod.GET ,produces= "application/json")
-    public HealthStatusBean getPowerHealth() {
+    public HealthStatusBean getPowerHealth(@Parameter(description = "Max age in milliseconds of a device health report, older ones are checked again.")
+                                           @RequestParam(required=false,name="maxAge") Long maxAge) {
         HealthStatusBean result = new HealthStatusBean();
-        PowerDeviceHealthCheck powerhealthCheck =new PowerDeviceHealthCheck(powerDeviceManager);
-
         try {
-            List<HealthReport> reports = Arrays.asList(mapper.readValue(powerhealthCheck.check(), HealthReport[].class));
-            result.setHwDevicesHealthStatus(reports);
+            result.setHwDevicesHealthStatus(healthMonitor.getReports(maxAge != null ? maxAge : healthMonitor.getMaxStalenessMs()));
             result.setIsHealthy(true);            
             if(result.getVersion() == null){
                 result.setVersion(new HashMap<>());
@@ -89,7 +83,7 @@ public class PowerHealthResource {
             result.getVersion().put("MS_VERSION",getMicroServiceVersion());
         }
         catch (Exception e) {
-            e.printStackTrace();
+            logger.error("Could not get health of the power devices", e);
             return result;
         }
         return result;
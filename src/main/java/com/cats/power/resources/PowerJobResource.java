@@ -0,0 +1,92 @@
+package com.cats.power.resources;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.exceptions.SlotMappingException;
+import com.cats.power.model.PowerJob;
+import com.cats.power.model.PowerJobRequest;
+import com.cats.power.service.PowerJobService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Power Job Rest Resource -> Run power actions in the background and poll for their results.
+ */
+@RestController
+@Tag(name = "Power Jobs", description = "Run long power operations such as reboots without holding the request open.")
+@RequestMapping("/rest/jobs")
+public class PowerJobResource {
+
+    @Autowired
+    private PowerJobService powerJobService;
+
+    /**
+     * Start a power job.
+     *
+     * @return {@link PowerJob} - The job as started, poll it by id for progress.
+     */
+    @Operation(summary = "Start Power Job", description = "Run power actions on slots in the background. Either give the slot and status pairs, or an action for every mapped slot.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job started",
+                    content = { @Content(mediaType = "application/json", schema = @Schema(implementation = PowerJob.class)) }),
+            @ApiResponse(responseCode = "400", description = "Request Body is invalid. Please update and retry request."),
+            @ApiResponse(responseCode = "404", description = "A slot of the request is not mapped."),
+            @ApiResponse(responseCode = "503", description = "Too many jobs are running, retry later.")
+    })
+    @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public PowerJob startJob(@Parameter(description = "Power actions to run.") @RequestBody PowerJobRequest request) throws SlotMappingException {
+        return powerJobService.submit(request);
+    }
+
+    /**
+     * Get the progress of a power job.
+     *
+     * @return {@link PowerJob} - The job with the results of the slots finished so far.
+     */
+    @Operation(summary = "Get Power Job", description = "Get the progress and the per slot results of a power job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "operation successful",
+                    content = { @Content(mediaType = "application/json", schema = @Schema(implementation = PowerJob.class)) }),
+            @ApiResponse(responseCode = "404", description = "No such job, finished jobs expire after the retention period.")
+    })
+    @RequestMapping(value = "/{jobId}", method = RequestMethod.GET, produces = "application/json")
+    public PowerJob getJob(@Parameter(description = "ID of the job.") @PathVariable("jobId") String jobId) {
+        PowerJob job = powerJobService.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job " + jobId + " not found");
+        }
+        return job;
+    }
+}
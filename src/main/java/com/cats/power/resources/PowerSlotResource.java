@@ -18,14 +18,26 @@ package com.cats.power.resources;
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import com.cats.power.device.PowerControllerDevice;
 import com.cats.power.exceptions.SlotMappingException;
-import com.cats.power.model.OutletInfo;
+import com.cats.power.model.DeviceOperationResult;
 import com.cats.power.model.PowerInfo;
+import com.cats.power.model.SlotPowerResult;
 import com.cats.power.model.View;
 import com.cats.power.config.PowerConfiguration;
+import com.cats.power.service.CustomPowerPlanner;
+import com.cats.power.service.DeviceCircuitBreaker;
+import com.cats.power.service.DeviceFanOutExecutor;
+import com.cats.power.service.DeviceMetrics;
+import com.cats.power.service.OutletStatusCache;
 import com.cats.power.service.PowerDeviceLookupService;
+import com.cats.power.service.PowerPlan;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -58,6 +70,16 @@ public class PowerSlotResource
     private PowerDeviceLookupService powerDeviceLookupService;
     @Autowired
     private PowerConfiguration pconfig;
+    @Autowired
+    private OutletStatusCache statusCache;
+    @Autowired
+    private DeviceFanOutExecutor fanOutExecutor;
+    @Autowired
+    private CustomPowerPlanner customPowerPlanner;
+    @Autowired
+    private DeviceMetrics deviceMetrics;
+    @Autowired
+    private DeviceCircuitBreaker circuitBreaker;
 
 
     /**
@@ -93,11 +115,9 @@ public class PowerSlotResource
             @ApiResponse(responseCode = "400", description = "Cannot process request to power OFF slot. Please try again.")
     })
     @RequestMapping(value="/{slot}/off",method=RequestMethod.POST,produces = "text/plain")
-    public String off(@Parameter(description = "Slot to power OFF.") @PathVariable("slot") String slot) throws SlotMappingException
+    public CompletableFuture<String> off(@Parameter(description = "Slot to power OFF.") @PathVariable("slot") String slot) throws SlotMappingException
     {
-        synchronized(String.valueOf(slot).intern()){
-            return String.valueOf(powerDeviceLookupService.getOutletController(slot).powerOff());
-        }
+        return powerDeviceLookupService.getOutletController(slot).powerOffAsync().thenApply(String::valueOf);
     }
 
     /**
@@ -115,11 +135,9 @@ public class PowerSlotResource
             @ApiResponse(responseCode = "400", description = "Cannot process request to power ON slot. Please try again.")
     })
     @RequestMapping(value="/{slot}/on",method=RequestMethod.POST,produces = "text/plain")
-    public String on(@Parameter(description = "Slot to power ON.") @PathVariable("slot") String slot) throws SlotMappingException
+    public CompletableFuture<String> on(@Parameter(description = "Slot to power ON.") @PathVariable("slot") String slot) throws SlotMappingException
     {
-        synchronized(String.valueOf(slot).intern()){
-            return String.valueOf(powerDeviceLookupService.getOutletController(slot).powerOn());
-        }
+        return powerDeviceLookupService.getOutletController(slot).powerOnAsync().thenApply(String::valueOf);
     }
 
     /**
@@ -138,11 +156,9 @@ public class PowerSlotResource
             @ApiResponse(responseCode = "400", description = "Cannot process request to power REBOOT slot. Please try again.")
     })
     @RequestMapping(value="/{slot}/reboot",method=RequestMethod.POST,produces="text/plain")
-    public String reboot(@Parameter(description = "Slot to power REBOOT.") @PathVariable("slot") String slot) throws SlotMappingException
+    public CompletableFuture<String> reboot(@Parameter(description = "Slot to power REBOOT.") @PathVariable("slot") String slot) throws SlotMappingException
     {
-        synchronized(String.valueOf(slot).intern()){
-            return String.valueOf(powerDeviceLookupService.getOutletController(slot).powerToggle());
-        }
+        return powerDeviceLookupService.getOutletController(slot).powerToggleAsync().thenApply(String::valueOf);
     }
 
     /**
@@ -157,9 +173,13 @@ public class PowerSlotResource
             @ApiResponse(responseCode = "400", description = "Cannot get status of power outlet for slot. Please try again.")
     })
     @RequestMapping(value="/{slot}/status",method=RequestMethod.GET ,produces= "text/plain")
-    public String status(@Parameter(description = "Slot to get Power status of.") @PathVariable("slot") String slot) throws SlotMappingException
+    public String status(@Parameter(description = "Slot to get Power status of.") @PathVariable("slot") String slot,
+                         @Parameter(description = "If true, read the status from the device instead of the cache.")
+                         @RequestParam(required=false,name="fresh",defaultValue="false") boolean fresh,
+                         @Parameter(description = "Max age in milliseconds of a cached status.")
+                         @RequestParam(required=false,name="maxAge") Long maxAge) throws SlotMappingException
     {
-        return powerDeviceLookupService.getOutletInfo(slot).getStatus();
+        return powerDeviceLookupService.getOutletInfo(slot, maxAgeMs(fresh, maxAge)).getStatus();
     }
 
     /**
@@ -189,10 +209,28 @@ public class PowerSlotResource
      * @return status of a power device.
      */
     public String getAllSlotStatus(){
+        return getAllSlotStatus(false, null);
+    }
+
+    /**
+     * Return the power status of all slots, answered from the outlet status cache unless fresh or maxAge ask otherwise.
+     * 
+     * @return status of all slots.
+     */
+    @Operation(summary = "Get Status of All Slots", description = "Get Power Outlet status for every slot on the rack.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "operation successful",
+                    content = { @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)) })
+    })
+    @RequestMapping(value="/all/status",method=RequestMethod.GET ,produces= "application/json")
+    public String getAllSlotStatus(@Parameter(description = "If true, read the status from the devices instead of the cache.")
+                                   @RequestParam(required=false,name="fresh",defaultValue="false") boolean fresh,
+                                   @Parameter(description = "Max age in milliseconds of a cached status.")
+                                   @RequestParam(required=false,name="maxAge") Long maxAge){
         String outletInfo;
         String ret;
         try {
-            outletInfo = mapper.writerWithView(View.Slot.class).writeValueAsString(powerDeviceLookupService.getAllOutletInfo());
+            outletInfo = mapper.writerWithView(View.Slot.class).writeValueAsString(powerDeviceLookupService.getAllOutletInfo(maxAgeMs(fresh, maxAge)));
             ret = String.format("{\"outlets\": %s}", outletInfo);
         } catch (JsonProcessingException ex) {
             Logger.getLogger(PowerSlotResource.class.getName()).log(Level.SEVERE, null, ex);
@@ -215,11 +253,7 @@ public class PowerSlotResource
     })
     @RequestMapping(value="/all/on",method=RequestMethod.POST)
     public boolean allOn(){
-        boolean ret = true;
-        for(OutletInfo outlet: powerDeviceLookupService.getAllOutletInfo()){
-            powerDeviceLookupService.getOutletController(outlet.getSlot()).powerOn();
-        }
-        return ret;
+        return powerAllSlots(DeviceMetrics.Operation.ON, (device, outlets) -> device.powerOnOutlets(outlets));
     }
 
     /**
@@ -235,11 +269,7 @@ public class PowerSlotResource
     })
     @RequestMapping(value="/all/off",method=RequestMethod.POST)
     public boolean allOff(){
-        boolean ret = true;
-        for(OutletInfo outlet: powerDeviceLookupService.getAllOutletInfo()){
-            powerDeviceLookupService.getOutletController(outlet.getSlot()).powerOff();
-        }
-        return ret;
+        return powerAllSlots(DeviceMetrics.Operation.OFF, (device, outlets) -> device.powerOffOutlets(outlets));
     }
 
     /**
@@ -255,19 +285,17 @@ public class PowerSlotResource
     })
     @RequestMapping(value="/all/reboot",method=RequestMethod.POST)
     public boolean allReboot(){
-        boolean ret = true;
-        for(OutletInfo outlet: powerDeviceLookupService.getAllOutletInfo()){
-            powerDeviceLookupService.getOutletController(outlet.getSlot()).powerToggle();
-        }
-        return ret;
+        return powerAllSlots(DeviceMetrics.Operation.TOGGLE, (device, outlets) -> device.powerToggleOutlets(outlets));
     }
 
 
     /**
      * Set custom power details for all power devices on the rack.
+     * The slots are grouped by device and each device runs its outlets with its bulk commands, devices in parallel.
      *
      * @return {@link Response} - Returns Response as 200 Success unless returnState is set as true.
      * In this case, array response of PowerInfo is returned for configured devices.
+     * If report is set as true, the per slot results are returned instead.
      */
     @Operation(summary = "Set Custom Power Device Details", description = "Set custom details for Power Devices connected to the rack.")
     @ApiResponses(value = {
@@ -278,31 +306,31 @@ public class PowerSlotResource
     @RequestMapping(value="/all",method=RequestMethod.POST)
     public Response customPower(@Parameter(description = "If true, return state after setting Slot Mappings.")
                                 @DefaultValue("false") @QueryParam("returnState") boolean returnState,
+                                @Parameter(description = "If true, return the result of every slot.")
+                                @RequestParam(required=false,name="report",defaultValue="false") boolean report,
                                 @Parameter(description = "Request Body for Custom Power Details to set for all devices.")
                                 @RequestBody PowerInfo requestBody) throws BadRequestException
     {
         Response res;
-        String status;
-        if(!isValidCustomPower(requestBody)){
+        PowerPlan plan;
+        try{
+            plan = customPowerPlanner.compile(requestBody.getOutlets());
+        }
+        catch(SlotMappingException | IllegalArgumentException | NullPointerException ex){
            throw new BadRequestException("Bad slot power request, check slots and power states in request");
         }
-        for(OutletInfo outlet: requestBody.getOutlets()){
-            status = outlet.getStatus().toUpperCase();
-            switch (status) {
-                case "OFF":
-                    powerDeviceLookupService.getOutletController(outlet.getSlot()).powerOff();
-                    break;
-                case "ON":
-                    powerDeviceLookupService.getOutletController(outlet.getSlot()).powerOn();
-                    break;
-                case "REBOOT":
-                    powerDeviceLookupService.getOutletController(outlet.getSlot()).powerToggle();
-                    break;
-                default:
-                    break;
+        List<SlotPowerResult> results = customPowerPlanner.execute(plan);
+        if(report){
+            String entity;
+            try {
+                entity = mapper.writeValueAsString(results);
+            } catch (JsonProcessingException ex) {
+                Logger.getLogger(PowerSlotResource.class.getName()).log(Level.SEVERE, null, ex);
+                entity = "Could not get slot results";
             }
+            res = Response.status(Response.Status.OK).entity(entity).build();
         }
-        if(returnState){
+        else if(returnState){
             String entity = getAllSlotStatus();
             res = Response.status(Response.Status.OK).entity(entity).build();
         }
@@ -312,37 +340,36 @@ public class PowerSlotResource
         return res;
     }
 
-
     /**
-     * Validate the custom power request.
+     * Run a command on the slot outlets of every device, devices in parallel.
      *
-     * @param requestBody - PowerInfo object containing custom power details.
-     * @return - true if the request is valid, false otherwise.
+     * @return - true if every outlet of every device succeeded.
      */
-    private boolean isValidCustomPower(PowerInfo requestBody){
-        boolean isValid = true;
-        String status;
-        for(OutletInfo outlet : requestBody.getOutlets()){
-            try{
-                powerDeviceLookupService.getOutletController(outlet.getSlot());
-            }
-            catch(SlotMappingException ex){
-                isValid = false;
-                return isValid;
+    private boolean powerAllSlots(DeviceMetrics.Operation operation, BiFunction<PowerControllerDevice, List<Integer>, Map<Integer, Boolean>> command){
+        Map<PowerControllerDevice, List<Integer>> outletsByDevice = powerDeviceLookupService.getSlotOutletsByDevice();
+        Map<String, DeviceOperationResult<Map<Integer, Boolean>>> results = fanOutExecutor.forEachDevice(outletsByDevice.keySet(), device -> {
+            try {
+                return circuitBreaker.call(device,
+                        () -> deviceMetrics.timeBatch(device, operation, () -> command.apply(device, outletsByDevice.get(device))));
+            } finally {
+                statusCache.invalidate(device);
             }
-            try{
-                status = outlet.getStatus();
-                if( !( status.equals("ON") || status.equals("OFF") || 
-                        status.equals("REBOOT") || status.equals("IGNORE") ) ){
-                    isValid = false; 
-                    return isValid;
-                }
-            }
-            catch(NullPointerException ex){
-                isValid = false;
-                return isValid;
+        });
+        boolean ret = true;
+        for(DeviceOperationResult<Map<Integer, Boolean>> result : results.values()){
+            if(result.getValue() == null || result.getValue().containsValue(false)){
+                Logger.getLogger(PowerSlotResource.class.getName()).log(Level.WARNING, "Power command failed on device {0}: {1}",
+                        new Object[]{result.getDeviceId(), result.getError() != null ? result.getError() : result.getValue()});
+                ret = false;
             }
         }
-        return isValid;
+        return ret;
+    }
+
+    private long maxAgeMs(boolean fresh, Long maxAge){
+        if(fresh){
+            return 0;
+        }
+        return maxAge != null ? maxAge : statusCache.getTtlMs();
     }
 }
@@ -0,0 +1,154 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.exceptions.SlotMappingException;
+import com.cats.power.model.DeviceOperationResult;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.model.SlotPowerResult;
+import com.cats.power.utils.PowerOutletController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CustomPowerPlanner compiles a custom power request into a plan grouped by physical device and runs it.
+ * Every slot is resolved once, each device receives its outlets in one multi-outlet call per action so the
+ * device bulk primitive is used, and different devices run in parallel.
+ * */
+@Service
+public class CustomPowerPlanner {
+    private static final Logger log = LoggerFactory.getLogger(CustomPowerPlanner.class);
+
+    /**
+     * Actions of a device run in this order.
+     */
+    static final List<String> ACTIONS = Arrays.asList("OFF", "ON", "REBOOT");
+
+    @Autowired
+    private PowerDeviceLookupService powerDeviceLookupService;
+
+    @Autowired
+    private DeviceFanOutExecutor fanOutExecutor;
+
+    @Autowired
+    private OutletStatusCache statusCache;
+
+    @Autowired
+    private DeviceMetrics deviceMetrics;
+
+    @Autowired
+    private DeviceCircuitBreaker circuitBreaker;
+
+    /**
+     * Resolve the slots of a request and group the actions by device.
+     * @param outlets The requested slot and status pairs.
+     * @return The plan.
+     * @throws SlotMappingException If a slot cannot be resolved.
+     * @throws IllegalArgumentException If a status is not ON, OFF, REBOOT or IGNORE, or if two slots resolve to the
+     * same outlet. Actions are batched per device in OFF, ON, REBOOT order, so conflicting actions on one outlet would
+     * not run in request order.
+     * */
+    public PowerPlan compile(List<OutletInfo> outlets) throws SlotMappingException {
+        PowerPlan plan = new PowerPlan();
+        for (OutletInfo outlet : outlets) {
+            if (outlet.getStatus() == null) {
+                throw new IllegalArgumentException("Missing power state for slot " + outlet.getSlot());
+            }
+            String action = outlet.getStatus().toUpperCase();
+            if (action.equals("IGNORE")) {
+                continue;
+            }
+            if (!ACTIONS.contains(action)) {
+                throw new IllegalArgumentException("Invalid power state " + outlet.getStatus() + " for slot " + outlet.getSlot());
+            }
+            PowerOutletController controller = powerDeviceLookupService.getOutletController(outlet.getSlot());
+            if (plan.contains(controller.getPowerControllerDevice(), controller.getOutlet())) {
+                throw new IllegalArgumentException("Slot " + outlet.getSlot() + " is requested more than once");
+            }
+            plan.add(outlet.getSlot(), controller.getPowerControllerDevice(), controller.getOutlet(), action);
+        }
+        return plan;
+    }
+
+    /**
+     * Run a plan, devices in parallel.
+     * @param plan The plan.
+     * @return Result per slot, in request order.
+     * */
+    public List<SlotPowerResult> execute(PowerPlan plan) {
+        Map<String, DeviceOperationResult<Map<String, Map<Integer, Boolean>>>> deviceResults =
+                fanOutExecutor.forEachDevice(plan.getDevices(), device -> {
+                    try {
+                        return executeOnDevice(device, plan.getOutletsByAction(device));
+                    } finally {
+                        statusCache.invalidate(device);
+                    }
+                });
+
+        List<SlotPowerResult> results = new ArrayList<>();
+        for (PowerPlan.Step step : plan.getSteps()) {
+            SlotPowerResult result = new SlotPowerResult();
+            result.setSlot(step.getSlot());
+            result.setDeviceId(step.getDevice().getPowerInfo().getId());
+            result.setOutlet(step.getOutlet());
+            result.setAction(step.getAction());
+            DeviceOperationResult<Map<String, Map<Integer, Boolean>>> deviceResult = deviceResults.get(result.getDeviceId());
+            if (deviceResult.getValue() != null) {
+                result.setSuccess(Boolean.TRUE.equals(deviceResult.getValue().get(step.getAction()).get(step.getOutlet())));
+            } else {
+                result.setError(deviceResult.getError());
+            }
+            results.add(result);
+        }
+        log.info("Custom power plan of {} slots over {} devices executed", results.size(), deviceResults.size());
+        return results;
+    }
+
+    private Map<String, Map<Integer, Boolean>> executeOnDevice(PowerControllerDevice device, Map<String, List<Integer>> outletsByAction) {
+        Map<String, Map<Integer, Boolean>> results = new LinkedHashMap<>();
+        for (String action : ACTIONS) {
+            List<Integer> outlets = outletsByAction.get(action);
+            if (outlets == null || outlets.isEmpty()) {
+                continue;
+            }
+            results.put(action, circuitBreaker.call(device, () -> sendBatch(device, action, outlets)));
+        }
+        return results;
+    }
+
+    private Map<Integer, Boolean> sendBatch(PowerControllerDevice device, String action, List<Integer> outlets) {
+        switch (action) {
+            case "OFF":
+                return deviceMetrics.timeBatch(device, DeviceMetrics.Operation.OFF, () -> device.powerOffOutlets(outlets));
+            case "ON":
+                return deviceMetrics.timeBatch(device, DeviceMetrics.Operation.ON, () -> device.powerOnOutlets(outlets));
+            default:
+                return deviceMetrics.timeBatch(device, DeviceMetrics.Operation.TOGGLE, () -> device.powerToggleOutlets(outlets));
+        }
+    }
+}
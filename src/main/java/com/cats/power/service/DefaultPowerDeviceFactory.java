@@ -20,6 +20,7 @@ package com.cats.power.service;
 
 import com.cats.power.device.*;
 import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
 import com.cats.power.model.PowerInfo;
 
 import java.util.ArrayList;
@@ -142,7 +143,7 @@ public class DefaultPowerDeviceFactory
             for(int i = 1; i <= maxPorts; i++){
                 OutletInfo outletInfo = new OutletInfo();
                 outletInfo.setOutlet((i));
-                outletInfo.setStatus("UNKNOWN");
+                outletInfo.setState(OutletState.UNKNOWN);
                 outlets.add(outletInfo);
             }
             powerInfo.setOutlets(outlets);
@@ -29,7 +29,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.http.NameValuePair;
@@ -48,24 +54,35 @@ public class DefaultPowerDeviceManager implements PowerDeviceManager{
     protected Logger log = LoggerFactory.getLogger(getClass());
     @Autowired
     DefaultPowerDeviceFactory deviceFactory;
-    private List<PowerControllerDevice> powerDevices = new ArrayList<>();
+    @Autowired
+    PowerDeviceRegistry registry;
     @Autowired
     public PowerConfiguration powerConfig;
+    @Autowired
+    PowerDeviceInitializer deviceInitializer;
+    @Autowired
+    OutletStateStream stateStream;
+    @Autowired
+    OutletStatusCache statusCache;
+    /**
+     * Set once the configured devices were built, even if some of them are still being built in the background.
+     */
+    private volatile boolean initialized;
+    private final List<Runnable> deviceSetListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Configuration every configured device was built from, by device id.
+     */
+    private final ConcurrentMap<String, PowerDevice> configurations = new ConcurrentHashMap<>();
 
 	@Override
     public PowerControllerDevice getPowerControllerDevice(String type, String ip, Integer port, Integer maxPorts)
     {
-        PowerControllerDevice powerDevice = null;
-        try{
-            powerDevice = powerDevices.stream()
-                .filter(device -> device.getPowerInfo().getIp().equals(ip) && device.getPowerInfo().getPort() == port)
-                .findFirst().get();
+        PowerControllerDevice powerDevice = registry.getByAddress(ip, port);
+        if(powerDevice != null){
             log.info(String.format("Power device at %s:%s found, returning", ip, port));
             return powerDevice;
         }
-        catch(NoSuchElementException ex){
-            log.info(String.format("Power device at %s:%s not found, creating", ip, port));
-        }
+        log.info(String.format("Power device at %s:%s not found, creating", ip, port));
         try
         {
             String uriString = String.format("%s://%s:%s?maxPort=%s", type, ip, port, maxPorts);
@@ -82,17 +99,12 @@ public class DefaultPowerDeviceManager implements PowerDeviceManager{
     @Override
     public PowerControllerDevice getPowerControllerDevice(String type, String ip, Integer port, Integer maxPorts, String userName, String password)
     {
-        PowerControllerDevice powerDevice = null;
-        try{
-            powerDevice = powerDevices.stream()
-                .filter(device -> device.getPowerInfo().getIp().equals(ip) && device.getPowerInfo().getPort() == port)
-                .findFirst().get();
+        PowerControllerDevice powerDevice = registry.getByAddress(ip, port);
+        if(powerDevice != null){
             log.info(String.format("Power device at %s:%s found, returning", ip, port));
             return powerDevice;
         }
-        catch(NoSuchElementException ex){
-            log.info(String.format("Power device at %s:%s not found, creating", ip, port));
-        }
+        log.info(String.format("Power device at %s:%s not found, creating", ip, port));
         try
         {
             String uriString = String.format("%s://%s:%s?maxPort=%s&userName=%s&password=%s", type, ip, port, maxPorts, userName, password);
@@ -109,8 +121,12 @@ public class DefaultPowerDeviceManager implements PowerDeviceManager{
     @Override
     public void destroyAllControllers()
     {
-        powerDevices.stream().forEach(device -> device.destroy());
-        powerDevices = new ArrayList<>();
+        List<PowerControllerDevice> removed;
+        synchronized(this) {
+            initialized = false;
+            removed = registry.clear();
+        }
+        removed.forEach(device -> device.destroy());
         log.debug("Destroyed all devices in cache ...");
     }
 
@@ -123,15 +139,9 @@ public class DefaultPowerDeviceManager implements PowerDeviceManager{
     @Override
     public void removePowerDevice(String ip, Integer port) 
     {
-        try {
-            String uriString = String.format("http://%s:%s/", ip, port);
-            URI path;
-            path = new URI(uriString);
-	    PowerControllerDevice device = buildPowerControllerDeviceByScheme(path);
+        PowerControllerDevice device = registry.removeByAddress(ip, port);
+        if(device != null){
             device.destroy();
-            powerDevices.remove(device);
-        } catch (URISyntaxException ex) {
-            log.error("Could not convert ip and port into valid URI: " + ip + ":" + port);
         }
         log.debug("Remove device with ip {} ", ip);
     }
@@ -139,13 +149,9 @@ public class DefaultPowerDeviceManager implements PowerDeviceManager{
     @Override
     public ArrayList<PowerInfo> getAllPowerDevicesInfo()
     {
-    	ArrayList<PowerInfo> powerInfoList;
-    	if(null == powerDevices || powerDevices.size()==0) {
-    		this.getAllPowerDevices();
-            powerInfoList = powerDevices.stream().map(PowerControllerDevice::getPowerInfo).collect(Collectors.toCollection(ArrayList::new));
-    	}else {
-            powerInfoList = powerDevices.stream().map(PowerControllerDevice::getPowerInfo).collect(Collectors.toCollection(ArrayList::new));
-    	}
+    	ArrayList<PowerInfo> powerInfoList = getAllPowerDevices().stream()
+                .map(PowerControllerDevice::getPowerInfo)
+                .collect(Collectors.toCollection(ArrayList::new));
         log.debug("collected info for {} devices " + powerInfoList.size());
         return powerInfoList;
     }
@@ -157,6 +163,16 @@ public class DefaultPowerDeviceManager implements PowerDeviceManager{
     }
     @Override
     public PowerControllerDevice buildPowerControllerDeviceByScheme(URI path)
+    {
+        PowerControllerDevice powerDevice = createPowerControllerDevice(path);
+        deviceInitializer.readStatus(powerDevice);
+        return powerDevice;
+    }
+
+    /**
+     * Build a power device from its URI without reading its status.
+     */
+    private PowerControllerDevice createPowerControllerDevice(URI path)
     {   
         String scheme = path.getScheme();
         PowerControllerDevice powerDevice;
@@ -181,34 +197,41 @@ public class DefaultPowerDeviceManager implements PowerDeviceManager{
         else{
             powerDevice = deviceFactory.buildPowerController(scheme, path.getHost(), path.getPort(), maxPorts);
         }
-        try {
-        powerDevice.retrieveOutletStatus();
-        }catch(Exception e) {
-        	log.error("Could not retrieve the device status: " + e.getMessage());
-        }
+        stateStream.attach(powerDevice);
         return powerDevice;
     }
+
+    /**
+     * Build a configured power device without reading its status, the initializer reads it in the background.
+     */
+    private PowerControllerDevice createPowerControllerDevice(PowerDevice powerDevice)
+    {
+        String uriString;
+        if(powerDevice.getUserName() != null && powerDevice.getPassword() != null) {
+            uriString = String.format("%s://%s:%s?maxPort=%s&userName=%s&password=%s", powerDevice.getType(), powerDevice.getHost(),
+                    powerDevice.getPort(), powerDevice.getMaxPort(), powerDevice.getUserName(), powerDevice.getPassword());
+        }else{
+            uriString = String.format("%s://%s:%s?maxPort=%s", powerDevice.getType(), powerDevice.getHost(), powerDevice.getPort(), powerDevice.getMaxPort());
+        }
+        try
+        {
+            PowerControllerDevice powerControllerDevice = createPowerControllerDevice(new URI(uriString));
+            powerControllerDevice.getPowerInfo().setId(powerDevice.getDeviceId());
+            return powerControllerDevice;
+        }
+        catch (URISyntaxException e)
+        {
+            log.error("getPowerDevice excpetion. URI is not proper " + e.getMessage());
+            throw new IllegalArgumentException("Invalid power device " + powerDevice.getDeviceId(), e);
+        }
+    }
     
     @Override
     public PowerControllerDevice getPowerControllerDeviceById(String id){
-        PowerControllerDevice powerDevice = null;
-        try{
-        	if(null == powerDevices || powerDevices.size()==0) {
-        		this.getAllPowerDevices();
-        		powerDevice =  powerDevices.stream()
-                        .filter(device -> device.getPowerInfo().getId().equals(id))
-                        .findFirst()
-                        .get();
-        	}else {
-        		powerDevice =  powerDevices.stream()
-                        .filter(device -> device.getPowerInfo().getId().equals(id))
-                        .findFirst()
-                        .get();
-        	}
-            
-        }
-        catch(NoSuchElementException ex){
-        
+        PowerControllerDevice powerDevice = registry.getById(id);
+        if(null == powerDevice && registry.isEmpty()) {
+            getAllPowerDevices();
+            powerDevice = registry.getById(id);
         }
         if(null == powerDevice) {
         	throw new DeviceUnreachableException("Cannot connect to device." +id);
@@ -217,21 +240,145 @@ public class DefaultPowerDeviceManager implements PowerDeviceManager{
     }
     
     @Override
-    public synchronized List<PowerControllerDevice> getAllPowerDevices(){
-    	
-    	if(powerDevices.isEmpty()) {
-    	for(PowerDevice powerDevice : powerConfig.getPowerDevices()){
-            PowerControllerDevice powerControllerDevice;
-            if(powerDevice.getUserName() != null && powerDevice.getPassword() != null) {
-                powerControllerDevice = this.getPowerControllerDevice(powerDevice.getType(), powerDevice.getHost(), powerDevice.getPort(), powerDevice.getMaxPort(), powerDevice.getUserName(), powerDevice.getPassword());
-            }else{
-                powerControllerDevice = this.getPowerControllerDevice(powerDevice.getType(), powerDevice.getHost(), powerDevice.getPort(), powerDevice.getMaxPort());
+    public List<PowerControllerDevice> getAllPowerDevices(){
+        if(!initialized) {
+            initialize();
+        }
+        return registry.snapshot();
+    }
+
+    @Override
+    public void addDeviceSetListener(Runnable listener){
+        deviceSetListeners.add(listener);
+    }
+
+    /**
+     * Build the configured devices once, the devices built after the startup budget are added when ready.
+     */
+    private synchronized void initialize(){
+        if(initialized) {
+            return;
+        }
+        List<PowerDevice> configured = powerConfig.getPowerDevices();
+        Map<String, PowerControllerDevice> built = build(configured);
+        for(PowerDevice powerDevice : configured){
+            PowerControllerDevice device = built.get(powerDevice.getDeviceId());
+            if(device != null){
+                configurations.put(powerDevice.getDeviceId(), powerDevice);
+                registry.register(device);
             }
-            powerControllerDevice.getPowerInfo().setId(powerDevice.getDeviceId());
-            powerDevices.add(powerControllerDevice);
-    	
-    	}
-    	}
-    	return powerDevices;
+        }
+        initialized = true;
+    }
+
+    /**
+     * Build devices, waiting up to the initialisation budget, the devices built later go through addLateDevice.
+     * @return the devices built within the budget, by device id
+     */
+    private Map<String, PowerControllerDevice> build(List<PowerDevice> powerDevices){
+        return deviceInitializer.initialize(powerDevices, this::createPowerControllerDevice, this::addLateDevice)
+                .stream()
+                .collect(Collectors.toMap(device -> device.getPowerInfo().getId(), Function.identity(), (first, second) -> second));
+    }
+
+    /**
+     * Put a device built after the initialisation budget in place, at its position in the configuration. Until then
+     * the device it replaces, if any, stayed in use. The device is destroyed instead if its configuration is no
+     * longer the configured one, or a device with that configuration is already in place.
+     */
+    private void addLateDevice(PowerDevice powerDevice, PowerControllerDevice device){
+        String id = powerDevice.getDeviceId();
+        List<PowerControllerDevice> removed;
+        synchronized(this) {
+            boolean current = initialized && sameDevice(configuredDevice(id), powerDevice);
+            if(!current || registry.getById(id) != null && sameDevice(configurations.get(id), powerDevice)) {
+                log.info("Device {} built after the budget is no longer needed, destroying it", id);
+                device.destroy();
+                return;
+            }
+            configurations.put(id, powerDevice);
+            removed = registry.replaceAll(inConfigurationOrder(device));
+            removed.forEach(statusCache::invalidate);
+            log.info("Device {} built after the budget added", id);
+        }
+        removed.forEach(PowerControllerDevice::destroy);
+        deviceSetListeners.forEach(Runnable::run);
+    }
+
+    private PowerDevice configuredDevice(String id){
+        return powerConfig.getPowerDevices().stream()
+                .filter(powerDevice -> id.equals(powerDevice.getDeviceId()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * The registered devices with a device added or replaced, in configuration order.
+     */
+    private List<PowerControllerDevice> inConfigurationOrder(PowerControllerDevice added){
+        String id = added.getPowerInfo().getId();
+        List<PowerControllerDevice> devices = new ArrayList<>();
+        for(PowerDevice powerDevice : powerConfig.getPowerDevices()){
+            PowerControllerDevice device = id.equals(powerDevice.getDeviceId()) ? added : registry.getById(powerDevice.getDeviceId());
+            if(device != null){
+                devices.add(device);
+            }
+        }
+        return devices;
+    }
+
+    @Override
+    public boolean applyPowerDevices(List<PowerDevice> powerDevices){
+        getAllPowerDevices();
+        List<PowerControllerDevice> removed;
+        synchronized(this) {
+            List<PowerDevice> changed = powerDevices.stream()
+                    .filter(powerDevice -> registry.getById(powerDevice.getDeviceId()) == null
+                            || !sameDevice(configurations.get(powerDevice.getDeviceId()), powerDevice))
+                    .collect(Collectors.toList());
+            Map<String, PowerControllerDevice> built = build(changed);
+
+            List<PowerControllerDevice> devices = new ArrayList<>();
+            for(PowerDevice powerDevice : powerDevices){
+                String id = powerDevice.getDeviceId();
+                PowerControllerDevice device = built.get(id);
+                if(device != null){
+                    configurations.put(id, powerDevice);
+                }
+                else{
+                    // Unchanged, or still being built: the current device stays until addLateDevice replaces it.
+                    device = registry.getById(id);
+                }
+                if(device != null){
+                    devices.add(device);
+                }
+            }
+            removed = registry.replaceAll(devices);
+            // The status read from a replaced device must not be served as fresh for its replacement.
+            removed.forEach(statusCache::invalidate);
+            Set<String> ids = powerDevices.stream().map(PowerDevice::getDeviceId).collect(Collectors.toSet());
+            configurations.keySet().retainAll(ids);
+            powerConfig.setPowerDevices(powerDevices);
+            log.info("Applied {} power devices: {} changed, {} built in time, {} destroyed", powerDevices.size(),
+                    changed.size(), built.size(), removed.size());
+            if(changed.isEmpty() && removed.isEmpty()){
+                return false;
+            }
+        }
+        removed.forEach(PowerControllerDevice::destroy);
+        return true;
+    }
+
+    /**
+     * Whether two configurations describe the same device.
+     */
+    private static boolean sameDevice(PowerDevice current, PowerDevice configured){
+        return current != null
+                && Objects.equals(current.getType(), configured.getType())
+                && Objects.equals(current.getHost(), configured.getHost())
+                && Objects.equals(current.getPort(), configured.getPort())
+                && Objects.equals(current.getMaxPort(), configured.getMaxPort())
+                && Objects.equals(current.getUserName(), configured.getUserName())
+                && Objects.equals(current.getPassword(), configured.getPassword());
     }
 }
@@ -0,0 +1,270 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.exceptions.DeviceUnreachableException;
+import com.cats.power.model.DeviceConnectionState;
+import com.cats.power.utils.TransportOutcomes;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * DeviceCircuitBreaker fails fast the calls to a power device that stopped answering.
+ * After failureThreshold consecutive failed calls the breaker of the device opens: calls throw
+ * {@link DeviceUnreachableException} at once instead of waiting for the driver timeouts and retries, and the device
+ * is marked UNREACHABLE. While open, a background probe reads the status of the first outlet every openMs, the
+ * breaker closes and the device is marked CONNECTED again once the probe gets an answer. A call failed only if its
+ * requests failed in the transport (timeouts, I/O errors) and none got an answer: a device refusing a command answered.
+ * */
+@Service
+public class DeviceCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(DeviceCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Value("${breaker.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${breaker.failureThreshold:3}")
+    private int failureThreshold = 3;
+
+    @Value("${breaker.openMs:10000}")
+    private long openMs = 10000;
+
+    @Value("${breaker.probeThreads:2}")
+    private int probeThreads = 2;
+
+    private final PowerDeviceRegistry registry;
+
+    private final DeviceMetrics deviceMetrics;
+
+    private final DeviceFanOutExecutor fanOutExecutor;
+
+    private final ConcurrentMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService prober;
+
+    @Autowired
+    public DeviceCircuitBreaker(PowerDeviceRegistry registry, DeviceMetrics deviceMetrics, DeviceFanOutExecutor fanOutExecutor) {
+        this.registry = registry;
+        this.deviceMetrics = deviceMetrics;
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        prober = Executors.newScheduledThreadPool(probeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "device-breaker-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+
+    /**
+     * Run a call on a device through its breaker.
+     * @param device The device.
+     * @param command The driver call, run on the calling thread.
+     * @return The call result.
+     * @throws DeviceUnreachableException If the breaker of the device is open.
+     * */
+    public <T> T call(PowerControllerDevice device, Supplier<T> command) {
+        if (!enabled) {
+            return command.get();
+        }
+        Breaker breaker = breakerOf(device);
+        breaker.checkClosed();
+        TransportOutcomes.Mark mark = TransportOutcomes.mark();
+        try {
+            return command.get();
+        } finally {
+            if (mark.answered()) {
+                breaker.success();
+            } else if (mark.unreachable()) {
+                breaker.failure();
+            }
+        }
+    }
+
+    /**
+     * Fail fast if the breaker of a device is open, used before queueing work for the device.
+     * @param device The device.
+     * @throws DeviceUnreachableException If the breaker of the device is open.
+     * */
+    public void checkClosed(PowerControllerDevice device) {
+        if (enabled) {
+            breakerOf(device).checkClosed();
+        }
+    }
+
+    /**
+     * @param device The device.
+     * @return true if calls to the device are failed fast.
+     * */
+    public boolean isOpen(PowerControllerDevice device) {
+        return getState(device) != State.CLOSED;
+    }
+
+    /**
+     * @param device The device.
+     * @return The state of the breaker of the device.
+     * */
+    public State getState(PowerControllerDevice device) {
+        Breaker breaker = breakers.get(keyOf(device));
+        return breaker != null && breaker.device == device ? breaker.state : State.CLOSED;
+    }
+
+    /**
+     * Open the breaker of a device known to be unreachable, without waiting for failed calls.
+     * @param device The device.
+     * */
+    public void open(PowerControllerDevice device) {
+        if (enabled) {
+            breakerOf(device).open();
+        }
+    }
+
+    private Breaker breakerOf(PowerControllerDevice device) {
+        String key = keyOf(device);
+        Breaker breaker = breakers.get(key);
+        if (breaker == null || breaker.device != device) {
+            breaker = breakers.compute(key, (k, current) -> current != null && current.device == device ? current : new Breaker(device));
+        }
+        return breaker;
+    }
+
+    private static String keyOf(PowerControllerDevice device) {
+        String id = device.getPowerInfo().getId();
+        return id != null ? id : device.getPowerInfo().getIp();
+    }
+
+    private class Breaker {
+        private final PowerControllerDevice device;
+
+        private volatile State state = State.CLOSED;
+
+        private int failures;
+
+        Breaker(PowerControllerDevice device) {
+            this.device = device;
+        }
+
+        void checkClosed() {
+            if (state != State.CLOSED) {
+                throw new DeviceUnreachableException("Power device " + keyOf(device) + " is unreachable, calls are suspended until it answers again");
+            }
+        }
+
+        synchronized void success() {
+            if (state == State.CLOSED) {
+                failures = 0;
+            }
+        }
+
+        void failure() {
+            synchronized (this) {
+                if (state != State.CLOSED || ++failures < failureThreshold) {
+                    return;
+                }
+            }
+            open();
+        }
+
+        void open() {
+            synchronized (this) {
+                if (state != State.CLOSED) {
+                    return;
+                }
+                state = State.OPEN;
+            }
+            log.warn("Power device {} unreachable, failing calls fast and probing every {} ms", keyOf(device), openMs);
+            device.getPowerInfo().setConnection(DeviceConnectionState.UNREACHABLE);
+            deviceMetrics.recordBreakerTransition(device, State.OPEN.name());
+            scheduleProbe();
+        }
+
+        private void scheduleProbe() {
+            try {
+                prober.schedule(this::probe, openMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Probe of {} not scheduled, shutting down", keyOf(device));
+            }
+        }
+
+        /**
+         * Half-open: only the probe reaches the device, the breaker closes if it answers.
+         */
+        private void probe() {
+            String id = device.getPowerInfo().getId();
+            if (id != null && registry.getById(id) != device) {
+                log.debug("Power device {} was removed or replaced, probe stopped", id);
+                breakers.remove(keyOf(device), this);
+                return;
+            }
+            state = State.HALF_OPEN;
+            boolean answered;
+            try {
+                answered = fanOutExecutor.call(device, d -> {
+                    TransportOutcomes.Mark mark = TransportOutcomes.mark();
+                    try {
+                        d.getOutletStatus(1);
+                    } catch (RuntimeException e) {
+                        log.debug("Probe of {} failed: {}", keyOf(d), e.getMessage());
+                    }
+                    return mark.answered();
+                });
+            } catch (RuntimeException e) {
+                log.debug("Probe of {} not run: {}", keyOf(device), e.getMessage());
+                answered = false;
+            }
+            if (answered) {
+                synchronized (this) {
+                    failures = 0;
+                    state = State.CLOSED;
+                }
+                log.info("Power device {} answers again, breaker closed", keyOf(device));
+                device.getPowerInfo().setConnection(DeviceConnectionState.CONNECTED);
+                deviceMetrics.recordBreakerTransition(device, State.CLOSED.name());
+            } else {
+                state = State.OPEN;
+                scheduleProbe();
+            }
+        }
+    }
+}
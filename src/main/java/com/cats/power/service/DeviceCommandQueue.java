@@ -0,0 +1,261 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.exceptions.DeviceUnreachableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * DeviceCommandQueue serializes the outlet commands of each power device.
+ * Commands are queued per device and sent by a single drain running on the device lane of the
+ * {@link DeviceFanOutExecutor}, so they never overlap with each other nor with rack wide operations on the device.
+ * While the device is busy the queued commands are merged: an ON or OFF replaces a pending ON or OFF of the same
+ * outlet, repeated commands are sent once, and the commands waiting together are sent as one batch per command.
+ * Commands for a device whose {@link DeviceCircuitBreaker} is open fail at once without being queued.
+ * Callers get a future, the request threads do not wait for the driver round trips nor for its settle delays.
+ * */
+@Service
+public class DeviceCommandQueue {
+    private static final Logger log = LoggerFactory.getLogger(DeviceCommandQueue.class);
+
+    /**
+     * Outlet commands, batches of a round are sent in this order.
+     */
+    public enum Command { OFF, ON, TOGGLE }
+
+    @Autowired
+    private DeviceFanOutExecutor fanOutExecutor;
+
+    @Autowired
+    private OutletStatusCache statusCache;
+
+    @Autowired
+    private DeviceMetrics deviceMetrics;
+
+    @Autowired
+    private DeviceCircuitBreaker circuitBreaker;
+
+    private final ConcurrentMap<String, DeviceQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Queue a command on an outlet.
+     * @param device The device.
+     * @param outlet The outlet.
+     * @param command The command.
+     * @return Future completed with true if the command succeeded. A command replaced by a later one before it was
+     * sent completes with the result of the command replacing it.
+     * */
+    public CompletableFuture<Boolean> submit(PowerControllerDevice device, int outlet, Command command) {
+        try {
+            circuitBreaker.checkClosed(device);
+        } catch (DeviceUnreachableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return queueOf(device).add(outlet, command);
+    }
+
+    /**
+     * Queue a command on several outlets of a device.
+     * @param device The device.
+     * @param outlets The outlets.
+     * @param command The command.
+     * @return Future completed with the result per outlet.
+     * */
+    public CompletableFuture<Map<Integer, Boolean>> submitAll(PowerControllerDevice device, Collection<Integer> outlets, Command command) {
+        try {
+            circuitBreaker.checkClosed(device);
+        } catch (DeviceUnreachableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        DeviceQueue queue = queueOf(device);
+        Map<Integer, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+        for (Integer outlet : outlets) {
+            futures.put(outlet, queue.add(outlet, command));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<Integer, Boolean> results = new LinkedHashMap<>();
+            futures.forEach((outlet, future) -> results.put(outlet, future.join()));
+            return results;
+        });
+    }
+
+    private DeviceQueue queueOf(PowerControllerDevice device) {
+        String id = device.getPowerInfo().getId();
+        DeviceQueue queue = queues.get(id);
+        if (queue == null || queue.device != device) {
+            queue = queues.compute(id, (key, current) -> current != null && current.device == device ? current : new DeviceQueue(device));
+        }
+        return queue;
+    }
+
+    private static class Pending {
+        private Command command;
+        private final List<CompletableFuture<Boolean>> futures = new ArrayList<>(1);
+
+        Pending(Command command) {
+            this.command = command;
+        }
+    }
+
+    private class DeviceQueue {
+        private final PowerControllerDevice device;
+
+        /**
+         * Commands not sent yet. Each round holds at most one command per outlet, rounds are sent in order.
+         */
+        private final Deque<Map<Integer, Pending>> rounds = new ArrayDeque<>();
+
+        private boolean draining;
+
+        DeviceQueue(PowerControllerDevice device) {
+            this.device = device;
+        }
+
+        CompletableFuture<Boolean> add(int outlet, Command command) {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            boolean startDrain = false;
+            synchronized (this) {
+                Map<Integer, Pending> round = rounds.peekLast();
+                Pending pending = round == null ? null : round.get(outlet);
+                if (pending != null && canMerge(pending.command, command)) {
+                    if (pending.command != command) {
+                        log.debug("{} outlet {}: {} replaced by {}", device.getPowerInfo().getId(), outlet, pending.command, command);
+                        pending.command = command;
+                    }
+                } else {
+                    if (round == null || pending != null) {
+                        round = new LinkedHashMap<>();
+                        rounds.addLast(round);
+                    }
+                    pending = new Pending(command);
+                    round.put(outlet, pending);
+                }
+                pending.futures.add(future);
+                if (!draining) {
+                    draining = true;
+                    startDrain = true;
+                }
+            }
+            if (startDrain) {
+                fanOutExecutor.submit(device, d -> {
+                    drain();
+                    return null;
+                }).whenComplete((ignored, ex) -> {
+                    if (ex != null) {
+                        failAll(ex);
+                    }
+                });
+            }
+            return future;
+        }
+
+        /**
+         * A reboot is only merged with another reboot, replacing it by ON or OFF would skip the power cycle.
+         */
+        private boolean canMerge(Command pending, Command next) {
+            return (pending == Command.TOGGLE) == (next == Command.TOGGLE);
+        }
+
+        private void drain() {
+            while (true) {
+                Map<Integer, Pending> round;
+                synchronized (this) {
+                    round = rounds.pollFirst();
+                    if (round == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                send(round);
+            }
+        }
+
+        /**
+         * Fail every queued command, used when the drain itself could not run.
+         */
+        private void failAll(Throwable ex) {
+            List<Map<Integer, Pending>> failed;
+            synchronized (this) {
+                failed = new ArrayList<>(rounds);
+                rounds.clear();
+                draining = false;
+            }
+            log.error("Command queue of {} failed: {}", device.getPowerInfo().getId(), ex.getMessage());
+            failed.forEach(round -> round.values().forEach(pending -> pending.futures.forEach(future -> future.completeExceptionally(ex))));
+        }
+
+        private void send(Map<Integer, Pending> round) {
+            Map<Command, List<Integer>> outletsByCommand = new EnumMap<>(Command.class);
+            round.forEach((outlet, pending) -> outletsByCommand.computeIfAbsent(pending.command, key -> new ArrayList<>()).add(outlet));
+            for (Map.Entry<Command, List<Integer>> batch : outletsByCommand.entrySet()) {
+                Map<Integer, Boolean> results;
+                try {
+                    results = sendBatch(batch.getKey(), batch.getValue());
+                } catch (RuntimeException e) {
+                    log.warn("{} {} of outlets {} failed: {}", device.getPowerInfo().getId(), batch.getKey(), batch.getValue(), e.getMessage());
+                    batch.getValue().forEach(outlet -> round.get(outlet).futures.forEach(future -> future.completeExceptionally(e)));
+                    continue;
+                }
+                batch.getValue().forEach(outlet -> {
+                    boolean success = Boolean.TRUE.equals(results.get(outlet));
+                    round.get(outlet).futures.forEach(future -> future.complete(success));
+                });
+            }
+        }
+
+        /**
+         * The cache is invalidated before the futures complete, a caller reading the status once its command is done
+         * must not get the state from before the command.
+         */
+        private Map<Integer, Boolean> sendBatch(Command command, List<Integer> outlets) {
+            try {
+                return circuitBreaker.call(device, () -> timeBatch(command, outlets));
+            } finally {
+                statusCache.invalidate(device);
+            }
+        }
+
+        private Map<Integer, Boolean> timeBatch(Command command, List<Integer> outlets) {
+            switch (command) {
+                case OFF:
+                    return deviceMetrics.timeBatch(device, DeviceMetrics.Operation.OFF, () -> device.powerOffOutlets(outlets));
+                case ON:
+                    return deviceMetrics.timeBatch(device, DeviceMetrics.Operation.ON, () -> device.powerOnOutlets(outlets));
+                default:
+                    return deviceMetrics.timeBatch(device, DeviceMetrics.Operation.TOGGLE, () -> device.powerToggleOutlets(outlets));
+            }
+        }
+    }
+}
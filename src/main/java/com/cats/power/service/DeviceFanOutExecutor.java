@@ -0,0 +1,227 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.model.DeviceOperationResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * DeviceFanOutExecutor runs an operation on several power devices in parallel.
+ * Operations on the same device are serialized in submission order, different devices run concurrently on a
+ * bounded pool. The caller waits up to a deadline and gets one result per device. Every call to a device goes
+ * through its lane, so reads never interleave with the commands sent to the same device.
+ * */
+@Service
+public class DeviceFanOutExecutor {
+    private static final Logger log = LoggerFactory.getLogger(DeviceFanOutExecutor.class);
+
+    /**
+     * Id of the device whose operation the current thread runs.
+     */
+    private static final ThreadLocal<String> LANE = new ThreadLocal<>();
+
+    @Value("${fanout.threads:8}")
+    private int threads = 8;
+
+    @Value("${fanout.deadlineMs:120000}")
+    private long defaultDeadlineMs = 120000;
+
+    @Autowired
+    private DeviceMetrics deviceMetrics;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Last operation queued per device id, the next operation of the device starts after it.
+     */
+    private final ConcurrentMap<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "device-fanout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get the default deadline of a fan-out.
+     * @return the deadline in milliseconds.
+     * */
+    public long getDefaultDeadlineMs() {
+        return defaultDeadlineMs;
+    }
+
+    /**
+     * Queue an operation on a device, it starts once the previous operation of the same device completed.
+     * @param device The device.
+     * @param operation The operation.
+     * @return Future of the operation result.
+     * */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(PowerControllerDevice device, Function<PowerControllerDevice, T> operation) {
+        String id = device.getPowerInfo().getId();
+        CompletableFuture<T> next = (CompletableFuture<T>) tails.compute(id, (key, tail) -> {
+            CompletableFuture<?> previous = tail == null ? CompletableFuture.completedFuture(null) : tail;
+            return previous.handle((ignored, ex) -> null)
+                    .thenApplyAsync(ignored -> runOnLane(id, device, operation), executor);
+        });
+        next.whenComplete((value, ex) -> tails.remove(id, next));
+        // Callers get their own stage, completing it does not affect the device queue.
+        return next.thenApply(Function.identity());
+    }
+
+    /**
+     * Run an operation on a device once the previous operations of the device completed and wait for its result.
+     * Called from an operation of the same device, it runs at once: waiting would never return.
+     * @param device The device.
+     * @param operation The operation.
+     * @return The operation result.
+     * */
+    public <T> T call(PowerControllerDevice device, Function<PowerControllerDevice, T> operation) {
+        String id = device.getPowerInfo().getId();
+        if (id == null || isOnLane(device)) {
+            return operation.apply(device);
+        }
+        try {
+            return submit(device, operation).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param device The device.
+     * @return true if the current thread runs an operation of the device.
+     * */
+    public boolean isOnLane(PowerControllerDevice device) {
+        String id = device.getPowerInfo().getId();
+        return id != null && id.equals(LANE.get());
+    }
+
+    private static <T> T runOnLane(String id, PowerControllerDevice device, Function<PowerControllerDevice, T> operation) {
+        String previous = LANE.get();
+        LANE.set(id);
+        try {
+            return operation.apply(device);
+        } finally {
+            if (previous == null) {
+                LANE.remove();
+            } else {
+                LANE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Run an operation on every device in parallel and wait for the results with the default deadline.
+     * @param devices The devices.
+     * @param operation The operation.
+     * @return Result per device id, in the order of the devices.
+     * */
+    public <T> Map<String, DeviceOperationResult<T>> forEachDevice(Collection<PowerControllerDevice> devices,
+                                                                    Function<PowerControllerDevice, T> operation) {
+        return forEachDevice(devices, operation, defaultDeadlineMs);
+    }
+
+    /**
+     * Run an operation on every device in parallel and wait for the results.
+     * Operations still running at the deadline are reported as timed out, they are not interrupted.
+     * @param devices The devices.
+     * @param operation The operation.
+     * @param deadlineMs Time to wait for all devices.
+     * @return Result per device id, in the order of the devices.
+     * */
+    public <T> Map<String, DeviceOperationResult<T>> forEachDevice(Collection<PowerControllerDevice> devices,
+                                                                    Function<PowerControllerDevice, T> operation,
+                                                                    long deadlineMs) {
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        Map<String, Long> durations = new ConcurrentHashMap<>();
+        Map<String, PowerControllerDevice> devicesById = new LinkedHashMap<>();
+        for (PowerControllerDevice device : devices) {
+            String id = device.getPowerInfo().getId();
+            devicesById.put(id, device);
+            futures.put(id, submit(device, d -> {
+                long operationStart = System.nanoTime();
+                try {
+                    return operation.apply(d);
+                } finally {
+                    durations.put(id, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - operationStart));
+                }
+            }));
+        }
+
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        Map<String, DeviceOperationResult<T>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<T>> entry : futures.entrySet()) {
+            DeviceOperationResult<T> result = new DeviceOperationResult<>();
+            result.setDeviceId(entry.getKey());
+            try {
+                result.setValue(entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                deviceMetrics.recordTimeout(devicesById.get(entry.getKey()), "fanout");
+                result.setTimedOut(true);
+                result.setError("Device did not complete within " + deadlineMs + " ms");
+            } catch (ExecutionException e) {
+                result.setError(e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.setError("Interrupted");
+            }
+            result.setDurationMs(durations.getOrDefault(entry.getKey(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            results.put(entry.getKey(), result);
+        }
+        log.info("Fan-out over {} devices completed in {} ms", futures.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return results;
+    }
+}
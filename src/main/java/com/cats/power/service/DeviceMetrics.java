@@ -0,0 +1,216 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * DeviceMetrics records the duration and outcome of every power device command in Micrometer.
+ * Timers are tagged with the device id, the device type, the operation and the outcome and publish a percentile
+ * histogram, so p99 can be compared per device model. The meters of a device are looked up once and kept, recording
+ * on the command path is an array lookup and a timer update, counting a timeout, retry or breaker change is a map
+ * lookup.
+ * */
+@Component
+public class DeviceMetrics {
+
+    public static final String COMMAND_TIMER = "powerms.device.command";
+    public static final String TIMEOUT_COUNTER = "powerms.device.timeouts";
+    public static final String RETRY_COUNTER = "powerms.device.retries";
+    public static final String BREAKER_COUNTER = "powerms.device.breaker";
+    public static final String TRANSPORT_TIMEOUT_COUNTER = "powerms.transport.timeouts";
+
+    public enum Operation { ON, OFF, TOGGLE, STATUS }
+
+    public enum Outcome { SUCCESS, FAILURE, ERROR }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${metrics.device.maxExpectedMs:30000}")
+    private long maxExpectedMs;
+
+    private final ConcurrentMap<String, DeviceMeters> meters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Counter> transportTimeouts = new ConcurrentHashMap<>();
+
+    /**
+     * Record a device command.
+     * @param device The device.
+     * @param operation The operation.
+     * @param outcome SUCCESS, FAILURE if the device reported a failure, ERROR if the command threw.
+     * @param durationNanos Duration of the command.
+     * */
+    public void recordCommand(PowerControllerDevice device, Operation operation, Outcome outcome, long durationNanos) {
+        metersOf(device).timer(operation, outcome).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Run and record a device command.
+     * @param device The device.
+     * @param operation The operation.
+     * @param command The command, true on success.
+     * @return The command result.
+     * */
+    public Boolean timeCommand(PowerControllerDevice device, Operation operation, Supplier<Boolean> command) {
+        return time(device, operation, command, Boolean.TRUE::equals);
+    }
+
+    /**
+     * Run and record a command on several outlets of a device, it succeeds if every outlet succeeded.
+     * @param device The device.
+     * @param operation The operation.
+     * @param command The command, result per outlet.
+     * @return The command result.
+     * */
+    public Map<Integer, Boolean> timeBatch(PowerControllerDevice device, Operation operation, Supplier<Map<Integer, Boolean>> command) {
+        return time(device, operation, command, results -> results != null && !results.containsValue(false) && !results.containsValue(null));
+    }
+
+    private <T> T time(PowerControllerDevice device, Operation operation, Supplier<T> command, Predicate<T> success) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            T result = command.get();
+            outcome = success.test(result) ? Outcome.SUCCESS : Outcome.FAILURE;
+            return result;
+        } finally {
+            recordCommand(device, operation, outcome, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Count a device operation that did not complete in time.
+     * @param device The device.
+     * @param operation The operation, as tagged.
+     * */
+    public void recordTimeout(PowerControllerDevice device, String operation) {
+        metersOf(device).counter(TIMEOUT_COUNTER, "operation", operation).increment();
+    }
+
+    /**
+     * Count a request to a device host that timed out in the transport, the device behind the host is not known there.
+     * @param protocol http or snmp.
+     * @param host The device host.
+     * */
+    public void recordTransportTimeout(String protocol, String host) {
+        transportTimeouts.computeIfAbsent(protocol + "|" + host, key -> Counter.builder(TRANSPORT_TIMEOUT_COUNTER)
+                .tag("host", host).tag("protocol", protocol)
+                .register(registry)).increment();
+    }
+
+    /**
+     * Count a request sent again because the previous attempt could not be used.
+     * @param device The device.
+     * @param operation The operation, as tagged.
+     * */
+    public void recordRetry(PowerControllerDevice device, String operation) {
+        metersOf(device).counter(RETRY_COUNTER, "operation", operation).increment();
+    }
+
+    /**
+     * Count a state change of the circuit breaker of a device.
+     * @param device The device.
+     * @param state The new breaker state, as tagged.
+     * */
+    public void recordBreakerTransition(PowerControllerDevice device, String state) {
+        metersOf(device).counter(BREAKER_COUNTER, "state", state.toLowerCase(Locale.ROOT)).increment();
+    }
+
+    private DeviceMeters metersOf(PowerControllerDevice device) {
+        String id = device.getPowerInfo().getId();
+        String key = id != null ? id : device.getPowerInfo().getIp();
+        DeviceMeters deviceMeters = meters.get(key);
+        if (deviceMeters == null) {
+            deviceMeters = meters.computeIfAbsent(key, k -> new DeviceMeters(k, typeOf(device)));
+        }
+        return deviceMeters;
+    }
+
+    private static String typeOf(PowerControllerDevice device) {
+        String scheme = device.getPowerInfo().getType() != null ? device.getPowerInfo().getType() : device.getPowerInfo().getScheme();
+        PowerDeviceType type = PowerDeviceType.findType(scheme);
+        if (type != null) {
+            return type.name();
+        }
+        return scheme != null ? scheme : device.getClass().getSimpleName();
+    }
+
+    private class DeviceMeters {
+        private final String id;
+        private final String type;
+        private final Timer[] timers = new Timer[OPERATIONS.length * OUTCOMES.length];
+        private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+        DeviceMeters(String id, String type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        Timer timer(Operation operation, Outcome outcome) {
+            int index = operation.ordinal() * OUTCOMES.length + outcome.ordinal();
+            Timer timer = timers[index];
+            if (timer == null) {
+                // Benign race, the registry returns the same timer for the same tags.
+                timer = Timer.builder(COMMAND_TIMER)
+                        .tag("device", id).tag("type", type)
+                        .tag("operation", tagOf(operation)).tag("outcome", tagOf(outcome))
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .publishPercentileHistogram()
+                        .maximumExpectedValue(Duration.ofMillis(maxExpectedMs))
+                        .register(registry);
+                timers[index] = timer;
+            }
+            return timer;
+        }
+
+        Counter counter(String name, String tag, String value) {
+            String key = name + "|" + value;
+            Counter counter = counters.get(key);
+            if (counter == null) {
+                counter = counters.computeIfAbsent(key, k -> Counter.builder(name)
+                        .tag("device", id).tag("type", type).tag(tag, value)
+                        .register(registry));
+            }
+            return counter;
+        }
+    }
+
+    private static String tagOf(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
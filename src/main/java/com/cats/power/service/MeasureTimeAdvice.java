@@ -26,11 +26,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StopWatch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 @Aspect
 @Component
@@ -42,22 +46,34 @@ public class MeasureTimeAdvice {
     @Autowired
     private HttpServletResponse httpServletResponse;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Timer per measured method, tagged by method name.
+     */
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
     @Around("@annotation(com.cats.power.service.MeasureTime)")
     public Object measureTime(ProceedingJoinPoint point) throws Throwable {
-        StopWatch stopWatch = new StopWatch();
         Instant  startTime = Instant.now();
-        stopWatch.start();
+        long start = System.nanoTime();
         Object object = point.proceed();
-        stopWatch.stop();
+        long durationNanos = System.nanoTime() - start;
+        String method = point.getSignature().getName();
+        timers.computeIfAbsent(method, name -> Timer.builder("powerms.hw.request")
+                .tag("method", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)).record(durationNanos, TimeUnit.NANOSECONDS);
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
         try {
             httpServletResponse.setHeader("HW-Command-Request-Time", String.valueOf(startTime));
             httpServletResponse.setHeader("HW-Command-Response-Time", String.valueOf(Instant.now()));
-            httpServletResponse.setHeader("HW-Command-Duration-Ms", String.valueOf(stopWatch.getTotalTimeMillis()));
+            httpServletResponse.setHeader("HW-Command-Duration-Ms", String.valueOf(durationMs));
         }catch(IllegalStateException e){
             // not a request with a servlet response. Maybe an internal call. ignore and move on.
         }
-        log.info("Time take by " + point.getSignature().getName() + "() method is "
-                + stopWatch.getTotalTimeMillis() + " ms");
+        log.debug("Time take by {}() method is {} ms", method, durationMs);
         return object;
     }
 }
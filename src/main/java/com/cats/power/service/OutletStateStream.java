@@ -0,0 +1,262 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
+import com.cats.power.model.OutletStateEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OutletStateStream pushes outlet status changes to subscribed clients as Server-Sent Events.
+ * Every device is attached to the stream when it is built: each change of its outlet state table, from a status
+ * read, a command or the startup read, is compared with the last state published and becomes an event with a
+ * sequence number. Recent events are kept so that a client
+ * reconnecting with its Last-Event-ID gets what it missed, a client too far behind or new gets a snapshot of
+ * all outlets first. Nothing here reads the devices.
+ * */
+@Service
+public class OutletStateStream {
+    private static final Logger log = LoggerFactory.getLogger(OutletStateStream.class);
+
+    @Value("${stream.historySize:1000}")
+    private int historySize;
+
+    @Value("${stream.timeoutMs:1800000}")
+    private long timeoutMs;
+
+    @Value("${stream.heartbeatMs:15000}")
+    private long heartbeatMs;
+
+    @Autowired
+    private PowerDeviceRegistry registry;
+
+    private final Object lock = new Object();
+
+    /**
+     * Recent events, oldest first. Guarded by lock.
+     */
+    private final ArrayDeque<OutletStateEvent> history = new ArrayDeque<>();
+
+    /**
+     * Last published state per device id, indexed by outlet number. Guarded by lock.
+     */
+    private final Map<String, OutletState[]> published = new HashMap<>();
+
+    private long sequence;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Sends to the clients in publish order, off the threads updating the devices.
+     */
+    private ScheduledExecutorService dispatcher;
+
+    @PostConstruct
+    public void init() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outlet-state-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (heartbeatMs > 0) {
+            dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Publish the status changes of a device from now on, whatever updated the status.
+     * @param device The device, attached once when it is built.
+     * */
+    public void attach(PowerControllerDevice device) {
+        device.getPowerInfo().setOutletStateListener((outlet, state) -> publish(device, outlet, state));
+    }
+
+    private void publish(PowerControllerDevice device, int outlet, OutletState state) {
+        String id = device.getPowerInfo().getId();
+        if (id == null || outlet < 0) {
+            return;
+        }
+        synchronized (lock) {
+            OutletState[] last = published.getOrDefault(id, new OutletState[0]);
+            OutletState previous = outlet < last.length ? last[outlet] : null;
+            // Outlets are UNKNOWN until first read, and a replaced device only publishes what differs from the old one.
+            if (previous == state || previous == null && state == OutletState.UNKNOWN) {
+                return;
+            }
+            if (outlet >= last.length) {
+                last = Arrays.copyOf(last, outlet + 1);
+                published.put(id, last);
+            }
+            last[outlet] = state;
+            OutletInfo outletInfo = device.getPowerInfo().findOutlet(outlet);
+            OutletStateEvent event = toEvent(id, outlet, outletInfo != null ? outletInfo.getSlot() : null, state.name(),
+                    System.currentTimeMillis());
+            event.setSequence(++sequence);
+            history.addLast(event);
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+            log.debug("Publishing outlet {} of {}: {}", outlet, id, state);
+            dispatcher.execute(() -> broadcast(List.of(event)));
+        }
+    }
+
+    /**
+     * Subscribe to the stream.
+     * @param lastEventId Sequence of the last event the client got, null for a new client.
+     * @return The emitter, it first sends the missed events, or a snapshot of all outlets if they cannot be replayed.
+     * */
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        synchronized (lock) {
+            List<OutletStateEvent> replay = replaySince(lastEventId);
+            List<OutletStateEvent> snapshot = replay == null ? snapshot() : null;
+            Subscriber subscriber = new Subscriber(emitter, sequence);
+            emitter.onCompletion(() -> subscribers.remove(subscriber));
+            emitter.onTimeout(() -> subscribers.remove(subscriber));
+            emitter.onError(ex -> subscribers.remove(subscriber));
+            subscribers.add(subscriber);
+            dispatcher.execute(() -> {
+                if (snapshot != null) {
+                    send(subscriber, SseEmitter.event().id(String.valueOf(subscriber.from)).name("snapshot")
+                            .data(snapshot, MediaType.APPLICATION_JSON));
+                } else {
+                    replay.forEach(event -> send(subscriber, toSse(event)));
+                }
+            });
+        }
+        return emitter;
+    }
+
+    /**
+     * Events after a sequence, null if some of them are no longer kept.
+     */
+    private List<OutletStateEvent> replaySince(Long lastEventId) {
+        if (lastEventId == null || lastEventId > sequence) {
+            return null;
+        }
+        if (lastEventId < sequence && (history.isEmpty() || history.peekFirst().getSequence() > lastEventId + 1)) {
+            return null;
+        }
+        List<OutletStateEvent> replay = new ArrayList<>();
+        for (OutletStateEvent event : history) {
+            if (event.getSequence() > lastEventId) {
+                replay.add(event);
+            }
+        }
+        return replay;
+    }
+
+    private List<OutletStateEvent> snapshot() {
+        long now = System.currentTimeMillis();
+        List<OutletStateEvent> snapshot = new ArrayList<>();
+        for (PowerControllerDevice device : registry.snapshot()) {
+            for (OutletInfo outlet : device.getPowerInfo().getOutlets()) {
+                OutletStateEvent event = toEvent(device.getPowerInfo().getId(), outlet.getOutlet(), outlet.getSlot(),
+                        outlet.getStatus(), now);
+                event.setSequence(sequence);
+                snapshot.add(event);
+            }
+        }
+        return snapshot;
+    }
+
+    private OutletStateEvent toEvent(String deviceId, int outlet, String slot, String status, long timestamp) {
+        OutletStateEvent event = new OutletStateEvent();
+        event.setDeviceId(deviceId);
+        event.setOutlet(outlet);
+        event.setSlot(slot);
+        event.setStatus(status);
+        event.setTimestamp(timestamp);
+        return event;
+    }
+
+    private SseEmitter.SseEventBuilder toSse(OutletStateEvent event) {
+        return SseEmitter.event().id(String.valueOf(event.getSequence())).name("outlet").data(event, MediaType.APPLICATION_JSON);
+    }
+
+    private void broadcast(List<OutletStateEvent> events) {
+        for (Subscriber subscriber : subscribers) {
+            for (OutletStateEvent event : events) {
+                // Events published before the client subscribed are in its snapshot or replay.
+                if (event.getSequence() > subscriber.from && !send(subscriber, toSse(event))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void heartbeat() {
+        subscribers.forEach(subscriber -> send(subscriber, SseEmitter.event().comment("keepalive")));
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException ex) {
+            log.debug("Dropping outlet state subscriber: {}", ex.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(ex);
+            return false;
+        }
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+
+        /**
+         * Sequence the client is up to date with when it subscribed.
+         */
+        private final long from;
+
+        Subscriber(SseEmitter emitter, long from) {
+            this.emitter = emitter;
+            this.from = from;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.model.OutletInfo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OutletStatusCache serves outlet status from the device PowerInfo as long as it is younger than the requested age.
+ * A background poller per device keeps the status fresh, pollers are staggered over the poll interval so the
+ * devices are not all read at the same time. Reads of the same device are coalesced, a device has at most one
+ * status read in flight. Reads run on the device lane of the {@link DeviceFanOutExecutor}, after the commands queued
+ * before them, and go through the {@link DeviceCircuitBreaker}, devices with an open breaker are not polled.
+ * */
+@Service
+public class OutletStatusCache {
+    private static final Logger log = LoggerFactory.getLogger(OutletStatusCache.class);
+
+    @Value("${outlet.cache.ttlMs:5000}")
+    private long ttlMs;
+
+    @Value("${outlet.cache.pollIntervalMs:10000}")
+    private long pollIntervalMs;
+
+    @Value("${outlet.cache.pollerThreads:2}")
+    private int pollerThreads;
+
+    @Autowired
+    private PowerDeviceRegistry registry;
+
+    @Autowired
+    private DeviceMetrics deviceMetrics;
+
+    @Autowired
+    private DeviceCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private DeviceFanOutExecutor fanOutExecutor;
+
+    /**
+     * Freshness of the status per device id. Replaced atomically, so a read that started before an invalidation can
+     * never mark its result fresh afterwards.
+     */
+    private final ConcurrentMap<String, Freshness> freshness = new ConcurrentHashMap<>();
+
+    /**
+     * Status read in flight per device id.
+     */
+    private final ConcurrentMap<String, Read> inFlight = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ScheduledFuture<?>> pollers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Get the default max age of a status answered from memory.
+     * @return the TTL in milliseconds.
+     * */
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    /**
+     * Get the outlet status of a device, reading the device only if the cached status is older than maxAgeMs.
+     * @param device The device.
+     * @param maxAgeMs Max age of the cached status, 0 forces a read.
+     * @return the outlets of the device.
+     * */
+    public List<OutletInfo> getOutlets(PowerControllerDevice device, long maxAgeMs) {
+        String id = device.getPowerInfo().getId();
+        Freshness current = id == null ? null : freshness.get(id);
+        if (current != null && current.isFresh(TimeUnit.MILLISECONDS.toNanos(maxAgeMs))) {
+            return device.getPowerInfo().getOutlets();
+        }
+        return refresh(device);
+    }
+
+    /**
+     * Read the outlet status from the device. Concurrent callers for the same device share the read in flight
+     * and its result instead of querying the device again, unless the device was invalidated since that read
+     * started: the caller then reads again once it is done, so the newer answer is the one kept.
+     * @param device The device.
+     * @return the outlets of the device.
+     * */
+    public List<OutletInfo> refresh(PowerControllerDevice device) {
+        String id = device.getPowerInfo().getId();
+        if (id == null) {
+            return device.retrieveOutletStatus();
+        }
+        long generation = generationOf(id);
+        if (fanOutExecutor.isOnLane(device)) {
+            // Reads of other callers are queued behind this operation, joining them would never return.
+            return read(device, generation);
+        }
+        Read read = new Read(generation);
+        Read previous;
+        while (true) {
+            previous = inFlight.get(id);
+            if (previous != null && previous.generation >= generation) {
+                log.debug("Joining status read in flight for {}", id);
+                return await(previous.result);
+            }
+            if (previous == null ? inFlight.putIfAbsent(id, read) == null : inFlight.replace(id, previous, read)) {
+                break;
+            }
+        }
+        try {
+            if (previous != null) {
+                log.debug("Status read in flight for {} predates an invalidation, reading again after it", id);
+                previous.result.handle((outlets, ex) -> null).join();
+            }
+            List<OutletInfo> outlets = read(device, generation);
+            read.result.complete(outlets);
+            return outlets;
+        } catch (RuntimeException e) {
+            read.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, read);
+        }
+    }
+
+    private List<OutletInfo> read(PowerControllerDevice device, long generation) {
+        String id = device.getPowerInfo().getId();
+        return fanOutExecutor.call(device, d -> {
+            long start = System.nanoTime();
+            List<OutletInfo> outlets = circuitBreaker.call(d, () -> retrieveOutletStatus(d, start));
+            // A command sent while reading invalidated the device, what was read may predate it.
+            freshness.compute(id, (key, last) -> generationOf(last) == generation ? new Freshness(generation, start) : last);
+            return outlets;
+        });
+    }
+
+    private List<OutletInfo> retrieveOutletStatus(PowerControllerDevice device, long start) {
+        List<OutletInfo> outlets;
+        try {
+            outlets = device.retrieveOutletStatus();
+        } catch (RuntimeException e) {
+            deviceMetrics.recordCommand(device, DeviceMetrics.Operation.STATUS, DeviceMetrics.Outcome.ERROR, System.nanoTime() - start);
+            throw e;
+        }
+        deviceMetrics.recordCommand(device, DeviceMetrics.Operation.STATUS, DeviceMetrics.Outcome.SUCCESS, System.nanoTime() - start);
+        return outlets;
+    }
+
+    private List<OutletInfo> await(CompletableFuture<List<OutletInfo>> read) {
+        try {
+            return read.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Mark the cached status of a device as stale, the next read goes to the device.
+     * @param device The device.
+     * */
+    public void invalidate(PowerControllerDevice device) {
+        if (device.getPowerInfo().getId() != null) {
+            freshness.compute(device.getPowerInfo().getId(), (key, last) -> new Freshness(generationOf(last) + 1, null));
+        }
+    }
+
+    private long generationOf(String id) {
+        return generationOf(freshness.get(id));
+    }
+
+    private static long generationOf(Freshness freshness) {
+        return freshness == null ? 0 : freshness.generation;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPollers() {
+        if (pollIntervalMs <= 0) {
+            log.info("Outlet status poller disabled");
+            return;
+        }
+        scheduler = Executors.newScheduledThreadPool(pollerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "outlet-status-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::syncPollers, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopPollers() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Start a poller for every new device and stop the pollers of removed devices.
+     */
+    void syncPollers() {
+        List<PowerControllerDevice> devices = registry.snapshot();
+        Set<String> ids = new HashSet<>();
+        int index = 0;
+        for (PowerControllerDevice device : devices) {
+            String id = device.getPowerInfo().getId();
+            if (id == null) {
+                continue;
+            }
+            ids.add(id);
+            long initialDelay = pollIntervalMs * index++ / Math.max(devices.size(), 1);
+            pollers.computeIfAbsent(id, key -> scheduler.scheduleWithFixedDelay(() -> poll(key),
+                    initialDelay, pollIntervalMs, TimeUnit.MILLISECONDS));
+        }
+        pollers.entrySet().removeIf(entry -> {
+            if (!ids.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+                freshness.remove(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void poll(String id) {
+        PowerControllerDevice device = registry.getById(id);
+        if (device == null || circuitBreaker.isOpen(device)) {
+            // The breaker probes a device that stopped answering.
+            return;
+        }
+        try {
+            // Skips the read if a request refreshed the device within the TTL.
+            getOutlets(device, ttlMs);
+        } catch (Exception e) {
+            log.warn("Could not poll outlet status of {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Invalidation generation of a device and the time of the last read made within it.
+     */
+    private static final class Freshness {
+        private final long generation;
+
+        /**
+         * Start of the read, in System.nanoTime, null if nothing was read since the last invalidation.
+         */
+        private final Long refreshedAt;
+
+        Freshness(long generation, Long refreshedAt) {
+            this.generation = generation;
+            this.refreshedAt = refreshedAt;
+        }
+
+        boolean isFresh(long maxAgeNanos) {
+            return refreshedAt != null && System.nanoTime() - refreshedAt <= maxAgeNanos;
+        }
+    }
+
+    /**
+     * A status read and the invalidation generation it started under.
+     */
+    private static final class Read {
+        private final long generation;
+
+        private final CompletableFuture<List<OutletInfo>> result = new CompletableFuture<>();
+
+        Read(long generation) {
+            this.generation = generation;
+        }
+    }
+}
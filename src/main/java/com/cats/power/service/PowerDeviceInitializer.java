@@ -0,0 +1,185 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.model.DeviceConnectionState;
+import com.cats.power.model.PowerDevice;
+import com.cats.power.utils.TransportOutcomes;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * PowerDeviceInitializer builds the configured power devices and reads their initial status in parallel.
+ * Startup waits for the devices up to a budget: a device whose status read is still running is left CONNECTING
+ * and completes in the background, so one unreachable device does not hold the others or the application.
+ * */
+@Service
+public class PowerDeviceInitializer {
+    private static final Logger log = LoggerFactory.getLogger(PowerDeviceInitializer.class);
+
+    @Value("${devices.init.threads:8}")
+    private int threads;
+
+    @Value("${devices.init.budgetMs:10000}")
+    private long budgetMs;
+
+    @Autowired
+    private DeviceMetrics deviceMetrics;
+
+    @Autowired
+    private DeviceCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private DeviceFanOutExecutor fanOutExecutor;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "device-init");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Build the devices in parallel and start their initial status read, waiting up to the startup budget.
+     * A device built after the budget is handed to lateDevice once built, with the configuration it was built from.
+     * @param configured The configured devices.
+     * @param builder Builds a device, without reading its status.
+     * @param lateDevice Receives the devices built after the budget.
+     * @return The devices built within the budget, in configuration order.
+     * */
+    public List<PowerControllerDevice> initialize(List<PowerDevice> configured,
+                                                  Function<PowerDevice, PowerControllerDevice> builder,
+                                                  BiConsumer<PowerDevice, PowerControllerDevice> lateDevice) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        List<CompletableFuture<PowerControllerDevice>> builds = new ArrayList<>();
+        List<CompletableFuture<PowerControllerDevice>> reads = new ArrayList<>();
+        for (PowerDevice powerDevice : configured) {
+            CompletableFuture<PowerControllerDevice> build = CompletableFuture.supplyAsync(() -> {
+                PowerControllerDevice device = builder.apply(powerDevice);
+                device.getPowerInfo().setConnection(DeviceConnectionState.CONNECTING);
+                return device;
+            }, executor);
+            builds.add(build);
+            reads.add(build.thenApplyAsync(device -> {
+                readStatus(device);
+                return device;
+            }, executor));
+        }
+
+        List<PowerControllerDevice> devices = new ArrayList<>();
+        for (int i = 0; i < builds.size(); i++) {
+            CompletableFuture<PowerControllerDevice> build = builds.get(i);
+            try {
+                devices.add(build.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                log.warn("Device {} not built within {} ms, it is added when ready", configured.get(i).getDeviceId(), budgetMs);
+                whenBuilt(configured.get(i), build, lateDevice);
+            } catch (ExecutionException e) {
+                log.error("Could not build device {}: {}", configured.get(i).getDeviceId(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                whenBuilt(configured.get(i), build, lateDevice);
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            devices.stream()
+                    .filter(device -> device.getPowerInfo().getConnection() == DeviceConnectionState.CONNECTING)
+                    .forEach(device -> {
+                        deviceMetrics.recordTimeout(device, "init");
+                        log.warn("Device {} still connecting after {} ms, its status is read in the background",
+                                device.getPowerInfo().getId(), budgetMs);
+                    });
+        } catch (ExecutionException e) {
+            // Status reads handle their own failures, only a failed build ends up here and was logged above.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Initialized {} of {} devices in {} ms", devices.size(), configured.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return devices;
+    }
+
+    private void whenBuilt(PowerDevice powerDevice, CompletableFuture<PowerControllerDevice> build,
+                           BiConsumer<PowerDevice, PowerControllerDevice> lateDevice) {
+        build.whenComplete((device, ex) -> {
+            if (ex != null) {
+                log.error("Could not build device {}: {}", powerDevice.getDeviceId(), ex.getMessage());
+            } else {
+                lateDevice.accept(powerDevice, device);
+            }
+        });
+    }
+
+    /**
+     * Read the status of every outlet of a device and set its connection state from the result.
+     * @param device The device.
+     * */
+    public void readStatus(PowerControllerDevice device) {
+        long start = System.nanoTime();
+        // On the device lane, a device replacing one with the same id waits for the commands sent to the old one.
+        DeviceConnectionState connection = fanOutExecutor.call(device, d -> {
+            TransportOutcomes.Mark mark = TransportOutcomes.mark();
+            try {
+                d.retrieveOutletStatus();
+            } catch (Exception e) {
+                log.error("Could not retrieve the device status: " + e.getMessage());
+            }
+            d.getPowerInfo().setConnection(mark.answered() ? DeviceConnectionState.CONNECTED : DeviceConnectionState.UNREACHABLE);
+            if (mark.unreachable()) {
+                // Calls fail fast from the start, the breaker probes the device until it answers.
+                circuitBreaker.open(d);
+            }
+            return d.getPowerInfo().getConnection();
+        });
+        log.info("Device {} {} after {} ms", device.getPowerInfo().getId(), connection,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
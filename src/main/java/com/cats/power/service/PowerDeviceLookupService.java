@@ -24,18 +24,19 @@ import com.cats.power.exceptions.SlotMappingException;
 import com.cats.power.model.OutletInfo;
 import com.cats.power.utils.PowerOutletController;
 import com.cats.power.utils.PowerOutletFactory;
+import com.cats.power.utils.SlotMappingStore;
 import com.cats.power.utils.SlotToPortMappings;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 
 import jakarta.ws.rs.BadRequestException;
 import org.slf4j.Logger;
@@ -47,9 +48,9 @@ import org.springframework.stereotype.Service;
 public class PowerDeviceLookupService {
     private static final Logger log = LoggerFactory.getLogger(PowerDeviceLookupService.class);
     /**
-     * List of power devices configured.
+     * Slot mappings, persisted to the mappings file.
      */
-    private SlotToPortMappings slotToPortMappings;
+    private SlotMappingStore mappingStore;
     @Autowired
     private PowerOutletFactory factory;
     @Autowired
@@ -57,7 +58,15 @@ public class PowerDeviceLookupService {
     private final ObjectMapper mapper = new ObjectMapper();
     @Autowired
     private PowerConfiguration pconfig;
+    @Autowired
+    private OutletStatusCache statusCache;
+    @Autowired
+    private DeviceFanOutExecutor fanOutExecutor;
     private String MAPPING_FILEPATH = "";
+    /**
+     * Precomputed slot resolution, replaced whenever the mappings change.
+     */
+    private volatile SlotIndex slotIndex = SlotIndex.EMPTY;
 
     @Autowired
     public PowerDeviceLookupService(PowerOutletFactory factory, PowerDeviceManager deviceManager, PowerConfiguration pconfig) {
@@ -65,6 +74,7 @@ public class PowerDeviceLookupService {
         this.deviceManager = deviceManager;
         this.pconfig = pconfig;
         initializePortMapping();
+        watchDevices();
     }
 
     public PowerDeviceLookupService(PowerOutletFactory factory, PowerDeviceManager deviceManager, String filePath) {
@@ -72,47 +82,160 @@ public class PowerDeviceLookupService {
         this.deviceManager = deviceManager;
         this.MAPPING_FILEPATH = filePath;
         initializePortMapping();
+        watchDevices();
+    }
+
+    /**
+     * Show the slots on the devices added in the background, such as devices built after the startup budget.
+     */
+    private void watchDevices() {
+        deviceManager.addDeviceSetListener(this::refreshDeviceMappings);
+        // A device may have been added while the mappings were applied, before the listener was there.
+        if (!slotIndex.isBuiltFrom(deviceManager.getAllPowerDevices())) {
+            refreshDeviceMappings();
+        }
     }
 
-    private void initializePortMapping() {
+    private synchronized void initializePortMapping() {
+        MAPPING_FILEPATH = pconfig.getSlotMappingFilePath();
+        mappingStore = new SlotMappingStore(Paths.get(MAPPING_FILEPATH));
+        try {
+            mappingStore.load();
+        } catch (IOException ex) {
+            log.error("Could not process slot mappings file, using default values: " + ex.getLocalizedMessage());
+        }
+        applyMappings();
+        rebuildSlotIndex();
+    }
+
+    /**
+     * Rebuild the slot index from the current mappings and publish it.
+     * Holds the lock of the mapping changes, so an index built from older mappings never replaces a newer one.
+     */
+    private synchronized SlotIndex rebuildSlotIndex() {
+        slotIndex = SlotIndex.build(mappingStore.snapshot(), deviceManager.getAllPowerDevices(), factory);
+        return slotIndex;
+    }
+
+    /**
+     * Get the slot index, rebuilt first if the devices changed since it was built.
+     */
+    private SlotIndex currentSlotIndex() {
+        SlotIndex index = slotIndex;
+        if (!index.isBuiltFrom(deviceManager.getAllPowerDevices())) {
+            synchronized (this) {
+                index = slotIndex;
+                if (!index.isBuiltFrom(deviceManager.getAllPowerDevices())) {
+                    index = rebuildSlotIndex();
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Set the slot of every outlet from the mappings held in memory.
+     */
+    private void applyMappings() {
         deviceManager.getAllPowerDevices().stream().forEach(device -> {
             device.getPowerInfo().getOutlets().forEach(outlet -> {
                 outlet.setSlot(null);
             });
         });
-        try {
-            MAPPING_FILEPATH = pconfig.getSlotMappingFilePath();
-            FileInputStream in = new FileInputStream(new File(MAPPING_FILEPATH));
-            slotToPortMappings = mapper.readValue(in, SlotToPortMappings.class);
-            if (slotToPortMappings.getMappings().isEmpty()) {
+        Map<String, String> mappings = mappingStore.snapshot();
+        if (mappings.isEmpty()) {
+            setDefaultMappings();
+            return;
+        }
+        if (!mappings.values().stream().allMatch(this::isValidMapping)) {
+            log.error("Incompatible slot mapping found, reverting to defaults");
+            try {
+                removeMappings();
+            } catch (IOException ex) {
+                log.error("Could not update slot mappings: " + ex.getLocalizedMessage());
                 setDefaultMappings();
-                return;
             }
-            slotToPortMappings.getMappings().entrySet().forEach(kv -> {
-                if (!isValidMapping(kv.getValue())) {
-                    try {
-                        log.error("Incompatible slot mapping found, reverting to defaults");
-                        removeMappings();
-                        setDefaultMappings();
-                        return;
-                    } catch (IOException ex) {
-                    }
+            return;
+        }
+        mappings.forEach((slot, deviceInfo) -> {
+            if (!deviceInfo.equals("N/A")) {
+                log.info("Custom mapping: " + deviceInfo + " slot: " + slot);
+                assignSlot(slot, deviceInfo);
+            }
+        });
+        log.info("Setting remaining slots to default ports");
+        try {
+            setRemainingMappings();
+        } catch (IOException ex) {
+            log.error("Could not update slot mappings: " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Show the slots on the outlets of the current devices after the configured devices changed.
+     * Only outlets whose slot differs are updated, the outlets of unchanged devices keep their slots throughout.
+     * Mappings to a device no longer configured stay in the mappings file and are skipped until it is back.
+     */
+    public synchronized void refreshDeviceMappings() {
+        Map<OutletInfo, String> slots = new IdentityHashMap<>();
+        Map<String, String> mappings = mappingStore.snapshot();
+        if (mappings.isEmpty()) {
+            int slot = 1;
+            for (PowerControllerDevice device : deviceManager.getAllPowerDevices()) {
+                for (OutletInfo outlet : device.getPowerInfo().getOutlets()) {
+                    slots.put(outlet, String.valueOf(slot++));
                 }
-                String slot = kv.getKey();
-                if (!kv.getValue().equals("N/A")) {
-                    String[] deviceAndPort = kv.getValue().split(":");
-                    String device = deviceAndPort[0];
-                    int outlet = Integer.parseInt(deviceAndPort[1]);
-                    log.info("Custom mapping: device: " + device + " outlet: " + outlet + " slot: " + slot);
-                    deviceManager.getPowerControllerDeviceById(device).getPowerInfo().getOutlet(outlet).setSlot(slot);
+            }
+        } else {
+            mappings.forEach((slot, deviceInfo) -> {
+                if (deviceInfo.equals("N/A")) {
+                    return;
+                }
+                if (!isValidMapping(deviceInfo)) {
+                    log.warn("Slot {} is mapped to {} which is not configured, skipping it", slot, deviceInfo);
+                    return;
                 }
+                String[] deviceAndPort = deviceInfo.split(":");
+                slots.put(deviceManager.getPowerControllerDeviceById(deviceAndPort[0]).getPowerInfo()
+                        .getOutlet(Integer.parseInt(deviceAndPort[1])), slot);
             });
-            log.info("Setting remaining slots to default ports");
-            setRemainingMappings();
-        } catch (IOException ex) {
-            log.error("Could not process slot mappings file, using default values: " + ex.getLocalizedMessage());
-            slotToPortMappings = new SlotToPortMappings();
-            setDefaultMappings();
+        }
+        for (PowerControllerDevice device : deviceManager.getAllPowerDevices()) {
+            for (OutletInfo outlet : device.getPowerInfo().getOutlets()) {
+                String slot = slots.get(outlet);
+                if (!Objects.equals(slot, outlet.getSlot())) {
+                    outlet.setSlot(slot);
+                }
+            }
+        }
+        if (!mappings.isEmpty()) {
+            try {
+                setRemainingMappings();
+            } catch (IOException ex) {
+                log.error("Could not update slot mappings: " + ex.getLocalizedMessage());
+            }
+        }
+        rebuildSlotIndex();
+    }
+
+    /**
+     * Show a slot on the outlet of a "device:port" mapping.
+     */
+    private void assignSlot(String slot, String deviceInfo) {
+        String[] deviceAndPort = deviceInfo.split(":");
+        OutletInfo outlet = deviceManager.getPowerControllerDeviceById(deviceAndPort[0]).getPowerInfo().getOutlet(Integer.parseInt(deviceAndPort[1]));
+        if (outlet != null) {
+            outlet.setSlot(slot);
+        }
+    }
+
+    /**
+     * Remove a slot from the outlet showing it, the other outlets are left as they are.
+     */
+    private void clearSlot(String slot) {
+        SlotIndex.Entry entry = currentSlotIndex().get(slot);
+        if (entry != null && entry.getOutletInfo() != null && slot.equals(entry.getOutletInfo().getSlot())) {
+            entry.getOutletInfo().setSlot(null);
         }
     }
 
@@ -128,100 +251,101 @@ public class PowerDeviceLookupService {
     }
 
     public SlotToPortMappings getMappings() {
-        //if(null == slotToPortMappings || slotToPortMappings.getMappings().isEmpty()) {
-        //	this.initializePortMapping();
-        //}
-        return slotToPortMappings;
+        return mappingStore.toSlotToPortMappings();
     }
 
-    public SlotToPortMappings setMappings(Map<String, String> mappings) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(MAPPING_FILEPATH))) {
-            for (Entry<String, String> entry : mappings.entrySet()) {
-                if (!isValidMapping(entry.getValue())) {
-                    log.error("Invalid mapping for slot " + entry.getKey() + ": " + entry.getValue());
-                    writer.write(mapper.writeValueAsString(this.slotToPortMappings));
-                    throw new SlotMappingException("Invalid mapping for slot " + entry.getKey() + ": " + entry.getValue());
-                }
+    public synchronized SlotToPortMappings setMappings(Map<String, String> mappings) throws IOException {
+        for (Entry<String, String> entry : mappings.entrySet()) {
+            if (!isValidMapping(entry.getValue())) {
+                log.error("Invalid mapping for slot " + entry.getKey() + ": " + entry.getValue());
+                throw new SlotMappingException("Invalid mapping for slot " + entry.getKey() + ": " + entry.getValue());
             }
+        }
+        try {
             log.info("Setting new mapping: " + mapper.writeValueAsString(mappings));
-
-            this.slotToPortMappings.setMappings(mappings);
-            writer.write(mapper.writeValueAsString(this.slotToPortMappings));
+            mappingStore.update(current -> {
+                current.clear();
+                current.putAll(mappings);
+            });
             log.info("Slot to port mappings file updated");
         } catch (IOException ex) {
             log.error("Could not update slot mappings: " + ex.getLocalizedMessage());
             throw ex;
         }
-        initializePortMapping();
-        return this.slotToPortMappings;
+        applyMappings();
+        rebuildSlotIndex();
+        return getMappings();
     }
 
-    public void removeMappings() throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(MAPPING_FILEPATH))) {
+    public synchronized void removeMappings() throws IOException {
+        try {
             log.info("Removing slot to port mappings");
-            this.slotToPortMappings.removeMappings();
+            mappingStore.update(Map::clear);
             log.info("Slot to port mappings have been removed");
-            writer.write(mapper.writeValueAsString(this.slotToPortMappings));
             setDefaultMappings();
         } catch (IOException ex) {
             log.error("Could not update slot mappings: " + ex.getLocalizedMessage());
             throw ex;
         }
+        rebuildSlotIndex();
     }
 
     public String getMapping(String slot) throws SlotMappingException {
         try {
-            return slotToPortMappings.getMapping(slot);
+            return getMappings().getMapping(slot);
         } catch (SlotMappingException ex) {
             log.error("Could not locate mapping for slot: " + slot);
             throw ex;
         }
     }
 
-    public SlotToPortMappings setMapping(String slot, String mapping) throws IOException, SlotMappingException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(MAPPING_FILEPATH))) {
-            if (!isValidMapping(mapping)) {
-                log.error("Invalid mapping for slot " + slot + ": " + mapping);
-                writer.write(mapper.writeValueAsString(this.slotToPortMappings));
-                throw new SlotMappingException("Invalid mapping for slot " + slot + ": " + mapping);
-            }
+    public synchronized SlotToPortMappings setMapping(String slot, String mapping) throws IOException, SlotMappingException {
+        if (!isValidMapping(mapping)) {
+            log.error("Invalid mapping for slot " + slot + ": " + mapping);
+            throw new SlotMappingException("Invalid mapping for slot " + slot + ": " + mapping);
+        }
+        try {
             log.info("Setting mapping on slot " + slot + " to " + mapping);
-
-            if (this.slotToPortMappings.getMappings().containsKey(slot)) {
-                this.slotToPortMappings.removeMapping(slot);
-            }
-            this.slotToPortMappings.addMapping(slot, mapping);
-
-            writer.write(mapper.writeValueAsString(this.slotToPortMappings));
+            mappingStore.update(current -> current.put(slot, mapping));
             log.info("Slot " + slot + " mapping updated");
-        } catch (IOException | SlotMappingException ex) {
+        } catch (IOException ex) {
             log.error("Could not update slot mappings: " + ex.getLocalizedMessage());
             throw ex;
         }
-        initializePortMapping();
-        return this.slotToPortMappings;
+        clearSlot(slot);
+        if (!mapping.equals("N/A")) {
+            assignSlot(slot, mapping);
+        }
+        rebuildSlotIndex();
+        return getMappings();
     }
 
-    public SlotToPortMappings removeMapping(String slot) throws IOException, SlotMappingException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(MAPPING_FILEPATH))) {
+    public synchronized SlotToPortMappings removeMapping(String slot) throws IOException, SlotMappingException {
+        try {
             log.info("Removing mapping on slot " + slot);
-            this.slotToPortMappings.removeMapping(slot);
-            writer.write(mapper.writeValueAsString(this.slotToPortMappings));
+            if (!mappingStore.snapshot().containsKey(slot)) {
+                throw new SlotMappingException("Slot " + slot + " is not mapped");
+            }
+            mappingStore.update(current -> current.put(slot, "N/A"));
             log.info("Slot " + slot + " mapping removed");
-
         } catch (IOException | SlotMappingException ex) {
             log.error("Could not update slot mappings: " + ex.getLocalizedMessage());
             throw ex;
         }
-        //  initializePortMapping();
-        return this.slotToPortMappings;
+        clearSlot(slot);
+        rebuildSlotIndex();
+        return getMappings();
     }
 
     public PowerOutletController getOutletController(String slot) throws SlotMappingException {
+        SlotIndex.Entry entry = currentSlotIndex().get(slot);
+        if (entry != null && entry.getController() != null) {
+            return entry.getController();
+        }
         PowerOutletController outletController;
         log.info("Retrieving controller for slot: " + slot);
-        if (!slotToPortMappings.getMappings().isEmpty()) {
-            String deviceInfo = slotToPortMappings.getMapping(slot);
+        if (!mappingStore.snapshot().isEmpty()) {
+            String deviceInfo = getMappings().getMapping(slot);
 
             String[] deviceAndPort = deviceInfo.split(":");
             outletController = factory.getPowerOutletController(deviceAndPort[0], Integer.parseInt(deviceAndPort[1]));
@@ -231,10 +355,25 @@ public class PowerDeviceLookupService {
     }
 
     public OutletInfo getOutletInfo(String slot) {
+        return getOutletInfo(slot, statusCache.getTtlMs());
+    }
+
+    /**
+     * Get the outlet of a slot, the status is read from the device if the cached one is older than maxAgeMs.
+     * @param slot The slot.
+     * @param maxAgeMs Max age of the status, 0 forces a live read.
+     * @return The outlet info.
+     */
+    public OutletInfo getOutletInfo(String slot, long maxAgeMs) {
+        SlotIndex.Entry entry = currentSlotIndex().get(slot);
+        if (entry != null && entry.getOutletInfo() != null) {
+            statusCache.getOutlets(entry.getDevice(), maxAgeMs);
+            return entry.getOutletInfo();
+        }
         for (PowerControllerDevice device : deviceManager.getAllPowerDevices()) {
             for (OutletInfo outlet : device.getPowerInfo().getOutlets()) {
                 if (outlet.getSlot() != null && outlet.getSlot().equals(slot)) {
-                    device.retrieveOutletStatus();
+                    statusCache.getOutlets(device, maxAgeMs);
                     return outlet;
                 }
             }
@@ -243,10 +382,23 @@ public class PowerDeviceLookupService {
     }
 
     public List<OutletInfo> getAllOutletInfo() {
+        return getAllOutletInfo(statusCache.getTtlMs());
+    }
+
+    /**
+     * Get the outlets of all slots, each device is read if its cached status is older than maxAgeMs.
+     * @param maxAgeMs Max age of the status, 0 forces a live read.
+     * @return The outlets mapped to a slot.
+     */
+    public List<OutletInfo> getAllOutletInfo(long maxAgeMs) {
         List<OutletInfo> outlets = new ArrayList<>();
         log.info("Getting all outlet info");
-        deviceManager.getAllPowerDevices().stream().forEach(device -> {
-            device.retrieveOutletStatus();
+        List<PowerControllerDevice> devices = deviceManager.getAllPowerDevices();
+        fanOutExecutor.forEachDevice(devices, device -> statusCache.getOutlets(device, maxAgeMs))
+                .values().stream()
+                .filter(result -> result.getError() != null)
+                .forEach(result -> log.warn("Could not read status of {}: {}", result.getDeviceId(), result.getError()));
+        devices.stream().forEach(device -> {
             device.getPowerInfo().getOutlets().stream().forEach(outlet -> {
                 if (outlet.getSlot() != null) {
                     outlets.add(outlet);
@@ -256,11 +408,51 @@ public class PowerDeviceLookupService {
         return outlets;
     }
 
+    /**
+     * Get the slots mapped to an outlet.
+     * @return The slots, in device and outlet order.
+     */
+    public List<String> getSlots() {
+        List<String> slots = new ArrayList<>();
+        for (PowerControllerDevice device : deviceManager.getAllPowerDevices()) {
+            for (OutletInfo outlet : device.getPowerInfo().getOutlets()) {
+                if (outlet.getSlot() != null) {
+                    slots.add(outlet.getSlot());
+                }
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Get the outlets mapped to a slot, grouped by device. Reads nothing from the devices.
+     * @return The slot outlets of every device, in device order.
+     */
+    public Map<PowerControllerDevice, List<Integer>> getSlotOutletsByDevice() {
+        Map<PowerControllerDevice, List<Integer>> outletsByDevice = new LinkedHashMap<>();
+        for (PowerControllerDevice device : deviceManager.getAllPowerDevices()) {
+            List<Integer> outlets = new ArrayList<>();
+            for (OutletInfo outlet : device.getPowerInfo().getOutlets()) {
+                if (outlet.getSlot() != null) {
+                    outlets.add(outlet.getOutlet());
+                }
+            }
+            if (!outlets.isEmpty()) {
+                outletsByDevice.put(device, outlets);
+            }
+        }
+        return outletsByDevice;
+    }
+
     public String getSlotMapping(String slot) throws SlotMappingException {
         log.info("Getting mapping for slot: " + slot);
-        if (!slotToPortMappings.getMappings().isEmpty()) {
+        if (!mappingStore.snapshot().isEmpty()) {
+            SlotIndex.Entry entry = currentSlotIndex().get(slot);
+            if (entry != null && entry.getController() != null) {
+                return String.valueOf(entry.getController().getOutlet());
+            }
             try {
-                String deviceInfo = slotToPortMappings.getMapping(slot);
+                String deviceInfo = getMappings().getMapping(slot);
                 String[] deviceAndPort = deviceInfo.split(":");
                 log.info(slot + "-> " + deviceAndPort[0] + ":" + deviceAndPort[1]);
                 return deviceAndPort[1];
@@ -278,8 +470,9 @@ public class PowerDeviceLookupService {
         int slotNumber = Integer.parseInt(slot);
         Integer index = null;
         log.info("Getting power controller with default mappings");
-        for (int i = 0; i < deviceManager.getAllPowerDevices().size(); i++) {
-            numOutlets = deviceManager.getAllPowerDevices().get(i).getPowerInfo().getNumOfOutlets();
+        List<PowerControllerDevice> devices = deviceManager.getAllPowerDevices();
+        for (int i = 0; i < devices.size(); i++) {
+            numOutlets = devices.get(i).getPowerInfo().getNumOfOutlets();
             if (slotNumber <= numOutlets) {
                 index = i;
                 break;
@@ -289,7 +482,7 @@ public class PowerDeviceLookupService {
         if (index == null) {
             throw new IllegalArgumentException("Slot " + slot + " is not a valid slot");
         }
-        powerDevice = deviceManager.getAllPowerDevices().get(index);
+        powerDevice = devices.get(index);
         try {
             log.info("Device: " + powerDevice.getPowerInfo().getId() + ", port: " + slot);
             return factory.getPowerOutletController(powerDevice.getPowerInfo().getId(), slotNumber);
@@ -328,29 +521,26 @@ public class PowerDeviceLookupService {
     }
 
     private void setRemainingMappings() throws IOException {
-
+        Map<String, String> mappings = new LinkedHashMap<>(mappingStore.snapshot());
         int slot = 1;
         for (PowerControllerDevice powerDevice : deviceManager.getAllPowerDevices()) {
             for (OutletInfo outlet : powerDevice.getPowerInfo().getOutlets()) {
                 String val = powerDevice.getPowerInfo().getId() + ":" + outlet.getOutlet();
-                if (slotToPortMappings.getMappings().get(Integer.toString(slot)) == null) {
-                    if (!slotToPortMappings.getMappings().containsValue(val)) {
+                if (mappings.get(Integer.toString(slot)) == null) {
+                    if (!mappings.containsValue(val)) {
                         log.info("Setting default for slot " + slot + " val " + val);
                         outlet.setSlot(String.valueOf(slot));
-                        slotToPortMappings.getMappings().put(Integer.toString(slot), val);
+                        mappings.put(Integer.toString(slot), val);
                     } else {
-                        slotToPortMappings.getMappings().put(Integer.toString(slot), "N/A");
+                        mappings.put(Integer.toString(slot), "N/A");
                     }
                 }
                 slot++;
             }
         }
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(MAPPING_FILEPATH))) {
-            writer.write(mapper.writeValueAsString(this.slotToPortMappings));
-        } catch (IOException ex) {
-            log.error("Could not update slot mappings: " + ex.getLocalizedMessage());
-            throw ex;
-        }
+        mappingStore.update(current -> {
+            current.clear();
+            current.putAll(mappings);
+        });
     }
 }
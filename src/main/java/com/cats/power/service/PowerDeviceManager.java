@@ -83,4 +83,24 @@ public interface PowerDeviceManager
     public PowerControllerDevice getPowerControllerDeviceById(String id);
     
     public List<PowerControllerDevice> getAllPowerDevices();
+
+    /**
+     * Add a listener run after devices were added to the device set in the background, such as a device built after
+     * the startup budget.
+     *
+     * @param listener
+     *            - the listener, run outside of any lock of the manager
+     */
+    public void addDeviceSetListener(Runnable listener);
+
+    /**
+     * Apply a new list of configured power devices. Devices whose configuration did not change are kept as they are,
+     * new and changed devices are built and removed ones destroyed. The device set is replaced at once. A changed
+     * device not built within the initialisation budget stays in place until its replacement is built.
+     *
+     * @param powerDevices
+     *            - the configured power devices
+     * @return true if the device set changed.
+     */
+    public boolean applyPowerDevices(List<PowerDevice> powerDevices);
 }
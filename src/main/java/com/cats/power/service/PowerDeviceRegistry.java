@@ -0,0 +1,181 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PowerDeviceRegistry holds the configured power devices indexed by device id and by ip:port.
+ * Lookups and iteration are lock free, the indexes and the device list are one immutable state replaced on every
+ * change. Changes are serialized so both indexes and the list always describe the same set of devices.
+ * */
+@Component
+public class PowerDeviceRegistry {
+
+    private volatile State state = State.EMPTY;
+
+    /**
+     * Get a device by its id.
+     * @param id The device id.
+     * @return The device, or null if not registered.
+     * */
+    public PowerControllerDevice getById(String id) {
+        return id == null ? null : state.byId.get(id);
+    }
+
+    /**
+     * Get a device by its address.
+     * @param ip The device ip.
+     * @param port The device port.
+     * @return The device, or null if not registered.
+     * */
+    public PowerControllerDevice getByAddress(String ip, int port) {
+        return state.byAddress.get(addressKey(ip, port));
+    }
+
+    /**
+     * Get the registered devices in registration order.
+     * @return Immutable snapshot of the devices.
+     * */
+    public List<PowerControllerDevice> snapshot() {
+        return state.devices;
+    }
+
+    public boolean isEmpty() {
+        return state.devices.isEmpty();
+    }
+
+    /**
+     * Register a device, replacing the device registered with the same id or address.
+     * @param device The device, its id must be set.
+     * @return The replaced device, or null.
+     * */
+    public synchronized PowerControllerDevice register(PowerControllerDevice device) {
+        State current = state;
+        PowerControllerDevice replacedById = current.byId.get(device.getPowerInfo().getId());
+        PowerControllerDevice replacedByAddress = current.byAddress.get(addressKey(device));
+
+        List<PowerControllerDevice> devices = new ArrayList<>(current.devices);
+        PowerControllerDevice replaced = replacedById != null ? replacedById : replacedByAddress;
+        int index = devices.indexOf(replaced);
+        devices.remove(replacedById);
+        devices.remove(replacedByAddress);
+        devices.add(index >= 0 ? Math.min(index, devices.size()) : devices.size(), device);
+        state = State.of(devices);
+        return replaced;
+    }
+
+    /**
+     * Replace every registered device at once, readers see either the previous or the new set.
+     * @param devices The devices, their ids must be set.
+     * @return The previously registered devices not part of the new set.
+     * */
+    public synchronized List<PowerControllerDevice> replaceAll(List<PowerControllerDevice> devices) {
+        List<PowerControllerDevice> removed = new ArrayList<>(state.devices);
+        removed.removeIf(devices::contains);
+        state = State.of(devices);
+        return removed;
+    }
+
+    /**
+     * Remove the device with the given id.
+     * @param id The device id.
+     * @return The removed device, or null.
+     * */
+    public synchronized PowerControllerDevice remove(String id) {
+        PowerControllerDevice device = getById(id);
+        if (device != null) {
+            removeDevice(device);
+        }
+        return device;
+    }
+
+    /**
+     * Remove the device at the given address.
+     * @param ip The device ip.
+     * @param port The device port.
+     * @return The removed device, or null.
+     * */
+    public synchronized PowerControllerDevice removeByAddress(String ip, int port) {
+        PowerControllerDevice device = getByAddress(ip, port);
+        if (device != null) {
+            removeDevice(device);
+        }
+        return device;
+    }
+
+    /**
+     * Remove every device.
+     * @return The removed devices.
+     * */
+    public synchronized List<PowerControllerDevice> clear() {
+        List<PowerControllerDevice> devices = state.devices;
+        state = State.EMPTY;
+        return devices;
+    }
+
+    private void removeDevice(PowerControllerDevice device) {
+        List<PowerControllerDevice> devices = new ArrayList<>(state.devices);
+        devices.remove(device);
+        state = State.of(devices);
+    }
+
+    private static String addressKey(PowerControllerDevice device) {
+        return addressKey(device.getPowerInfo().getIp(), device.getPowerInfo().getPort());
+    }
+
+    private static String addressKey(String ip, int port) {
+        return ip + ":" + port;
+    }
+
+    /**
+     * Devices and their indexes, never modified once published.
+     */
+    private static final class State {
+        static final State EMPTY = of(Collections.emptyList());
+
+        final List<PowerControllerDevice> devices;
+        final Map<String, PowerControllerDevice> byId;
+        final Map<String, PowerControllerDevice> byAddress;
+
+        private State(List<PowerControllerDevice> devices, Map<String, PowerControllerDevice> byId,
+                      Map<String, PowerControllerDevice> byAddress) {
+            this.devices = devices;
+            this.byId = byId;
+            this.byAddress = byAddress;
+        }
+
+        static State of(List<PowerControllerDevice> devices) {
+            Map<String, PowerControllerDevice> byId = new HashMap<>();
+            Map<String, PowerControllerDevice> byAddress = new HashMap<>();
+            for (PowerControllerDevice device : devices) {
+                byId.put(device.getPowerInfo().getId(), device);
+                byAddress.put(addressKey(device), device);
+            }
+            return new State(Collections.unmodifiableList(new ArrayList<>(devices)), byId, byAddress);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.exceptions.DeviceUnreachableException;
+import com.cats.power.model.DeviceConnectionState;
+import com.cats.power.model.HealthReport;
+import com.cats.power.utils.ScheduledJobs;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * PowerHealthMonitor checks the health of the power devices in parallel on a schedule and keeps the last report of
+ * every device. Health requests are answered from these reports, only devices whose report is older than the
+ * requested age are checked again, concurrent requests share the checks in flight.
+ * A check also updates the connection state of the device, versions and metadata come from {@link ScheduledJobs}.
+ * Devices with an open {@link DeviceCircuitBreaker} are reported unhealthy without being checked.
+ * */
+@Service
+public class PowerHealthMonitor {
+    private static final Logger log = LoggerFactory.getLogger(PowerHealthMonitor.class);
+
+    @Value("${health.intervalMs:30000}")
+    private long intervalMs = 30000;
+
+    @Value("${health.maxStalenessMs:60000}")
+    private long maxStalenessMs = 60000;
+
+    @Value("${health.timeoutMs:10000}")
+    private long timeoutMs = 10000;
+
+    @Value("${health.threads:4}")
+    private int threads = 4;
+
+    private final PowerDeviceManager powerDeviceManager;
+
+    private final ScheduledJobs scheduledJobs;
+
+    private final DeviceCircuitBreaker circuitBreaker;
+
+    private final DeviceFanOutExecutor fanOutExecutor;
+
+    /**
+     * Last report per device id.
+     */
+    private final ConcurrentMap<String, HealthReport> reports = new ConcurrentHashMap<>();
+
+    /**
+     * Check in flight per device id.
+     */
+    private final ConcurrentMap<String, CompletableFuture<HealthReport>> inFlight = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public PowerHealthMonitor(PowerDeviceManager powerDeviceManager, ScheduledJobs scheduledJobs, DeviceCircuitBreaker circuitBreaker,
+                              DeviceFanOutExecutor fanOutExecutor) {
+        this.powerDeviceManager = powerDeviceManager;
+        this.scheduledJobs = scheduledJobs;
+        this.circuitBreaker = circuitBreaker;
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startChecks() {
+        if (intervalMs <= 0) {
+            log.info("Scheduled health checks disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkAll, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get the default max age of a report.
+     * @return the staleness bound in milliseconds.
+     * */
+    public long getMaxStalenessMs() {
+        return maxStalenessMs;
+    }
+
+    /**
+     * Get the health of every device with the default staleness bound.
+     * @return The reports, in device order.
+     * */
+    public List<HealthReport> getReports() {
+        return getReports(maxStalenessMs);
+    }
+
+    /**
+     * Get the health of every device. Devices whose report is older than maxAgeMs are checked again, in parallel,
+     * waiting up to the check timeout. A device still being checked then keeps its previous report.
+     * @param maxAgeMs Max age of a report, 0 checks every device.
+     * @return The reports, in device order.
+     * */
+    public List<HealthReport> getReports(long maxAgeMs) {
+        long now = System.currentTimeMillis();
+        Map<String, CompletableFuture<HealthReport>> reportsById = new LinkedHashMap<>();
+        for (PowerControllerDevice device : powerDeviceManager.getAllPowerDevices()) {
+            String id = device.getPowerInfo().getId();
+            HealthReport report = reports.get(id);
+            if (report != null && now - report.getCheckedAt() <= maxAgeMs) {
+                reportsById.put(id, CompletableFuture.completedFuture(report));
+            } else {
+                reportsById.put(id, check(device));
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<HealthReport> result = new ArrayList<>(reportsById.size());
+        for (Map.Entry<String, CompletableFuture<HealthReport>> entry : reportsById.entrySet()) {
+            HealthReport report;
+            try {
+                report = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                report = reports.get(entry.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                report = reports.get(entry.getKey());
+            }
+            result.add(report != null ? report : pending(entry.getKey()));
+        }
+        return result;
+    }
+
+    /**
+     * Check every device, devices still being checked are skipped, reports of removed devices are dropped.
+     */
+    void checkAll() {
+        List<PowerControllerDevice> devices = powerDeviceManager.getAllPowerDevices();
+        devices.forEach(this::check);
+        Set<String> ids = devices.stream().map(device -> device.getPowerInfo().getId()).collect(Collectors.toSet());
+        reports.keySet().retainAll(ids);
+    }
+
+    /**
+     * Check a device, joining the check in flight if there is one.
+     * @param device The device.
+     * @return Future of the report, also stored as the last report of the device.
+     */
+    CompletableFuture<HealthReport> check(PowerControllerDevice device) {
+        String id = device.getPowerInfo().getId();
+        CompletableFuture<HealthReport> created = new CompletableFuture<>();
+        CompletableFuture<HealthReport> existing = inFlight.putIfAbsent(id, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    HealthReport report = probe(device);
+                    reports.put(id, report);
+                    created.complete(report);
+                } catch (RuntimeException e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(id, created);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(id, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Check the health of a device now.
+     * @param device The device.
+     * @return The report.
+     */
+    HealthReport probe(PowerControllerDevice device) {
+        HealthReport report = new HealthReport();
+        report.setDeviceId(device.getPowerInfo().getId());
+        report.setEntity(device.getPowerInfo().getType());
+        report.setHost(device.getPowerInfo().getIp());
+        String healthCheckResult;
+        try {
+            healthCheckResult = fanOutExecutor.call(device, d -> circuitBreaker.call(d, d::healthCheck));
+        } catch (DeviceUnreachableException e) {
+            healthCheckResult = null;
+        }
+        if (healthCheckResult == null) {
+            report.setRemarks(" Device unreachable, checks suspended until it answers again");
+            report.setIsHealthy(false);
+        } else if ("HEALTHY".equals(healthCheckResult)) {
+            report.setRemarks(" Able to check outlet status");
+            report.setIsHealthy(true);
+            device.getPowerInfo().setConnection(DeviceConnectionState.CONNECTED);
+        } else if ("NOT IMPLEMENTED".equals(healthCheckResult)) {
+            report.setRemarks(" Health Check not implemented");
+            report.setIsHealthy(true);
+        } else {
+            report.setRemarks(" Unable to check outlet status");
+            report.setIsHealthy(false);
+            device.getPowerInfo().setConnection(DeviceConnectionState.UNREACHABLE);
+        }
+        // Versions are taken as last read, an unreachable device must not hold the check.
+        Map<String, String> version = scheduledJobs.getVersion().get(report.getDeviceId());
+        report.setVersion(version != null ? version : Map.of());
+        Map<String, String> metadata = scheduledJobs.getMetadata().get(report.getDeviceId());
+        if (metadata != null && !metadata.isEmpty()) {
+            report.setMetadata(metadata);
+        }
+        report.setCheckedAt(System.currentTimeMillis());
+        return report;
+    }
+
+    private static HealthReport pending(String id) {
+        HealthReport report = new HealthReport();
+        report.setDeviceId(id);
+        report.setRemarks(" Health check in progress");
+        report.setIsHealthy(false);
+        report.setVersion(Map.of());
+        return report;
+    }
+}
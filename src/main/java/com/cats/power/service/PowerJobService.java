@@ -0,0 +1,311 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.exceptions.SlotMappingException;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.model.PowerJob;
+import com.cats.power.model.PowerJobRequest;
+import com.cats.power.model.SlotPowerResult;
+import com.cats.power.service.DeviceCommandQueue.Command;
+import com.cats.power.utils.AsyncHttpClientUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PowerJobService runs power actions in the background and keeps their progress.
+ * A job is compiled like a custom power request and every slot is queued on the command queue of its device, no
+ * thread waits for the devices. Each slot result is recorded as it completes, and the finished job is POSTed to
+ * the http or https callback URL of the request if one was given. Finished jobs are kept for the retention
+ * period, a job still running after maxRunMs is marked EXPIRED. At most maxJobs jobs are kept, the oldest finished
+ * jobs make room for new ones and new jobs are rejected while maxJobs jobs are running.
+ * */
+@Service
+public class PowerJobService {
+    private static final Logger log = LoggerFactory.getLogger(PowerJobService.class);
+
+    @Value("${jobs.retentionMs:3600000}")
+    private long retentionMs;
+
+    @Value("${jobs.maxRunMs:1800000}")
+    private long maxRunMs;
+
+    @Value("${jobs.maxJobs:1000}")
+    private int maxJobs;
+
+    @Value("${jobs.expiryIntervalMs:60000}")
+    private long expiryIntervalMs;
+
+    @Autowired
+    private CustomPowerPlanner customPowerPlanner;
+
+    @Autowired
+    private DeviceCommandQueue commandQueue;
+
+    @Autowired
+    private PowerDeviceLookupService powerDeviceLookupService;
+
+    @Autowired
+    private AsyncHttpClientUtil asyncHttpClient;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ConcurrentMap<String, PowerJob> jobs = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expireJobs, expiryIntervalMs, expiryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Start a job.
+     * @param request The actions to run.
+     * @return The job, as started.
+     * @throws SlotMappingException If a slot cannot be resolved.
+     * @throws IllegalArgumentException If a status, the action or the callback URL is invalid, or there is nothing to run.
+     * @throws RejectedExecutionException If maxJobs jobs are running.
+     * */
+    public PowerJob submit(PowerJobRequest request) throws SlotMappingException {
+        checkCallbackUrl(request.getCallbackUrl());
+        PowerPlan plan = customPowerPlanner.compile(requestedOutlets(request));
+        if (plan.getSteps().isEmpty()) {
+            throw new IllegalArgumentException("The job has no slot to power");
+        }
+
+        PowerJob job = new PowerJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setState(PowerJob.State.RUNNING);
+        job.setTotal(plan.getSteps().size());
+        job.setResults(new ArrayList<>());
+        job.setCallbackUrl(request.getCallbackUrl());
+        job.setCreatedAt(System.currentTimeMillis());
+        add(job);
+        log.info("Job {} started with {} slots", job.getId(), job.getTotal());
+
+        for (PowerPlan.Step step : plan.getSteps()) {
+            SlotPowerResult result = new SlotPowerResult();
+            result.setSlot(step.getSlot());
+            result.setDeviceId(step.getDevice().getPowerInfo().getId());
+            result.setOutlet(step.getOutlet());
+            result.setAction(step.getAction());
+            commandQueue.submit(step.getDevice(), step.getOutlet(), toCommand(step.getAction()))
+                    .whenComplete((success, ex) -> {
+                        if (ex != null) {
+                            result.setError(ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage());
+                        } else {
+                            result.setSuccess(Boolean.TRUE.equals(success));
+                        }
+                        recordResult(job, result);
+                    });
+        }
+        return get(job.getId());
+    }
+
+    /**
+     * Get the progress of a job.
+     * @param id The job id.
+     * @return A copy of the job, null if there is no such job.
+     * */
+    public PowerJob get(String id) {
+        PowerJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            PowerJob copy = new PowerJob();
+            copy.setId(job.getId());
+            copy.setState(job.getState());
+            copy.setTotal(job.getTotal());
+            copy.setCompleted(job.getCompleted());
+            copy.setFailed(job.getFailed());
+            copy.setResults(new ArrayList<>(job.getResults()));
+            copy.setCallbackUrl(job.getCallbackUrl());
+            copy.setCreatedAt(job.getCreatedAt());
+            copy.setFinishedAt(job.getFinishedAt());
+            return copy;
+        }
+    }
+
+    private List<OutletInfo> requestedOutlets(PowerJobRequest request) {
+        if (request.getOutlets() != null && !request.getOutlets().isEmpty()) {
+            return request.getOutlets();
+        }
+        if (request.getAction() == null) {
+            throw new IllegalArgumentException("A job needs outlets or an action");
+        }
+        List<OutletInfo> outlets = new ArrayList<>();
+        for (String slot : powerDeviceLookupService.getSlots()) {
+            OutletInfo outlet = new OutletInfo();
+            outlet.setSlot(slot);
+            outlet.setStatus(request.getAction());
+            if (outlet.getStatus() == null) {
+                throw new IllegalArgumentException("Invalid power action " + request.getAction());
+            }
+            outlets.add(outlet);
+        }
+        return outlets;
+    }
+
+    private Command toCommand(String action) {
+        switch (action) {
+            case "ON":
+                return Command.ON;
+            case "OFF":
+                return Command.OFF;
+            default:
+                return Command.TOGGLE;
+        }
+    }
+
+    private void recordResult(PowerJob job, SlotPowerResult result) {
+        boolean finished;
+        synchronized (job) {
+            job.getResults().add(result);
+            job.setCompleted(job.getCompleted() + 1);
+            if (!result.isSuccess()) {
+                job.setFailed(job.getFailed() + 1);
+            }
+            finished = job.getCompleted() == job.getTotal() && job.getState() == PowerJob.State.RUNNING;
+            if (finished) {
+                job.setState(PowerJob.State.COMPLETED);
+                job.setFinishedAt(System.currentTimeMillis());
+            }
+        }
+        if (finished) {
+            log.info("Job {} completed, {} of {} slots failed", job.getId(), job.getFailed(), job.getTotal());
+            notifyCallback(job);
+        }
+    }
+
+    private void checkCallbackUrl(String callbackUrl) {
+        if (callbackUrl == null || callbackUrl.isEmpty()) {
+            return;
+        }
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid callback URL " + callbackUrl);
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            throw new IllegalArgumentException("Callback URL must be an http or https URL: " + callbackUrl);
+        }
+    }
+
+    private void notifyCallback(PowerJob job) {
+        if (job.getCallbackUrl() == null || job.getCallbackUrl().isEmpty()) {
+            return;
+        }
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(job.getCallbackUrl()))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(get(job.getId()))));
+            asyncHttpClient.transmitAsync(request);
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            log.warn("Could not call back {} for job {}: {}", job.getCallbackUrl(), job.getId(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Mark the jobs running for longer than maxRunMs as EXPIRED and remove the jobs finished before the retention period.
+     */
+    private void expireJobs() {
+        long now = System.currentTimeMillis();
+        List<PowerJob> expired = new ArrayList<>();
+        for (PowerJob job : jobs.values()) {
+            synchronized (job) {
+                if (job.getState() == PowerJob.State.RUNNING && job.getCreatedAt() < now - maxRunMs) {
+                    job.setState(PowerJob.State.EXPIRED);
+                    job.setFinishedAt(now);
+                    expired.add(job);
+                }
+            }
+        }
+        for (PowerJob job : expired) {
+            log.warn("Job {} expired with {} of {} slots finished", job.getId(), job.getCompleted(), job.getTotal());
+            notifyCallback(job);
+        }
+        long oldest = now - retentionMs;
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                return job.getFinishedAt() != 0 && job.getFinishedAt() < oldest;
+            }
+        });
+    }
+
+    /**
+     * Add a job, removing the oldest finished jobs if needed to stay within maxJobs.
+     */
+    private synchronized void add(PowerJob job) {
+        if (jobs.size() >= maxJobs) {
+            removeOldestFinished();
+        }
+        jobs.put(job.getId(), job);
+    }
+
+    private void removeOldestFinished() {
+        List<PowerJob> finished = new ArrayList<>();
+        for (PowerJob job : jobs.values()) {
+            synchronized (job) {
+                if (job.getFinishedAt() != 0) {
+                    finished.add(job);
+                }
+            }
+        }
+        finished.sort(Comparator.comparingLong(PowerJob::getFinishedAt));
+        for (int i = 0; i < finished.size() && jobs.size() >= maxJobs; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+        if (jobs.size() >= maxJobs) {
+            throw new RejectedExecutionException(maxJobs + " jobs are running, retry once one finished");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PowerPlan holds the resolved steps of a custom power request, grouped by device and action.
+ * */
+public class PowerPlan {
+
+    private final List<Step> steps = new ArrayList<>();
+
+    private final Map<PowerControllerDevice, Map<String, List<Integer>>> outletsByDevice = new LinkedHashMap<>();
+
+    void add(String slot, PowerControllerDevice device, int outlet, String action) {
+        steps.add(new Step(slot, device, outlet, action));
+        List<Integer> outlets = outletsByDevice.computeIfAbsent(device, key -> new LinkedHashMap<>())
+                .computeIfAbsent(action, key -> new ArrayList<>());
+        if (!outlets.contains(outlet)) {
+            outlets.add(outlet);
+        }
+    }
+
+    /**
+     * @param device
+     * @param outlet
+     * @return true if the plan already has a step on the outlet
+     */
+    public boolean contains(PowerControllerDevice device, int outlet) {
+        return outletsByDevice.getOrDefault(device, Collections.emptyMap()).values().stream()
+                .anyMatch(outlets -> outlets.contains(outlet));
+    }
+
+    /**
+     * @return the steps in request order
+     */
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * @return the devices the plan touches
+     */
+    public Set<PowerControllerDevice> getDevices() {
+        return outletsByDevice.keySet();
+    }
+
+    /**
+     * @param device
+     * @return the outlets of the device per action
+     */
+    public Map<String, List<Integer>> getOutletsByAction(PowerControllerDevice device) {
+        return outletsByDevice.getOrDefault(device, Collections.emptyMap());
+    }
+
+    /**
+     * A slot resolved to its device outlet.
+     */
+    public static class Step {
+        private final String slot;
+        private final PowerControllerDevice device;
+        private final int outlet;
+        private final String action;
+
+        Step(String slot, PowerControllerDevice device, int outlet, String action) {
+            this.slot = slot;
+            this.device = device;
+            this.outlet = outlet;
+            this.action = action;
+        }
+
+        public String getSlot() {
+            return slot;
+        }
+
+        public PowerControllerDevice getDevice() {
+            return device;
+        }
+
+        public int getOutlet() {
+            return outlet;
+        }
+
+        public String getAction() {
+            return action;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.exceptions.SlotMappingException;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.utils.PowerOutletController;
+import com.cats.power.utils.PowerOutletFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SlotIndex is an immutable, precomputed view of the slot mappings.
+ * Slots are resolved to their device, outlet and controller without scanning the devices or parsing the
+ * "device:port" mapping strings. Numeric slots are held in an array indexed by slot number, any other slot name
+ * in a map. A new index is built and published whenever the mappings change.
+ */
+public final class SlotIndex {
+
+    /**
+     * The resolved slot.
+     */
+    public static final class Entry {
+        private final PowerControllerDevice device;
+        private final OutletInfo outletInfo;
+        private final PowerOutletController controller;
+
+        Entry(PowerControllerDevice device, OutletInfo outletInfo, PowerOutletController controller) {
+            this.device = device;
+            this.outletInfo = outletInfo;
+            this.controller = controller;
+        }
+
+        /**
+         * @return The device of the outlet the slot is shown as, null if no outlet carries the slot.
+         */
+        public PowerControllerDevice getDevice() {
+            return device;
+        }
+
+        /**
+         * @return The outlet carrying the slot, null if none.
+         */
+        public OutletInfo getOutletInfo() {
+            return outletInfo;
+        }
+
+        /**
+         * @return The controller the slot is mapped to, null if the slot is not mapped.
+         */
+        public PowerOutletController getController() {
+            return controller;
+        }
+    }
+
+    /**
+     * Numeric slots above this are kept in the map rather than growing the array.
+     */
+    private static final int MAX_ARRAY_SLOT = 4096;
+
+    public static final SlotIndex EMPTY = new SlotIndex(List.of(), new Entry[0], Map.of());
+
+    private final List<PowerControllerDevice> devices;
+    private final Entry[] numericSlots;
+    private final Map<String, Entry> namedSlots;
+
+    private SlotIndex(List<PowerControllerDevice> devices, Entry[] numericSlots, Map<String, Entry> namedSlots) {
+        this.devices = devices;
+        this.numericSlots = numericSlots;
+        this.namedSlots = namedSlots;
+    }
+
+    /**
+     * Check the index was built from the given device list. The device registry replaces its snapshot on every
+     * change, so a different list means devices were added or removed since.
+     * @param currentDevices The current device snapshot.
+     * @return true if the index describes these devices.
+     */
+    public boolean isBuiltFrom(List<PowerControllerDevice> currentDevices) {
+        return devices == currentDevices;
+    }
+
+    /**
+     * Resolve a slot.
+     * @param slot The slot.
+     * @return The entry, null if the slot is unknown.
+     */
+    public Entry get(String slot) {
+        if (slot == null) {
+            return null;
+        }
+        int number = slotNumber(slot);
+        if (number >= 0 && number < numericSlots.length) {
+            return numericSlots[number];
+        }
+        return namedSlots.get(slot);
+    }
+
+    /**
+     * Build the index of the current mappings. Custom mappings resolve the controller through the "device:port"
+     * mapping, without custom mappings slots are numbered across the outlets of all devices in order.
+     * @param mappings The slot to "device:port" mappings.
+     * @param devices The power devices, in configuration order.
+     * @param factory Factory of the outlet controllers.
+     * @return The new index.
+     */
+    public static SlotIndex build(Map<String, String> mappings, List<PowerControllerDevice> devices, PowerOutletFactory factory) {
+        Map<String, PowerControllerDevice> slotDevices = new HashMap<>();
+        Map<String, OutletInfo> slotOutlets = new HashMap<>();
+        for (PowerControllerDevice device : devices) {
+            for (OutletInfo outlet : device.getPowerInfo().getOutlets()) {
+                if (outlet.getSlot() != null) {
+                    slotDevices.putIfAbsent(outlet.getSlot(), device);
+                    slotOutlets.putIfAbsent(outlet.getSlot(), outlet);
+                }
+            }
+        }
+
+        Map<String, PowerOutletController> slotControllers = new HashMap<>();
+        if (mappings != null && !mappings.isEmpty()) {
+            for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+                String[] deviceAndPort = mapping.getValue().split(":");
+                if (deviceAndPort.length != 2) {
+                    continue;
+                }
+                try {
+                    slotControllers.put(mapping.getKey(), factory.getPowerOutletController(deviceAndPort[0], Integer.parseInt(deviceAndPort[1])));
+                } catch (SlotMappingException | NumberFormatException ex) {
+                    // Left out, resolving the slot reports the error.
+                }
+            }
+        } else {
+            int slot = 1;
+            for (PowerControllerDevice device : devices) {
+                int numOutlets = device.getPowerInfo().getNumOfOutlets();
+                for (int outlet = 1; outlet <= numOutlets; outlet++, slot++) {
+                    try {
+                        slotControllers.put(String.valueOf(slot), factory.getPowerOutletController(device.getPowerInfo().getId(), outlet));
+                    } catch (SlotMappingException ex) {
+                        // Left out, resolving the slot reports the error.
+                    }
+                }
+            }
+        }
+
+        Map<String, Entry> entries = new HashMap<>();
+        for (String slot : slotOutlets.keySet()) {
+            entries.put(slot, new Entry(slotDevices.get(slot), slotOutlets.get(slot), slotControllers.get(slot)));
+        }
+        for (Map.Entry<String, PowerOutletController> controller : slotControllers.entrySet()) {
+            entries.putIfAbsent(controller.getKey(), new Entry(null, null, controller.getValue()));
+        }
+
+        int maxSlot = -1;
+        for (String slot : entries.keySet()) {
+            int number = slotNumber(slot);
+            if (number <= MAX_ARRAY_SLOT) {
+                maxSlot = Math.max(maxSlot, number);
+            }
+        }
+        Entry[] numericSlots = new Entry[maxSlot + 1];
+        Map<String, Entry> namedSlots = new HashMap<>();
+        entries.forEach((slot, entry) -> {
+            int number = slotNumber(slot);
+            if (number >= 0 && number <= MAX_ARRAY_SLOT) {
+                numericSlots[number] = entry;
+            } else {
+                namedSlots.put(slot, entry);
+            }
+        });
+        return new SlotIndex(devices, numericSlots, Map.copyOf(namedSlots));
+    }
+
+    /**
+     * Parse a slot written as a plain decimal number, without allocating.
+     * @return The slot number, -1 if the slot is not in canonical decimal form ("07" and "+7" are named slots).
+     */
+    static int slotNumber(String slot) {
+        int length = slot.length();
+        if (length == 0 || length > 9 || (length > 1 && slot.charAt(0) == '0')) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = 0; i < length; i++) {
+            char c = slot.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
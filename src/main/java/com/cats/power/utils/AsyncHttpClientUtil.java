@@ -0,0 +1,97 @@
+package com.cats.power.utils;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncHttpClientUtil class sends requests via non-blocking HTTP, used for the job completion callbacks.
+ * Requests are completed on a small pool of client threads, no thread is held while the server responds.
+ * */
+@Component
+@Slf4j
+public class AsyncHttpClientUtil {
+
+    @Value("${http.async.threads:4}")
+    private int threads;
+
+    @Value("${http.pool.connectTimeoutMs:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${http.async.requestTimeoutMs:10000}")
+    private long requestTimeoutMs;
+
+    private ExecutorService executor;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "http-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Transmits a command to the server without blocking.
+     * @param requestBuilder The request, method and headers already set.
+     * @return Future of the response body, completed with null if the request failed.
+     * */
+    public CompletableFuture<String> transmitAsync(HttpRequest.Builder requestBuilder) {
+        HttpRequest request = requestBuilder.timeout(Duration.ofMillis(requestTimeoutMs)).build();
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(httpResponse -> {
+                    log.info("POWER REQUEST Url=[{}] STATUS [{}] in {} ms", request.uri(), httpResponse.statusCode(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return httpResponse.body();
+                })
+                .exceptionally(e -> {
+                    log.warn("Exception [{}] Url=[{}]", e.getMessage(), request.uri());
+                    return null;
+                });
+    }
+}
@@ -20,16 +20,10 @@ package com.cats.power.utils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.Header;
-import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,6 +34,7 @@ import java.util.Base64;
 
 /**
  * HttpClientUtil class sends commands to the server via HTTP.
+ * All requests share the pooled keep-alive client from {@link HttpConnectionPool}.
  * */
 @Component
 @Slf4j
@@ -48,6 +43,9 @@ public class HttpClientUtil {
     @Autowired
     MeasuredHttpClientUtil measuredHttpClientUtil;
 
+    @Autowired
+    HttpConnectionPool connectionPool;
+
     /**
      * Transmits a command to the server.
      * @param buildUrl
@@ -67,12 +65,14 @@ public class HttpClientUtil {
             } catch (Exception e) {
                 e.printStackTrace();
                 log.warn("Exception [{}]", e.getMessage());
+            }
+            // transmit reports failures as a null response, count those attempts too or a dead device loops forever
+            if (null == response && ++retries < 3) {
                 try {
                     Thread.sleep(500);
                 } catch (InterruptedException ex) {
                     log.debug("Sleep interrupted");
                 }
-                retries++;
             }
         } while (null == response && retries < 3);
         return response;
@@ -107,37 +107,28 @@ public class HttpClientUtil {
      * @return
      */
     public String transmit(HttpRequestBase httpRequestBase, String host, int portIp, String username, String password) {
-        HttpResponse httpResponse = null;
+        CloseableHttpResponse httpResponse = null;
         String response = null;
-        RequestConfig defaultRequestConfig = RequestConfig.custom()
-                .setConnectTimeout(1000)
-                .setConnectionRequestTimeout(1000)
-                .build();
-
-        CredentialsProvider credsProvider = new BasicCredentialsProvider();
-        credsProvider.setCredentials(new AuthScope(host, portIp), new UsernamePasswordCredentials(username, password));
-
-        CloseableHttpClient httpclient = HttpClients.custom()
-                .setDefaultCredentialsProvider(credsProvider)
-                .setDefaultRequestConfig(defaultRequestConfig)
-                .build();
+        HttpClientContext context = connectionPool.newContext(host, portIp, username, password);
 
         try {
 
-            httpResponse = measuredHttpClientUtil.measuredExecute(httpclient,httpRequestBase);
+            httpResponse = measuredHttpClientUtil.measuredExecute(connectionPool.getClient(), httpRequestBase, context);
 
             log.info("POWER REQUEST Url=[{}] ", httpRequestBase.getURI());
             log.info("POWER REQUEST STATUS [{}]", httpResponse.getStatusLine().getStatusCode());
+            // Consuming the entity hands the connection back to the pool for reuse.
             response = EntityUtils.toString(httpResponse.getEntity());
-            ;
         } catch (Exception e) {
             log.warn("Exception [{}]", e.getMessage());
             e.printStackTrace();
         } finally {
-            try {
-                httpclient.close();
-            } catch (IOException e) {
-                log.warn("Exception [{}]", e.getMessage());
+            if (httpResponse != null) {
+                try {
+                    httpResponse.close();
+                } catch (IOException e) {
+                    log.warn("Exception [{}]", e.getMessage());
+                }
             }
         }
         return response;
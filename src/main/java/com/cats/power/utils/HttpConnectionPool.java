@@ -0,0 +1,194 @@
+package com.cats.power.utils;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpConnectionPool holds the single pooled, keep-alive HTTP client shared by all HTTP power devices.
+ * Connections are pooled per route (host:port) and Basic credentials are cached per device so that
+ * every command after the first one is sent preemptively on an already open connection.
+ * */
+@Component
+@Slf4j
+public class HttpConnectionPool {
+
+    @Value("${http.pool.maxTotal:64}")
+    private int maxTotal;
+
+    @Value("${http.pool.maxPerRoute:4}")
+    private int maxPerRoute;
+
+    @Value("${http.pool.keepAliveMs:30000}")
+    private long keepAliveMs;
+
+    @Value("${http.pool.idleEvictMs:60000}")
+    private long idleEvictMs;
+
+    @Value("${http.pool.validateAfterInactivityMs:2000}")
+    private int validateAfterInactivityMs;
+
+    @Value("${http.pool.connectTimeoutMs:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${http.pool.leaseTimeoutMs:10000}")
+    private int leaseTimeoutMs;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    /**
+     * Credentials and preemptive auth cache per host:port:username, replaced when the password changes.
+     */
+    private final ConcurrentMap<String, DeviceAuth> deviceAuth = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        // Embedded PDU web servers drop idle keep-alive sockets silently, re-check before reuse.
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+
+        RequestConfig defaultRequestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setConnectionRequestTimeout(leaseTimeoutMs)
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS)
+                .build();
+        log.info("HTTP connection pool created maxTotal={} maxPerRoute={} keepAliveMs={}", maxTotal, maxPerRoute, keepAliveMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Exception [{}]", e.getMessage());
+        }
+    }
+
+    /**
+     * Get the shared pooled client.
+     * @return The HTTP client.
+     * */
+    public CloseableHttpClient getClient() {
+        return httpClient;
+    }
+
+    /**
+     * Create a request context for a device. The context carries the cached credentials and auth cache of the
+     * device so the Basic authorization header is sent without waiting for a challenge.
+     * @param host The device host.
+     * @param port The device port.
+     * @param username The device username, may be null.
+     * @param password The device password.
+     * @return A new request context.
+     * */
+    public HttpClientContext newContext(String host, int port, String username, String password) {
+        HttpClientContext context = HttpClientContext.create();
+        if (username != null) {
+            String key = host + ":" + port + ":" + username;
+            DeviceAuth auth = deviceAuth.get(key);
+            if (auth == null || !Objects.equals(auth.password, password)) {
+                // A reloaded configuration may change the password, the cached credentials must not outlive it.
+                auth = deviceAuth.compute(key, (k, current) -> current != null && Objects.equals(current.password, password)
+                        ? current : new DeviceAuth(host, port, username, password));
+            }
+            context.setCredentialsProvider(auth.credentialsProvider);
+            context.setAuthCache(auth.authCache);
+        }
+        return context;
+    }
+
+    /**
+     * Get the totals of the pool.
+     * @return The pool stats.
+     * */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Get the pool stats per route.
+     * @return Map of host:port to pool stats.
+     * */
+    public Map<String, PoolStats> getRouteStats() {
+        Map<String, PoolStats> stats = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            stats.put(route.getTargetHost().toHostString(), connectionManager.getStats(route));
+        }
+        return stats;
+    }
+
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? Math.min(keepAlive, keepAliveMs) : keepAliveMs;
+        };
+    }
+
+    private static class DeviceAuth {
+        private final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        private final AuthCache authCache = new BasicAuthCache();
+        private final String password;
+
+        DeviceAuth(String host, int port, String username, String password) {
+            this.password = password;
+            credentialsProvider.setCredentials(new AuthScope(host, port), new UsernamePasswordCredentials(username, password));
+            authCache.put(new HttpHost(host, port, "http"), new BasicScheme());
+        }
+    }
+}
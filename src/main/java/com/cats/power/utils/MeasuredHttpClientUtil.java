@@ -18,14 +18,19 @@ package com.cats.power.utils;
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import com.cats.power.service.DeviceMetrics;
 import com.cats.power.service.MeasureTime;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 
 /**
  * MeasuredHttpClientUtil class sends measured commands to the server via HTTP.
@@ -34,16 +39,32 @@ import java.io.IOException;
 @Slf4j
 public class MeasuredHttpClientUtil {
 
+    @Autowired
+    private DeviceMetrics deviceMetrics;
 
     /**
      * Sends a command to the server.
      * @param httpClient The HTTP client.
      * @param httpRequestBase The HTTP request.
-     * @return The HTTP response.
+     * @param context The request context carrying the device credentials.
+     * @return The HTTP response, to be closed by the caller.
      * */
     @MeasureTime
-    public HttpResponse measuredExecute(CloseableHttpClient httpClient, HttpRequestBase httpRequestBase) throws IOException {
-         return  httpClient.execute(httpRequestBase);
+    public CloseableHttpResponse measuredExecute(CloseableHttpClient httpClient, HttpRequestBase httpRequestBase, HttpContext context) throws IOException {
+         CloseableHttpResponse response;
+         try {
+             response = httpClient.execute(httpRequestBase, context);
+         } catch (SocketTimeoutException | ConnectTimeoutException e) {
+             deviceMetrics.recordTransportTimeout("http", httpRequestBase.getURI().getHost());
+             TransportOutcomes.failed();
+             throw e;
+         } catch (IOException e) {
+             TransportOutcomes.failed();
+             throw e;
+         }
+         // Any status code is an answer, a rejected command does not mean the device is unreachable.
+         TransportOutcomes.answered();
+         return response;
     }
 
 }
@@ -18,12 +18,15 @@ package com.cats.power.utils;
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import com.cats.power.service.DeviceMetrics;
 import com.cats.power.service.MeasureTime;
 import lombok.extern.slf4j.Slf4j;
 import org.snmp4j.CommunityTarget;
 import org.snmp4j.PDU;
-import org.snmp4j.Snmp;
 import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.IpAddress;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -35,16 +38,41 @@ import java.io.IOException;
 @Slf4j
 public class MeasuredSnmpClientUtil {
 
+    @Autowired
+    private SnmpEngine snmpEngine;
+
+    @Autowired
+    private DeviceMetrics deviceMetrics;
+
     /**
-     * Sends a command to the server.
-     * @param snmp The SNMP client.
+     * Sends a command to the server through the shared SNMP engine.
      * @param request The PDU request.
      * @param target The target.
      * @return The response event.
      * */
     @MeasureTime
-    public ResponseEvent measuredExecute(Snmp snmp, PDU request, CommunityTarget target) throws IOException {
-         return  snmp.send( request, target );
+    public ResponseEvent measuredExecute(PDU request, CommunityTarget target) throws IOException {
+         ResponseEvent response;
+         try {
+             response = snmpEngine.send( request, target );
+         } catch ( IOException e ) {
+             TransportOutcomes.failed();
+             throw e;
+         }
+         if ( response == null || response.getResponse() == null ) {
+             // SNMP4J has already used the retries of the target.
+             deviceMetrics.recordTransportTimeout( "snmp", hostOf( target ) );
+             TransportOutcomes.failed();
+         } else {
+             // Error statuses are answers too, a rejected set does not mean the device is unreachable.
+             TransportOutcomes.answered();
+         }
+         return response;
+    }
+
+    private String hostOf( CommunityTarget target ) {
+        Address address = target.getAddress();
+        return address instanceof IpAddress ? ((IpAddress) address).getInetAddress().getHostAddress() : String.valueOf( address );
     }
 
 }
@@ -24,8 +24,15 @@ package com.cats.power.utils;
  */
 
 import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.service.DeviceCircuitBreaker;
+import com.cats.power.service.DeviceCommandQueue;
+import com.cats.power.service.DeviceCommandQueue.Command;
+import com.cats.power.service.DeviceFanOutExecutor;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * PowerOutletController provides a way to control a single outlet on a PowerControllerDevice.
  */
@@ -33,26 +40,75 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 public class PowerOutletController {
     private final PowerControllerDevice powerControllerDevice;
     private final int outlet;
+    private final DeviceCommandQueue commandQueue;
+    private final DeviceCircuitBreaker circuitBreaker;
+    private final DeviceFanOutExecutor fanOutExecutor;
     
-    public PowerOutletController(PowerControllerDevice powerControllerDevice, int outlet){
+    /**
+     * @param powerControllerDevice
+     * @param outlet
+     * @param commandQueue queue the outlet commands are sent through
+     * @param circuitBreaker breaker of the status reads
+     * @param fanOutExecutor executor whose device lane runs the status reads after the queued commands
+     */
+    public PowerOutletController(PowerControllerDevice powerControllerDevice, int outlet, DeviceCommandQueue commandQueue,
+                                 DeviceCircuitBreaker circuitBreaker, DeviceFanOutExecutor fanOutExecutor){
         this.powerControllerDevice = powerControllerDevice;
         this.outlet = outlet;
+        this.commandQueue = commandQueue;
+        this.circuitBreaker = circuitBreaker;
+        this.fanOutExecutor = fanOutExecutor;
     }
     
-    public synchronized boolean powerOn(){
-        return getPowerControllerDevice().powerOn(outlet);
+    public boolean powerOn(){
+        return await(commandQueue.submit(getPowerControllerDevice(), outlet, Command.ON));
     }
     
-    public synchronized boolean powerOff(){
-        return getPowerControllerDevice().powerOff(outlet);
+    public boolean powerOff(){
+        return await(commandQueue.submit(getPowerControllerDevice(), outlet, Command.OFF));
     }
     
-    public synchronized boolean powerToggle(){
-        return getPowerControllerDevice().powerToggle(outlet);
+    public boolean powerToggle(){
+        return await(commandQueue.submit(getPowerControllerDevice(), outlet, Command.TOGGLE));
     }
     
     public String getOutletStatus(){
-        return getPowerControllerDevice().getOutletStatus(outlet);
+        return fanOutExecutor.call(getPowerControllerDevice(), device -> circuitBreaker.call(device, () -> device.getOutletStatus(outlet)));
+    }
+
+    /**
+     * Non-blocking power on, the command is queued on the device.
+     * @return future completed with the power on result
+     */
+    public CompletableFuture<Boolean> powerOnAsync(){
+        return commandQueue.submit(getPowerControllerDevice(), outlet, Command.ON);
+    }
+
+    /**
+     * Non-blocking power off, the command is queued on the device.
+     * @return future completed with the power off result
+     */
+    public CompletableFuture<Boolean> powerOffAsync(){
+        return commandQueue.submit(getPowerControllerDevice(), outlet, Command.OFF);
+    }
+
+    /**
+     * Non-blocking power toggle, the command is queued on the device.
+     * @return future completed with the power toggle result
+     */
+    public CompletableFuture<Boolean> powerToggleAsync(){
+        return commandQueue.submit(getPowerControllerDevice(), outlet, Command.TOGGLE);
+    }
+    
+    private static boolean await(CompletableFuture<Boolean> result){
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if(ex.getCause() instanceof RuntimeException){
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
     }
     
     public int getOutlet(){
@@ -25,6 +25,9 @@ package com.cats.power.utils;
 
 import com.cats.power.device.PowerControllerDevice;
 import com.cats.power.exceptions.SlotMappingException;
+import com.cats.power.service.DeviceCircuitBreaker;
+import com.cats.power.service.DeviceCommandQueue;
+import com.cats.power.service.DeviceFanOutExecutor;
 import com.cats.power.service.PowerDeviceManager;
 
 import org.slf4j.Logger;
@@ -39,9 +42,19 @@ public class PowerOutletFactory {
     private static final Logger       log               = LoggerFactory.getLogger( PowerOutletFactory.class );
 
     private final PowerDeviceManager powerDeviceManager;
+
+    private final DeviceCommandQueue commandQueue;
+
+    private final DeviceCircuitBreaker circuitBreaker;
+
+    private final DeviceFanOutExecutor fanOutExecutor;
     
-    public PowerOutletFactory(PowerDeviceManager powerDeviceManager){
+    public PowerOutletFactory(PowerDeviceManager powerDeviceManager, DeviceCommandQueue commandQueue, DeviceCircuitBreaker circuitBreaker,
+                              DeviceFanOutExecutor fanOutExecutor){
         this.powerDeviceManager = powerDeviceManager;
+        this.commandQueue = commandQueue;
+        this.circuitBreaker = circuitBreaker;
+        this.fanOutExecutor = fanOutExecutor;
     }
 
     /**
@@ -54,7 +67,7 @@ public class PowerOutletFactory {
     public PowerOutletController getPowerOutletController(String deviceId, int outlet) throws SlotMappingException {
         PowerControllerDevice device = powerDeviceManager.getPowerControllerDeviceById(deviceId);
         if(null != device){
-            return new PowerOutletController(device, outlet);
+            return new PowerOutletController(device, outlet, commandQueue, circuitBreaker, fanOutExecutor);
         }
         log.error("No controller found for " + deviceId + ":" + outlet);
         throw new SlotMappingException("No controller found for " + deviceId + ":" + outlet);
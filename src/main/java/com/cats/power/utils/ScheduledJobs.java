@@ -19,81 +19,306 @@ package com.cats.power.utils;
  */
 
 import com.cats.power.device.PowerControllerDevice;
-import com.cats.power.model.PowerDevice;
+import com.cats.power.model.DeviceConnectionState;
+import com.cats.power.service.DeviceFanOutExecutor;
 import com.cats.power.service.PowerDeviceManager;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.util.HashMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 /**
  * Scheduled Jobs for PowerDevice.
- * Gets information on versions and metadata of the devices.
+ * Reads the versions and metadata of the devices in the background and keeps them in memory, persisted so they are
+ * available right after a restart. A device is read when it connects, when it is replaced and then periodically,
+ * a failed read is retried sooner. Requests answer from memory and only wait for a device never read before.
  */
 @Service
 public class ScheduledJobs {
+    private static final Logger log = LoggerFactory.getLogger(ScheduledJobs.class);
+
+    private static final TypeReference<Map<String, Map<String, Map<String, String>>>> DOCUMENT =
+            new TypeReference<Map<String, Map<String, Map<String, String>>>>() {};
+
+    @Value("${versions.refreshMs:21600000}")
+    private long refreshMs = 21600000;
+
+    @Value("${versions.retryMs:60000}")
+    private long retryMs = 60000;
+
+    @Value("${versions.checkMs:5000}")
+    private long checkMs = 5000;
+
+    @Value("${versions.file:./powerms/versions.json}")
+    private String file = "./powerms/versions.json";
+
+    @Value("${versions.threads:2}")
+    private int threads = 2;
 
     /**
      * Map of version information.
      */
-    private static Map<String , Map<String , String>> version = new HashMap<>();
+    private final ConcurrentMap<String, Map<String, String>> version = new ConcurrentHashMap<>();
 
     /**
      * Map of metadata information.
      */
-    private static Map<String , Map<String , String>> metadata = new HashMap<>();
+    private final ConcurrentMap<String, Map<String, String>> metadata = new ConcurrentHashMap<>();
+
+    /**
+     * Time of the next read per device id, System.currentTimeMillis.
+     */
+    private final ConcurrentMap<String, Long> nextReadAt = new ConcurrentHashMap<>();
+
+    /**
+     * Device instance last seen connected per device id.
+     */
+    private final ConcurrentMap<String, PowerControllerDevice> connected = new ConcurrentHashMap<>();
 
     /**
-     * List of Power Devices.
+     * Read in flight per device id.
      */
-    private static List<PowerDevice> devices;
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final PowerDeviceManager powerDeviceManager;
+
+    private final DeviceFanOutExecutor fanOutExecutor;
+
+    private ThreadPoolExecutor executor;
+
+    private ScheduledExecutorService scheduler;
 
     @Autowired
-    PowerDeviceManager powerDeviceManager;
+    public ScheduledJobs(PowerDeviceManager powerDeviceManager, DeviceFanOutExecutor fanOutExecutor) {
+        this.powerDeviceManager = powerDeviceManager;
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "device-versions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        load();
+    }
 
-    public static void setPowerDevices(List<PowerDevice> devices) {
-        ScheduledJobs.devices = devices;
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-versions-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkDevices, 0, checkMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        executor.shutdownNow();
     }
 
     /**
-     * Set the versions map with versions of the power devices.
+     * Get the versions of every device read so far.
+     * @return Versions by device id.
      */
-    public void  getVersions() {
-    	
-    	for(PowerDevice powerDevice : devices){
-            PowerControllerDevice powerControllerDevice;
-            if(powerDevice.getUserName() != null && powerDevice.getPassword() != null) {
-                powerControllerDevice = powerDeviceManager.getPowerControllerDevice(powerDevice.getType(), powerDevice.getHost(), powerDevice.getPort(), powerDevice.getMaxPort(), powerDevice.getUserName(), powerDevice.getPassword());
-            }else{
-                powerControllerDevice = powerDeviceManager.getPowerControllerDevice(powerDevice.getType(), powerDevice.getHost(), powerDevice.getPort(), powerDevice.getMaxPort());
-            }
-            try {
-                version.put(powerDevice.getDeviceId(), powerControllerDevice.getVersions());
-            }
-            catch (Exception e) {
-                e.printStackTrace();
-            }
-            try {
-                metadata.put(powerDevice.getDeviceId(), powerControllerDevice.getMetadata());
+    public Map<String, Map<String, String>> getVersion() {
+        return Collections.unmodifiableMap(version);
+    }
+
+    /**
+     * Get the metadata of every device read so far.
+     * @return Metadata by device id.
+     */
+    public Map<String, Map<String, String>> getMetadata() {
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    /**
+     * Get the versions of a device, read from the device only if it was never read.
+     * @param deviceId The device id.
+     * @return The versions, null if they could not be read.
+     */
+    public Map<String, String> getVersion(String deviceId) {
+        awaitFirstRead(deviceId);
+        return version.get(deviceId);
+    }
+
+    /**
+     * Get the metadata of a device, read from the device only if it was never read.
+     * @param deviceId The device id.
+     * @return The metadata, null if it could not be read.
+     */
+    public Map<String, String> getMetadata(String deviceId) {
+        awaitFirstRead(deviceId);
+        return metadata.get(deviceId);
+    }
+
+    private void awaitFirstRead(String deviceId) {
+        if (version.containsKey(deviceId) && metadata.containsKey(deviceId)) {
+            return;
+        }
+        try {
+            read(powerDeviceManager.getPowerControllerDeviceById(deviceId)).join();
+        } catch (RuntimeException e) {
+            log.warn("Could not read versions of {}: {}", deviceId, e.getMessage());
+        }
+    }
+
+    /**
+     * Read the devices that connected, were replaced or are due, and forget the devices no longer configured.
+     */
+    void checkDevices() {
+        long now = System.currentTimeMillis();
+        List<PowerControllerDevice> devices = powerDeviceManager.getAllPowerDevices();
+        for (PowerControllerDevice device : devices) {
+            String id = device.getPowerInfo().getId();
+            DeviceConnectionState connection = device.getPowerInfo().getConnection();
+            if (connection == DeviceConnectionState.CONNECTING || connection == DeviceConnectionState.UNREACHABLE) {
+                connected.remove(id);
+                continue;
             }
-            catch (Exception e) {
-                e.printStackTrace();
+            boolean connectedNow = connected.put(id, device) != device;
+            if (connectedNow || now >= nextReadAt.getOrDefault(id, 0L)) {
+                read(device);
             }
         }
+        Set<String> ids = devices.stream().map(device -> device.getPowerInfo().getId()).collect(Collectors.toSet());
+        connected.keySet().retainAll(ids);
+        nextReadAt.keySet().retainAll(ids);
+        if (version.keySet().retainAll(ids) | metadata.keySet().retainAll(ids)) {
+            persist();
+        }
     }
 
+    /**
+     * Read the versions and metadata of a device in the background, joining the read in flight if there is one.
+     * @param device The device.
+     * @return Future completed once the read is done.
+     */
+    CompletableFuture<Void> read(PowerControllerDevice device) {
+        String id = device.getPowerInfo().getId();
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> existing = inFlight.putIfAbsent(id, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    readNow(device);
+                } finally {
+                    inFlight.remove(id, created);
+                    created.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(id, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
 
-    public  Map<String, Map<String,String>> getVersion() {
-    		getVersions();
-        return version;
+    private void readNow(PowerControllerDevice device) {
+        String id = device.getPowerInfo().getId();
+        boolean complete = fanOutExecutor.call(device, d -> {
+            boolean read = true;
+            try {
+                version.put(id, Collections.unmodifiableMap(new LinkedHashMap<>(d.getVersions())));
+            } catch (Exception e) {
+                read = false;
+                log.warn("Could not read versions of {}: {}", id, e.getMessage());
+            }
+            try {
+                metadata.put(id, Collections.unmodifiableMap(new LinkedHashMap<>(d.getMetadata())));
+            } catch (Exception e) {
+                read = false;
+                log.warn("Could not read metadata of {}: {}", id, e.getMessage());
+            }
+            return read;
+        });
+        nextReadAt.put(id, System.currentTimeMillis() + (complete ? refreshMs : retryMs));
+        persist();
     }
 
-    public   Map<String, Map<String,String>> getMetadata() {
-        	getVersions();
-        return metadata;
+    private void load() {
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            Map<String, Map<String, Map<String, String>>> document = mapper.readValue(in, DOCUMENT);
+            document.getOrDefault("version", Collections.emptyMap()).forEach((id, versions) -> {
+                if (versions != null) {
+                    version.put(id, Collections.unmodifiableMap(versions));
+                }
+            });
+            document.getOrDefault("metadata", Collections.emptyMap()).forEach((id, data) -> {
+                if (data != null) {
+                    metadata.put(id, Collections.unmodifiableMap(data));
+                }
+            });
+            log.info("Loaded versions of {} devices from {}", version.size(), file);
+        } catch (NoSuchFileException e) {
+            log.info("No device versions persisted in {}", file);
+        } catch (IOException e) {
+            log.warn("Could not load device versions from {}: {}", file, e.getMessage());
+        }
     }
 
+    private synchronized void persist() {
+        Map<String, Map<String, Map<String, String>>> document = new LinkedHashMap<>();
+        document.put("version", new LinkedHashMap<>(version));
+        document.put("metadata", new LinkedHashMap<>(metadata));
+        Path path = Paths.get(file);
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.write(tempFile, mapper.writeValueAsBytes(document));
+            try {
+                Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Could not persist device versions to {}: {}", file, e.getMessage());
+        }
+    }
 }
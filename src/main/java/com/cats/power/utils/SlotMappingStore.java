@@ -0,0 +1,148 @@
+package com.cats.power.utils;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * SlotMappingStore holds the slot mappings and persists them to the mappings file.
+ * Readers get an immutable snapshot, a change is applied to a copy that is written to a temporary file, forced to
+ * disk and renamed over the mappings file before the copy is published. The mappings file is therefore always either
+ * the previous or the new document, never truncated or half written.
+ */
+public class SlotMappingStore {
+    private static final Logger log = LoggerFactory.getLogger(SlotMappingStore.class);
+
+    private final Path file;
+    private final Path tempFile;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile Map<String, String> mappings = Collections.emptyMap();
+
+    public SlotMappingStore(Path file) {
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /**
+     * Load the mappings file, replacing the mappings held.
+     * @return The loaded mappings.
+     * @throws IOException If the file cannot be read or parsed, the mappings are then empty.
+     */
+    public synchronized Map<String, String> load() throws IOException {
+        mappings = Collections.emptyMap();
+        try (InputStream in = Files.newInputStream(file)) {
+            SlotToPortMappings loaded = mapper.readValue(in, SlotToPortMappings.class);
+            mappings = Collections.unmodifiableMap(new LinkedHashMap<>(loaded.getMappings()));
+        }
+        return mappings;
+    }
+
+    /**
+     * Get the current mappings.
+     * @return Immutable snapshot of slot to "device:port" mappings.
+     */
+    public Map<String, String> snapshot() {
+        return mappings;
+    }
+
+    /**
+     * Get the current mappings as a SlotToPortMappings.
+     * @return The mappings, backed by the immutable snapshot.
+     */
+    public SlotToPortMappings toSlotToPortMappings() {
+        SlotToPortMappings slotToPortMappings = new SlotToPortMappings();
+        slotToPortMappings.setMappings(mappings);
+        return slotToPortMappings;
+    }
+
+    /**
+     * Apply a change to the mappings. The change is made on a copy which is persisted before it replaces the
+     * current mappings, nothing is changed if persisting fails.
+     * @param change The change to make on the copy.
+     * @return The new mappings.
+     * @throws IOException If the mappings could not be persisted.
+     */
+    public synchronized Map<String, String> update(Consumer<Map<String, String>> change) throws IOException {
+        Map<String, String> next = new LinkedHashMap<>(mappings);
+        change.accept(next);
+        if (next.equals(mappings)) {
+            return mappings;
+        }
+        persist(next);
+        mappings = Collections.unmodifiableMap(next);
+        return mappings;
+    }
+
+    private void persist(Map<String, String> next) throws IOException {
+        SlotToPortMappings document = new SlotToPortMappings();
+        document.setMappings(next);
+        byte[] content = mapper.writeValueAsBytes(document);
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            log.warn("Atomic rename not supported for {}, replacing in place", file);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(parent);
+    }
+
+    /**
+     * Force the rename to disk. Not every platform allows opening a directory, the rename is then left to the
+     * file system.
+     */
+    private void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            log.debug("Could not sync directory {}: {}", directory, ex.getMessage());
+        }
+    }
+}
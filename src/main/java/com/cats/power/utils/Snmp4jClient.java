@@ -20,12 +20,11 @@ package com.cats.power.utils;
 
 import java.io.IOException;
 
+import com.cats.power.config.CustomApplicationContext;
 import com.cats.power.exceptions.SNMPException;
 import org.snmp4j.CommunityTarget;
 import org.snmp4j.PDU;
-import org.snmp4j.Snmp;
 import org.snmp4j.Target;
-import org.snmp4j.TransportMapping;
 import org.snmp4j.event.ResponseEvent;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.smi.Integer32;
@@ -33,10 +32,10 @@ import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.VariableBinding;
-import org.snmp4j.transport.DefaultUdpTransportMapping;
 
 /**
  * This is a possible try to keep it small and simple for use to power devices.
+ * Requests are sent through the shared {@link SnmpEngine}, no session or socket is opened per call.
  */
 public class Snmp4jClient
 {
@@ -53,14 +52,12 @@ public class Snmp4jClient
      */
     public static String get(String oId, String communityName, String targetIP, int portNumber) throws SNMPException, IOException
     {
-        Snmp snmp = new Snmp();
-        start(snmp);
         Target target = getTarget(targetIP, portNumber, communityName);
         PDU pdu = new PDU();
         pdu.add(new VariableBinding(new OID(oId)));
         pdu.setType(PDU.GET);
 
-        return processResponse(snmp.get(pdu, target));
+        return processResponse(getSnmpEngine().send(pdu, target));
 
     }
 
@@ -78,8 +75,6 @@ public class Snmp4jClient
             throws SNMPException, IOException
     {
 
-        Snmp snmp = new Snmp();
-        start(snmp);
         Target target = getTarget(targetIP, portNumber, communityName);
         final Integer intValue = Integer.parseInt(command);
         final Integer32 setInteger32Value = new Integer32(intValue);
@@ -87,18 +82,15 @@ public class Snmp4jClient
         VariableBinding varbinding = new VariableBinding(new OID(oId), setInteger32Value);
         pdu.add(varbinding);
         pdu.setType(PDU.SET);
-        return processResponse(snmp.set(pdu, target));
+        return processResponse(getSnmpEngine().send(pdu, target));
     }
 
     /**
-     * @param snmp
-     * @throws IOException
+     * @return the SNMP engine shared by all SNMP devices
      */
-    private static void start(Snmp snmp) throws IOException
+    private static SnmpEngine getSnmpEngine()
     {
-        TransportMapping transport = new DefaultUdpTransportMapping();
-        snmp.addTransportMapping(transport);
-        transport.listen();
+        return CustomApplicationContext.getBean(SnmpEngine.class);
     }
 
     /**
@@ -0,0 +1,122 @@
+package com.cats.power.utils;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.mp.MPv1;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.smi.Address;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.snmp4j.util.MultiThreadedMessageDispatcher;
+import org.snmp4j.util.ThreadPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * SnmpEngine holds the single SNMP session and UDP transport shared by all SNMP power devices.
+ * Requests are sent asynchronously, responses are matched by request id and dispatched on a small thread pool,
+ * so the number of sockets and threads does not grow with the number of devices.
+ * */
+@Component
+@Slf4j
+public class SnmpEngine {
+
+    @Value("${snmp.engine.threads:4}")
+    private int threads;
+
+    private ThreadPool threadPool;
+
+    private Snmp snmp;
+
+    @PostConstruct
+    public void init() throws IOException {
+        threadPool = ThreadPool.create("SnmpEngine", threads);
+        MultiThreadedMessageDispatcher dispatcher = new MultiThreadedMessageDispatcher(threadPool, new MessageDispatcherImpl());
+        dispatcher.addMessageProcessingModel(new MPv1());
+        dispatcher.addMessageProcessingModel(new MPv2c());
+        snmp = new Snmp(dispatcher, new DefaultUdpTransportMapping());
+        snmp.listen();
+        log.info("SNMP engine listening with {} dispatcher threads", threads);
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            snmp.close();
+        } catch (IOException e) {
+            log.warn("Exception [{}]", e.getMessage());
+        }
+        threadPool.stop();
+    }
+
+    /**
+     * Sends a PDU without blocking. The request id is assigned by the engine so it is unique across devices.
+     * @param request The PDU request.
+     * @param target The target.
+     * @return Future of the response event, the event has a null response if the request timed out.
+     * */
+    public CompletableFuture<ResponseEvent> sendAsync(PDU request, Target target) {
+        CompletableFuture<ResponseEvent> future = new CompletableFuture<>();
+        ResponseListener listener = new ResponseListener() {
+            @Override
+            public <A extends Address> void onResponse(ResponseEvent<A> event) {
+                ((Snmp) event.getSource()).cancel(event.getRequest(), this);
+                future.complete(event);
+            }
+        };
+        try {
+            snmp.send(request, target, null, listener);
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Sends a PDU and waits for the response.
+     * @param request The PDU request.
+     * @param target The target.
+     * @return The response event, the event has a null response if the request timed out.
+     * */
+    public ResponseEvent send(PDU request, Target target) throws IOException {
+        try {
+            return sendAsync(request, target).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for SNMP response", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.cats.power.utils;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+/**
+ * TransportOutcomes counts, on the calling thread, the device requests that got an answer and the ones that failed
+ * in the transport (timeouts, I/O errors). A {@link Mark} taken before a driver call tells afterwards whether the
+ * device answered, whatever the driver made of the answer.
+ * */
+public final class TransportOutcomes {
+
+    private static final ThreadLocal<long[]> COUNTS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private TransportOutcomes() {
+    }
+
+    /**
+     * Record a request the device answered.
+     * */
+    public static void answered() {
+        COUNTS.get()[0]++;
+    }
+
+    /**
+     * Record a request that got no answer from the device.
+     * */
+    public static void failed() {
+        COUNTS.get()[1]++;
+    }
+
+    /**
+     * @return The outcomes recorded so far on this thread.
+     * */
+    public static Mark mark() {
+        long[] counts = COUNTS.get();
+        return new Mark(counts[0], counts[1]);
+    }
+
+    /**
+     * Outcomes recorded on a thread at one point.
+     * */
+    public static final class Mark {
+        private final long answers;
+        private final long failures;
+
+        private Mark(long answers, long failures) {
+            this.answers = answers;
+            this.failures = failures;
+        }
+
+        /**
+         * @return true if a request on this thread got an answer since the mark.
+         * */
+        public boolean answered() {
+            return COUNTS.get()[0] > answers;
+        }
+
+        /**
+         * @return true if requests on this thread failed in the transport since the mark and none got an answer.
+         * */
+        public boolean unreachable() {
+            return !answered() && COUNTS.get()[1] > failures;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.exceptions.DeviceUnreachableException;
+import com.cats.power.model.DeviceConnectionState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which calls open the breaker of a device and how the probe closes it.
+ */
+class DeviceCircuitBreakerTest {
+
+    private AnnotationConfigApplicationContext context;
+
+    private DeviceCircuitBreaker breaker;
+
+    private StubPowerDevice device;
+
+    @BeforeEach
+    void startBreaker() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Map.of("breaker.failureThreshold", "3", "breaker.openMs", "50")));
+        context.registerBean(SimpleMeterRegistry.class);
+        context.register(DeviceMetrics.class, PowerDeviceRegistry.class, DeviceFanOutExecutor.class, DeviceCircuitBreaker.class);
+        context.refresh();
+        breaker = context.getBean(DeviceCircuitBreaker.class);
+        device = new StubPowerDevice("pdu1", 4);
+        context.getBean(PowerDeviceRegistry.class).register(device);
+    }
+
+    @AfterEach
+    void stopBreaker() {
+        context.close();
+    }
+
+    private boolean powerOn() {
+        return breaker.call(device, () -> device.powerOn(1));
+    }
+
+    private void awaitState(DeviceCircuitBreaker.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (breaker.getState(device) != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(state, breaker.getState(device));
+    }
+
+    @Test
+    void rejectedCommandsKeepTheBreakerClosed() {
+        device.rejecting = true;
+        for (int i = 0; i < 10; i++) {
+            assertFalse(powerOn());
+        }
+        assertEquals(DeviceCircuitBreaker.State.CLOSED, breaker.getState(device));
+        assertTrue(device.commands.isEmpty());
+    }
+
+    @Test
+    void driverErrorsWithoutTransportFailureKeepTheBreakerClosed() {
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IllegalArgumentException.class, () -> breaker.call(device, () -> {
+                throw new IllegalArgumentException("Invalid outlet");
+            }));
+        }
+        assertEquals(DeviceCircuitBreaker.State.CLOSED, breaker.getState(device));
+    }
+
+    @Test
+    void transportFailuresOpenTheBreakerAtTheThreshold() {
+        device.reachable = false;
+        assertFalse(powerOn());
+        assertFalse(powerOn());
+        assertEquals(DeviceCircuitBreaker.State.CLOSED, breaker.getState(device));
+        assertFalse(powerOn());
+        assertTrue(breaker.isOpen(device));
+        assertEquals(DeviceConnectionState.UNREACHABLE, device.getPowerInfo().getConnection());
+
+        device.reachable = true;
+        assertThrows(DeviceUnreachableException.class, this::powerOn);
+        assertTrue(device.commands.isEmpty());
+    }
+
+    @Test
+    void answersResetTheFailureCount() {
+        device.reachable = false;
+        powerOn();
+        powerOn();
+        device.reachable = true;
+        assertTrue(powerOn());
+        device.reachable = false;
+        powerOn();
+        powerOn();
+        assertEquals(DeviceCircuitBreaker.State.CLOSED, breaker.getState(device));
+    }
+
+    @Test
+    void probeClosesTheBreakerOnceTheDeviceAnswers() throws InterruptedException {
+        device.reachable = false;
+        for (int i = 0; i < 3; i++) {
+            powerOn();
+        }
+        assertTrue(breaker.isOpen(device));
+        Thread.sleep(200);
+        assertTrue(breaker.isOpen(device));
+
+        device.reachable = true;
+        awaitState(DeviceCircuitBreaker.State.CLOSED);
+        assertEquals(DeviceConnectionState.CONNECTED, device.getPowerInfo().getConnection());
+        assertTrue(powerOn());
+        assertEquals(1, device.commands.size());
+    }
+
+    @Test
+    void probeClosesTheBreakerOfADeviceRejectingCommands() throws InterruptedException {
+        device.rejecting = true;
+        breaker.open(device);
+        assertTrue(breaker.isOpen(device));
+
+        awaitState(DeviceCircuitBreaker.State.CLOSED);
+        assertFalse(powerOn());
+        assertEquals(DeviceCircuitBreaker.State.CLOSED, breaker.getState(device));
+    }
+}
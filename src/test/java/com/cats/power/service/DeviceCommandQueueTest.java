@@ -0,0 +1,194 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.exceptions.DeviceUnreachableException;
+import com.cats.power.service.DeviceCommandQueue.Command;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how the command queue merges the commands waiting for a busy device and the order it sends them in.
+ */
+class DeviceCommandQueueTest {
+
+    private AnnotationConfigApplicationContext context;
+
+    private DeviceCommandQueue queue;
+
+    private StubPowerDevice device;
+
+    private CountDownLatch release;
+
+    @BeforeEach
+    void startQueue() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(SimpleMeterRegistry.class);
+        context.register(DeviceMetrics.class, PowerDeviceRegistry.class, OutletStateStream.class,
+                DeviceCircuitBreaker.class, OutletStatusCache.class, DeviceFanOutExecutor.class, DeviceCommandQueue.class);
+        context.refresh();
+        queue = context.getBean(DeviceCommandQueue.class);
+        device = new StubPowerDevice("pdu1", 4);
+        context.getBean(PowerDeviceRegistry.class).register(device);
+    }
+
+    @AfterEach
+    void stopQueue() {
+        if (release != null) {
+            release.countDown();
+        }
+        context.close();
+    }
+
+    /**
+     * Keep the device lane busy until {@link #release} counts down, commands submitted meanwhile wait in the queue.
+     */
+    private void holdDevice() {
+        release = new CountDownLatch(1);
+        context.getBean(DeviceFanOutExecutor.class).submit(device, d -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+    }
+
+    private static boolean result(CompletableFuture<Boolean> future) {
+        return future.orTimeout(10, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void laterOnOrOffReplacesWaitingCommand() {
+        holdDevice();
+        CompletableFuture<Boolean> on = queue.submit(device, 1, Command.ON);
+        CompletableFuture<Boolean> off = queue.submit(device, 1, Command.OFF);
+        release.countDown();
+
+        assertTrue(result(on));
+        assertTrue(result(off));
+        assertEquals(List.of("OFF 1"), device.commands);
+    }
+
+    @Test
+    void repeatedCommandIsSentOnce() {
+        holdDevice();
+        CompletableFuture<Boolean> first = queue.submit(device, 2, Command.TOGGLE);
+        CompletableFuture<Boolean> second = queue.submit(device, 2, Command.TOGGLE);
+        release.countDown();
+
+        assertTrue(result(first));
+        assertTrue(result(second));
+        assertEquals(List.of("TOGGLE 2"), device.commands);
+    }
+
+    @Test
+    void waitingCommandsAreBatchedByCommand() {
+        holdDevice();
+        CompletableFuture<Map<Integer, Boolean>> on = queue.submitAll(device, List.of(1, 2), Command.ON);
+        CompletableFuture<Boolean> off = queue.submit(device, 3, Command.OFF);
+        CompletableFuture<Boolean> onAgain = queue.submit(device, 4, Command.ON);
+        release.countDown();
+
+        assertEquals(Map.of(1, true, 2, true), on.orTimeout(10, TimeUnit.SECONDS).join());
+        assertTrue(result(off));
+        assertTrue(result(onAgain));
+        // One round, sent as an OFF batch then an ON batch.
+        assertEquals(List.of("OFF 3", "ON 1", "ON 2", "ON 4"), device.commands);
+    }
+
+    @Test
+    void rebootKeepsItsPlaceBetweenOnAndOff() {
+        holdDevice();
+        queue.submit(device, 1, Command.OFF);
+        queue.submit(device, 1, Command.TOGGLE);
+        CompletableFuture<Boolean> last = queue.submit(device, 1, Command.ON);
+        release.countDown();
+
+        assertTrue(result(last));
+        assertEquals(List.of("OFF 1", "TOGGLE 1", "ON 1"), device.commands);
+    }
+
+    @Test
+    void commandsOfIdleDeviceAreSentInOrder() {
+        assertTrue(result(queue.submit(device, 1, Command.OFF)));
+        assertTrue(result(queue.submit(device, 1, Command.ON)));
+        assertTrue(result(queue.submit(device, 1, Command.OFF)));
+
+        assertEquals(List.of("OFF 1", "ON 1", "OFF 1"), device.commands);
+    }
+
+    @Test
+    void commandRefreshesCachedStatus() {
+        OutletStatusCache cache = context.getBean(OutletStatusCache.class);
+        assertEquals("ON", cache.getOutlets(device, 60000).get(0).getStatus());
+
+        assertTrue(result(queue.submit(device, 1, Command.OFF)));
+
+        assertEquals("OFF", cache.getOutlets(device, 60000).get(0).getStatus());
+    }
+
+    @Test
+    void statusReadWaitsForQueuedCommands() throws Exception {
+        OutletStatusCache cache = context.getBean(OutletStatusCache.class);
+        holdDevice();
+        CompletableFuture<Boolean> off = queue.submit(device, 1, Command.OFF);
+        CompletableFuture<String> status = CompletableFuture.supplyAsync(() -> cache.refresh(device).get(0).getStatus());
+        Thread.sleep(100);
+        assertEquals(0, device.statusReads.get());
+        release.countDown();
+
+        assertTrue(result(off));
+        assertEquals("OFF", status.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void statusReadFromTheDeviceLaneRunsAtOnce() {
+        OutletStatusCache cache = context.getBean(OutletStatusCache.class);
+        CompletableFuture<String> status = context.getBean(DeviceFanOutExecutor.class)
+                .submit(device, d -> cache.refresh(d).get(0).getStatus());
+
+        assertEquals("ON", status.orTimeout(10, TimeUnit.SECONDS).join());
+    }
+
+    @Test
+    void openBreakerFailsCommandsWithoutSending() {
+        context.getBean(DeviceCircuitBreaker.class).open(device);
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> queue.submit(device, 1, Command.ON).join());
+
+        assertTrue(ex.getCause() instanceof DeviceUnreachableException);
+        assertTrue(device.commands.isEmpty());
+    }
+}
@@ -0,0 +1,143 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.model.OutletInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the status cache never serves a status read before a command as fresh.
+ */
+class OutletStatusCacheTest {
+
+    private static final long TTL_MS = 60000;
+
+    private AnnotationConfigApplicationContext context;
+
+    private OutletStatusCache cache;
+
+    private StubPowerDevice device;
+
+    @BeforeEach
+    void startCache() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(SimpleMeterRegistry.class);
+        context.register(DeviceMetrics.class, PowerDeviceRegistry.class, OutletStateStream.class,
+                DeviceCircuitBreaker.class, DeviceFanOutExecutor.class, OutletStatusCache.class);
+        context.refresh();
+        cache = context.getBean(OutletStatusCache.class);
+        device = new StubPowerDevice("pdu1", 4);
+        context.getBean(PowerDeviceRegistry.class).register(device);
+    }
+
+    @AfterEach
+    void stopCache() {
+        context.close();
+    }
+
+    @Test
+    void servesFreshStatusFromMemory() {
+        cache.getOutlets(device, TTL_MS);
+        cache.getOutlets(device, TTL_MS);
+
+        assertEquals(1, device.statusReads.get());
+    }
+
+    @Test
+    void readsAgainAfterInvalidate() {
+        cache.getOutlets(device, TTL_MS);
+        device.powerOff(2);
+        cache.invalidate(device);
+
+        assertEquals("OFF", cache.getOutlets(device, TTL_MS).get(1).getStatus());
+        assertEquals(2, device.statusReads.get());
+    }
+
+    @Test
+    void readStartedBeforeCommandIsNotFresh() {
+        // The command lands while the read is in flight, the read still returns the state before it.
+        device.duringRead = () -> {
+            device.powerOff(1);
+            cache.invalidate(device);
+        };
+        assertEquals("ON", cache.refresh(device).get(0).getStatus());
+
+        assertEquals("OFF", cache.getOutlets(device, TTL_MS).get(0).getStatus());
+        assertEquals(2, device.statusReads.get());
+    }
+
+    @Test
+    void concurrentReadsShareTheReadInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        device.duringRead = () -> await(release);
+        CompletableFuture<List<OutletInfo>> first = CompletableFuture.supplyAsync(() -> cache.refresh(device));
+        waitForReads(1);
+        CompletableFuture<List<OutletInfo>> second = CompletableFuture.supplyAsync(() -> cache.getOutlets(device, 0));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("ON", second.get(5, TimeUnit.SECONDS).get(0).getStatus());
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(1, device.statusReads.get());
+    }
+
+    @Test
+    void callerAfterCommandDoesNotJoinOlderRead() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        device.duringRead = () -> await(release);
+        CompletableFuture<List<OutletInfo>> before = CompletableFuture.supplyAsync(() -> cache.refresh(device));
+        waitForReads(1);
+        device.powerOff(1);
+        cache.invalidate(device);
+        CompletableFuture<String> after = CompletableFuture.supplyAsync(() -> cache.getOutlets(device, 0).get(0).getStatus());
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("OFF", after.get(5, TimeUnit.SECONDS));
+        before.get(5, TimeUnit.SECONDS);
+        assertEquals(2, device.statusReads.get());
+        assertEquals("OFF", cache.getOutlets(device, TTL_MS).get(0).getStatus());
+    }
+
+    private void waitForReads(int reads) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (device.statusReads.get() < reads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
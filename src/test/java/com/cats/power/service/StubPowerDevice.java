@@ -0,0 +1,168 @@
+package com.cats.power.service;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.utils.TransportOutcomes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Device answering from memory, with the outlet states the tests set and a count of the status reads. Every call
+ * reports its transport outcome like the real transports do.
+ */
+class StubPowerDevice extends PowerControllerDevice {
+
+    private final String[] states;
+
+    final AtomicInteger statusReads = new AtomicInteger();
+
+    /**
+     * Outlet commands received, in order, as "ON 1".
+     */
+    final List<String> commands = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Runs once a status read got its answer, before the answer is stored, then is cleared.
+     */
+    volatile Runnable duringRead;
+
+    /**
+     * false to fail every request in the transport, as a device that stopped answering.
+     */
+    volatile boolean reachable = true;
+
+    /**
+     * true to refuse the outlet commands, as a device answering with an error.
+     */
+    volatile boolean rejecting;
+
+    StubPowerDevice(String id, int outlets) {
+        powerInfo.setId(id);
+        powerInfo.setIp("10.0.0." + Math.abs(id.hashCode() % 250 + 1));
+        powerInfo.setNumOfOutlets(outlets);
+        List<OutletInfo> outletList = new ArrayList<>();
+        states = new String[outlets + 1];
+        for (int i = 1; i <= outlets; i++) {
+            OutletInfo outletInfo = new OutletInfo();
+            outletInfo.setOutlet(i);
+            outletList.add(outletInfo);
+            states[i] = ON;
+        }
+        powerInfo.setOutlets(outletList);
+    }
+
+    synchronized void setState(int outlet, String state) {
+        states[outlet] = state;
+    }
+
+    /**
+     * @return true if the request got an answer.
+     */
+    private boolean request() {
+        if (reachable) {
+            TransportOutcomes.answered();
+            return true;
+        }
+        TransportOutcomes.failed();
+        return false;
+    }
+
+    private boolean command(String command, int outlet, String state) {
+        if (!request() || rejecting) {
+            return false;
+        }
+        commands.add(command + " " + outlet);
+        setState(outlet, state);
+        return true;
+    }
+
+    @Override
+    public boolean powerOn(int outlet) {
+        return command(ON, outlet, ON);
+    }
+
+    @Override
+    public boolean powerOff(int outlet) {
+        return command(OFF, outlet, OFF);
+    }
+
+    @Override
+    public boolean powerToggle(int outlet) {
+        return command("TOGGLE", outlet, ON);
+    }
+
+    @Override
+    public String getOutletStatus(int outlet) {
+        if (!request()) {
+            return null;
+        }
+        synchronized (this) {
+            return states[outlet];
+        }
+    }
+
+    @Override
+    public List<OutletInfo> retrieveOutletStatus() {
+        statusReads.incrementAndGet();
+        if (!request()) {
+            return powerInfo.getOutlets();
+        }
+        String[] read;
+        synchronized (this) {
+            read = states.clone();
+        }
+        Runnable hook = duringRead;
+        duringRead = null;
+        if (hook != null) {
+            hook.run();
+        }
+        for (int i = 1; i < read.length; i++) {
+            powerInfo.setOutletStatus(i, read[i]);
+        }
+        return powerInfo.getOutlets();
+    }
+
+    @Override
+    public void createPowerDevConn() {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public Boolean powerOnAllOutlets() {
+        return true;
+    }
+
+    @Override
+    public Boolean powerOffAllOutlets() {
+        return true;
+    }
+
+    @Override
+    public Boolean rebootAllOutlets() {
+        return true;
+    }
+}
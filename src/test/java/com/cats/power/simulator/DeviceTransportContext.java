@@ -0,0 +1,93 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.config.CustomApplicationContext;
+import com.cats.power.device.PowerControllerDevice;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.service.DeviceMetrics;
+import com.cats.power.utils.AsyncHttpClientUtil;
+import com.cats.power.utils.HttpClientUtil;
+import com.cats.power.utils.HttpConnectionPool;
+import com.cats.power.utils.MeasuredHttpClientUtil;
+import com.cats.power.utils.MeasuredSnmpClientUtil;
+import com.cats.power.utils.SnmpEngine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Smallest context the device drivers need: the HTTP and SNMP transports they look up through
+ * {@link CustomApplicationContext}. Lets the drivers talk to the simulators without starting the service.
+ */
+final class DeviceTransportContext {
+
+    private DeviceTransportContext() {
+    }
+
+    /**
+     * @return a started context, close it when done
+     */
+    static AnnotationConfigApplicationContext start() {
+        return start(Map.of());
+    }
+
+    /**
+     * @param properties properties of the extra services
+     * @param services services to run with the transports
+     * @return a started context, close it when done
+     */
+    static AnnotationConfigApplicationContext start(Map<String, Object> properties, Class<?>... services) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.registerBean(SimpleMeterRegistry.class);
+        context.register(CustomApplicationContext.class, DeviceMetrics.class, HttpConnectionPool.class,
+                MeasuredHttpClientUtil.class, HttpClientUtil.class, AsyncHttpClientUtil.class,
+                SnmpEngine.class, MeasuredSnmpClientUtil.class);
+        if (services.length > 0) {
+            context.register(services);
+        }
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * Gives a driver the outlets of the simulated PDU, like the device factory does on startup.
+     * @param device
+     * @param outlets
+     * @return the device
+     */
+    static <T extends PowerControllerDevice> T withOutlets(T device, int outlets) {
+        device.getPowerInfo().setNumOfOutlets(outlets);
+        List<OutletInfo> outletList = new ArrayList<>();
+        for (int i = 1; i <= outlets; i++) {
+            OutletInfo outletInfo = new OutletInfo();
+            outletInfo.setOutlet(i);
+            outletInfo.setStatus("UNKNOWN");
+            outletList.add(outletInfo);
+        }
+        device.getPowerInfo().setOutlets(outletList);
+        return device;
+    }
+}
@@ -0,0 +1,102 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.util.Map;
+
+/**
+ * Digital Logger web power switch with the legacy web interface: the {@code /status} and {@code /index.htm}
+ * state pages, the {@code /outlet?<n>=ON|OFF|CCL} commands ({@code a} addresses every outlet) and the
+ * {@code /support.htm} version page. The state is a hex bit vector, so at most 8 outlets are supported.
+ */
+public class DigitalLoggerHttpSimulator extends HttpPduSimulator {
+
+    static final String FIRMWARE_VERSION = "1.7.5";
+
+    static final String HARDWARE_VERSION = "LPC7";
+
+    static final String SERIAL_NUMBER = "DLI0000123";
+
+    public DigitalLoggerHttpSimulator(int outlets, NetworkConditions conditions) {
+        super(outlets, conditions);
+        if (outlets > 8) {
+            throw new IllegalArgumentException("The legacy web interface reports at most 8 outlets");
+        }
+    }
+
+    @Override
+    protected void registerPages() {
+        page("/status", exchange -> Response.html(statusPage()));
+        page("/index.htm", exchange -> Response.html(indexPage()));
+        page("/outlet", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            if (query == null || !query.contains("=")) {
+                throw new IllegalArgumentException("Missing outlet command");
+            }
+            String[] command = query.split("=", 2);
+            apply(command[0], command[1]);
+            return Response.html(indexPage());
+        });
+        page("/support.htm", exchange -> Response.html(supportPage()));
+    }
+
+    private void apply(String target, String action) {
+        boolean all = "a".equals(target);
+        int outlet = all ? 0 : outlet(target);
+        switch (action) {
+            case "ON":
+            case "OFF":
+                if (all) {
+                    outlets.setAll("ON".equals(action));
+                } else {
+                    outlets.set(outlet, "ON".equals(action));
+                }
+                break;
+            case "CCL":
+                if (all) {
+                    outlets.cycleAll();
+                } else {
+                    outlets.cycle(outlet);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown outlet command " + action);
+        }
+    }
+
+    private String state() {
+        return String.format("%02x", outlets.mask());
+    }
+
+    private String statusPage() {
+        return "<html><body>\n<div id=\"model\">" + HARDWARE_VERSION + "</div>\n<div id=\"state\">" + state()
+                + "</div>\n<div id=\"lock\">00</div>\n</body></html>";
+    }
+
+    private String indexPage() {
+        return "<html>\n<!-- state=" + state() + " lock=00 -->\n<head><title>Outlet Control</title></head>\n<body></body>\n</html>";
+    }
+
+    private String supportPage() {
+        StringBuilder page = new StringBuilder("<html><body><table>\n");
+        Map.of("Firmware version", FIRMWARE_VERSION, "Hardware version", HARDWARE_VERSION, "Serial Number", SERIAL_NUMBER)
+                .forEach((key, value) -> page.append("<tr><td>").append(key).append("</td>\n<td>").append(value).append("</td></tr>\n"));
+        return page.append("</table></body></html>").toString();
+    }
+}
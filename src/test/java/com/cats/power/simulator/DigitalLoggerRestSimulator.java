@@ -0,0 +1,130 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Digital Logger web power switch REST API under {@code /restapi/relay/outlets/}.
+ * An outlet selector is an outlet number, a matrix {@code =1,2,3} or {@code all;}, followed by
+ * {@code state/} (GET, PUT true|false), {@code physical_state/} (GET) or {@code cycle/} (POST).
+ * Outlets are addressed with the numbers the driver uses and are named "Outlet n".
+ * Single outlets answer a bare value, matrix and {@code all;} selectors a JSON array.
+ */
+public class DigitalLoggerRestSimulator extends HttpPduSimulator {
+
+    static final String OUTLETS_PATH = "/restapi/relay/outlets/";
+
+    static final String CORE_FIRMWARE = "1.10.11.0";
+
+    static final String FRONT_END_FIRMWARE = "1.8.23";
+
+    static final String HARDWARE_ID = "DLI PRO";
+
+    static final String SERIAL_NUMBER = "DLIREST0042";
+
+    public DigitalLoggerRestSimulator(int outlets, NetworkConditions conditions) {
+        super(outlets, conditions);
+    }
+
+    @Override
+    protected void registerPages() {
+        page(OUTLETS_PATH, this::outlets);
+        page("/restapi/relay/version", exchange -> Response.json(quoted(CORE_FIRMWARE)));
+        page("/restapi/config/version", exchange -> Response.json(quoted(FRONT_END_FIRMWARE)));
+        page("/restapi/config/hardware_id", exchange -> Response.json(quoted(HARDWARE_ID)));
+        page("/restapi/config/serial", exchange -> Response.json(quoted(SERIAL_NUMBER)));
+    }
+
+    private Response outlets(HttpExchange exchange) throws java.io.IOException {
+        String path = exchange.getRequestURI().getPath().substring(OUTLETS_PATH.length());
+        String method = exchange.getRequestMethod();
+        if (path.isEmpty()) {
+            return Response.json(outletList());
+        }
+        String[] parts = path.split("/");
+        if (parts.length != 2) {
+            return Response.error(404, "Not found");
+        }
+        boolean single = !parts[0].startsWith("=") && !"all;".equals(parts[0]);
+        List<Integer> selected = select(parts[0]);
+        switch (parts[1]) {
+            case "state":
+                if ("PUT".equals(method)) {
+                    boolean on = Boolean.parseBoolean(body(exchange));
+                    selected.forEach(outlet -> outlets.set(outlet, on));
+                    return Response.json("");
+                }
+                return Response.json(states(selected, single));
+            case "physical_state":
+                return Response.json(states(selected, single));
+            case "cycle":
+                if (!"POST".equals(method)) {
+                    return Response.error(405, "Method not allowed");
+                }
+                selected.forEach(outlets::cycle);
+                return Response.json("");
+            default:
+                return Response.error(404, "Not found");
+        }
+    }
+
+    private List<Integer> select(String selector) {
+        List<Integer> selected = new ArrayList<>();
+        if ("all;".equals(selector)) {
+            for (int outlet = 1; outlet <= outlets.size(); outlet++) {
+                selected.add(outlet);
+            }
+        } else if (selector.startsWith("=")) {
+            for (String outlet : selector.substring(1).split(",")) {
+                selected.add(outlet(outlet));
+            }
+        } else {
+            selected.add(outlet(selector));
+        }
+        return selected;
+    }
+
+    private String states(List<Integer> selected, boolean single) {
+        if (single) {
+            return String.valueOf(outlets.isOn(selected.get(0)));
+        }
+        StringJoiner states = new StringJoiner(",", "[", "]");
+        selected.forEach(outlet -> states.add(String.valueOf(outlets.isOn(outlet))));
+        return states.toString();
+    }
+
+    private String outletList() {
+        StringJoiner list = new StringJoiner(",", "[", "]");
+        for (int outlet = 1; outlet <= outlets.size(); outlet++) {
+            boolean on = outlets.isOn(outlet);
+            list.add("{\"name\":\"Outlet " + outlet + "\",\"locked\":false,\"critical\":false,\"transient_state\":" + on
+                    + ",\"physical_state\":" + on + ",\"cycle_delay\":null,\"state\":" + on + "}");
+        }
+        return list.toString();
+    }
+
+    private static String quoted(String value) {
+        return "\"" + value + "\"";
+    }
+}
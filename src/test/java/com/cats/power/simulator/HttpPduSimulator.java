@@ -0,0 +1,185 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Base of the simulated PDUs with a web interface, served by the JDK HTTP server.
+ * Dropped requests get no response, their connection is closed.
+ */
+public abstract class HttpPduSimulator extends PduSimulator {
+
+    /**
+     * Response of a simulated page.
+     */
+    protected static final class Response {
+        final int status;
+        final String body;
+        final String contentType;
+
+        Response(int status, String body, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+        }
+
+        static Response text(String body) {
+            return new Response(200, body, "text/plain");
+        }
+
+        static Response html(String body) {
+            return new Response(200, body, "text/html");
+        }
+
+        static Response json(String body) {
+            return new Response(200, body, "application/json");
+        }
+
+        static Response error(int status, String body) {
+            return new Response(status, body, "text/plain");
+        }
+    }
+
+    /**
+     * Page of the simulated web interface.
+     */
+    @FunctionalInterface
+    protected interface Page {
+        Response respond(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Aborts the handler of a dropped request.
+     */
+    private static final class DroppedRequestException extends RuntimeException {
+        DroppedRequestException() {
+            super("dropped", null, false, false);
+        }
+    }
+
+    private HttpServer server;
+
+    private ExecutorService workers;
+
+    protected HttpPduSimulator(int outlets, NetworkConditions conditions) {
+        super(outlets, conditions);
+    }
+
+    @Override
+    public PduSimulator start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 128);
+        workers = workers(getClass().getSimpleName());
+        server.setExecutor(workers);
+        registerPages();
+        server.start();
+        return this;
+    }
+
+    /**
+     * Registers the pages of the device with {@link #page(String, Page)}.
+     */
+    protected abstract void registerPages();
+
+    /**
+     * @param path path prefix handled by the page
+     * @param page
+     */
+    protected void page(String path, Page page) {
+        server.createContext(path, exchange -> {
+            boolean answered = link.exchange(() -> {
+                Response response;
+                try {
+                    response = page.respond(exchange);
+                } catch (IllegalArgumentException e) {
+                    response = Response.error(400, String.valueOf(e.getMessage()));
+                }
+                send(exchange, response);
+            });
+            if (!answered) {
+                // the JDK server drops the connection of a failed handler, the client sees a reset
+                throw new DroppedRequestException();
+            }
+            exchange.close();
+        });
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * @param exchange
+     * @return the request body as text
+     * @throws IOException
+     */
+    protected static String body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    /**
+     * @param value
+     * @return the outlet number
+     * @throws IllegalArgumentException if the value is not an outlet of this PDU
+     */
+    protected int outlet(String value) {
+        int outlet;
+        try {
+            outlet = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not an outlet: " + value);
+        }
+        if (!outlets.contains(outlet)) {
+            throw new IllegalArgumentException("No outlet " + outlet);
+        }
+        return outlet;
+    }
+
+    @Override
+    public int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.DigitalLoggerHttpPowerControllerDevice;
+import com.cats.power.device.DigitalLoggerRestHttpPowerControllerDevice;
+import com.cats.power.device.SynaccessHttpPowerControllerDevice;
+import com.cats.power.model.OutletInfo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the HTTP device drivers against the simulated web interfaces.
+ */
+class HttpPduSimulatorTest {
+
+    private static AnnotationConfigApplicationContext context;
+
+    @BeforeAll
+    static void startTransports() {
+        context = DeviceTransportContext.start();
+    }
+
+    @AfterAll
+    static void stopTransports() {
+        context.close();
+    }
+
+    @Test
+    void synaccessHttpDriverSwitchesAndReadsOutlets() throws Exception {
+        try (SynaccessHttpSimulator simulator = new SynaccessHttpSimulator(8, NetworkConditions.IDEAL)) {
+            simulator.start();
+            SynaccessHttpPowerControllerDevice device = DeviceTransportContext.withOutlets(
+                    new SynaccessHttpPowerControllerDevice("127.0.0.1", simulator.getPort(), "admin", "admin"), 8);
+
+            assertTrue(device.powerOff(3));
+            assertFalse(simulator.getOutlets().isOn(3));
+            List<OutletInfo> outlets = device.retrieveOutletStatus();
+            assertEquals("OFF", outlets.get(2).getStatus());
+            assertEquals("ON", outlets.get(7).getStatus());
+
+            assertTrue(device.powerOffAllOutlets());
+            assertEquals("OFF", device.getOutletStatus(8));
+            assertTrue(device.powerOnAllOutlets());
+            assertEquals("ON", device.getOutletStatus(3));
+        }
+    }
+
+    @Test
+    void digitalLoggerDriverReadsTheStatusPage() throws Exception {
+        try (DigitalLoggerHttpSimulator simulator = new DigitalLoggerHttpSimulator(8, NetworkConditions.IDEAL)) {
+            simulator.start();
+            DigitalLoggerHttpPowerControllerDevice device = DeviceTransportContext.withOutlets(
+                    new DigitalLoggerHttpPowerControllerDevice("127.0.0.1", simulator.getPort(), "admin", "1234"), 8);
+
+            simulator.getOutlets().set(2, false);
+            simulator.getOutlets().set(8, false);
+            List<OutletInfo> outlets = device.retrieveOutletStatus();
+            assertEquals("ON", outlets.get(0).getStatus());
+            assertEquals("OFF", outlets.get(1).getStatus());
+            assertEquals("OFF", outlets.get(7).getStatus());
+
+            assertTrue(device.powerOnAllOutlets());
+            assertTrue(simulator.getOutlets().isOn(2));
+            assertEquals(DigitalLoggerHttpSimulator.FIRMWARE_VERSION, device.getVersions().get("firmwareVersion"));
+        }
+    }
+
+    @Test
+    void digitalLoggerRestDriverReadsAndBatchesOutlets() throws Exception {
+        try (DigitalLoggerRestSimulator simulator = new DigitalLoggerRestSimulator(8, NetworkConditions.IDEAL)) {
+            simulator.start();
+            DigitalLoggerRestHttpPowerControllerDevice device = DeviceTransportContext.withOutlets(
+                    new DigitalLoggerRestHttpPowerControllerDevice("127.0.0.1", simulator.getPort(), "admin", "1234"), 8);
+
+            simulator.getOutlets().set(5, false);
+            List<OutletInfo> outlets = device.retrieveOutletStatus();
+            assertEquals("OFF", outlets.get(4).getStatus());
+            assertEquals("ON", outlets.get(5).getStatus());
+            assertEquals("false", device.getOutletStatus(5));
+
+            Map<Integer, Boolean> results = device.powerOffOutlets(List.of(1, 2));
+            assertEquals(Map.of(1, true, 2, true), results);
+            assertEquals("[false,false,true,true,false,true,true,true]", device.getAllOutletStatuses());
+            assertEquals(DigitalLoggerRestSimulator.SERIAL_NUMBER, device.getMetadata().get("serialNumber"));
+        }
+    }
+
+    @Test
+    void concurrencyLimitQueuesRequests() throws Exception {
+        NetworkConditions conditions = NetworkConditions.IDEAL.withLatency(50, 0).withMaxConcurrency(1);
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try (SynaccessHttpSimulator simulator = new SynaccessHttpSimulator(8, conditions)) {
+            simulator.start();
+            List<CompletableFuture<Boolean>> commands = new ArrayList<>();
+            for (int outlet = 1; outlet <= 4; outlet++) {
+                SynaccessHttpPowerControllerDevice device = DeviceTransportContext.withOutlets(
+                        new SynaccessHttpPowerControllerDevice("127.0.0.1", simulator.getPort(), "admin", "admin"), 8);
+                int target = outlet;
+                commands.add(CompletableFuture.supplyAsync(() -> device.powerOff(target), clients));
+            }
+            long start = System.nanoTime();
+            commands.forEach(command -> assertTrue(command.join()));
+
+            assertEquals(1, simulator.getLink().getPeakConcurrency());
+            assertEquals(4, simulator.getLink().getRequests());
+            assertTrue(System.nanoTime() - start >= 150_000_000L, "requests were not serialized");
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    void lostRequestsGetNoAnswer() throws Exception {
+        try (SynaccessHttpSimulator simulator = new SynaccessHttpSimulator(8, NetworkConditions.IDEAL.withLoss(1.0))) {
+            simulator.start();
+            SynaccessHttpPowerControllerDevice device = DeviceTransportContext.withOutlets(
+                    new SynaccessHttpPowerControllerDevice("127.0.0.1", simulator.getPort(), "admin", "admin"), 8);
+
+            assertNull(device.transmit("http://127.0.0.1:" + simulator.getPort() + "/cmd.cgi?$A5%201"));
+            assertTrue(simulator.getLink().getDropped() > 0);
+            assertTrue(simulator.getOutlets().isOn(1));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.util.Random;
+
+/**
+ * Network behaviour applied to every request a simulated PDU answers: latency, jitter, loss and how many
+ * requests the device handles at once. Instances are immutable, the {@code with} methods return copies.
+ */
+public final class NetworkConditions {
+
+    /**
+     * Instant, lossless answers without a concurrency limit.
+     */
+    public static final NetworkConditions IDEAL = new NetworkConditions(0, 0, 0.0, 0);
+
+    private final long latencyMs;
+
+    private final long jitterMs;
+
+    private final double lossRate;
+
+    private final int maxConcurrency;
+
+    private NetworkConditions(long latencyMs, long jitterMs, double lossRate, int maxConcurrency) {
+        if (latencyMs < 0 || jitterMs < 0) {
+            throw new IllegalArgumentException("Latency and jitter cannot be negative");
+        }
+        if (lossRate < 0.0 || lossRate > 1.0) {
+            throw new IllegalArgumentException("Loss rate must be between 0 and 1");
+        }
+        if (maxConcurrency < 0) {
+            throw new IllegalArgumentException("Concurrency limit cannot be negative");
+        }
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.lossRate = lossRate;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @param latencyMs mean delay before the device answers
+     * @param jitterMs the delay varies uniformly by up to this much either way
+     * @return copy with the given latency
+     */
+    public NetworkConditions withLatency(long latencyMs, long jitterMs) {
+        return new NetworkConditions(latencyMs, jitterMs, lossRate, maxConcurrency);
+    }
+
+    /**
+     * @param lossRate share of requests, between 0 and 1, that are never answered
+     * @return copy with the given loss
+     */
+    public NetworkConditions withLoss(double lossRate) {
+        return new NetworkConditions(latencyMs, jitterMs, lossRate, maxConcurrency);
+    }
+
+    /**
+     * @param maxConcurrency requests handled at once, further requests wait. 0 means unlimited.
+     * @return copy with the given limit
+     */
+    public NetworkConditions withMaxConcurrency(int maxConcurrency) {
+        return new NetworkConditions(latencyMs, jitterMs, lossRate, maxConcurrency);
+    }
+
+    public long getLatencyMs() {
+        return latencyMs;
+    }
+
+    public long getJitterMs() {
+        return jitterMs;
+    }
+
+    public double getLossRate() {
+        return lossRate;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @param random
+     * @return delay for the next answer, never negative
+     */
+    long nextDelayMs(Random random) {
+        if (jitterMs == 0) {
+            return latencyMs;
+        }
+        long jitter = (long) ((random.nextDouble() * 2 - 1) * jitterMs);
+        return Math.max(0, latencyMs + jitter);
+    }
+
+    /**
+     * @param random
+     * @return true if the next request must be dropped
+     */
+    boolean nextDropped(Random random) {
+        return lossRate > 0.0 && random.nextDouble() < lossRate;
+    }
+
+    @Override
+    public String toString() {
+        return "latency=" + latencyMs + "ms jitter=" + jitterMs + "ms loss=" + lossRate + " maxConcurrency=" + maxConcurrency;
+    }
+}
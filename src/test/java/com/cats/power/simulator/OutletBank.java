@@ -0,0 +1,141 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outlet states of a simulated PDU, numbered from 1. Every outlet starts ON.
+ */
+public class OutletBank {
+
+    private final AtomicIntegerArray states;
+
+    private final AtomicLong commands = new AtomicLong();
+
+    private final AtomicLong cycles = new AtomicLong();
+
+    public OutletBank(int outlets) {
+        if (outlets < 1) {
+            throw new IllegalArgumentException("A PDU needs at least one outlet");
+        }
+        states = new AtomicIntegerArray(outlets);
+        for (int i = 0; i < outlets; i++) {
+            states.set(i, 1);
+        }
+    }
+
+    public int size() {
+        return states.length();
+    }
+
+    public boolean contains(int outlet) {
+        return outlet >= 1 && outlet <= states.length();
+    }
+
+    public boolean isOn(int outlet) {
+        return states.get(index(outlet)) == 1;
+    }
+
+    public void set(int outlet, boolean on) {
+        states.set(index(outlet), on ? 1 : 0);
+        commands.incrementAndGet();
+    }
+
+    public void setAll(boolean on) {
+        for (int i = 0; i < states.length(); i++) {
+            states.set(i, on ? 1 : 0);
+        }
+        commands.incrementAndGet();
+    }
+
+    /**
+     * Power cycles an outlet. The simulated outlet is back ON immediately.
+     * @param outlet
+     */
+    public void cycle(int outlet) {
+        states.set(index(outlet), 1);
+        commands.incrementAndGet();
+        cycles.incrementAndGet();
+    }
+
+    public void cycleAll() {
+        setAll(true);
+        cycles.incrementAndGet();
+    }
+
+    /**
+     * @return number of state changing commands received
+     */
+    public long getCommandCount() {
+        return commands.get();
+    }
+
+    public long getCycleCount() {
+        return cycles.get();
+    }
+
+    /**
+     * @param highestFirst order of the outlets in the result
+     * @return one '1' (ON) or '0' (OFF) per outlet
+     */
+    public String bits(boolean highestFirst) {
+        StringBuilder bits = new StringBuilder(states.length());
+        for (int i = 0; i < states.length(); i++) {
+            int outlet = highestFirst ? states.length() - i : i + 1;
+            bits.append(isOn(outlet) ? '1' : '0');
+        }
+        return bits.toString();
+    }
+
+    /**
+     * @return bit mask of the ON outlets, outlet 1 being the lowest bit
+     */
+    public int mask() {
+        int mask = 0;
+        for (int i = 0; i < Math.min(states.length(), 31); i++) {
+            if (states.get(i) == 1) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param on value of an ON outlet
+     * @param off value of an OFF outlet
+     * @return the outlet states in order, comma separated
+     */
+    public String join(String on, String off) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (int i = 0; i < states.length(); i++) {
+            joiner.add(states.get(i) == 1 ? on : off);
+        }
+        return joiner.toString();
+    }
+
+    private int index(int outlet) {
+        if (!contains(outlet)) {
+            throw new IllegalArgumentException("No outlet " + outlet);
+        }
+        return outlet - 1;
+    }
+}
@@ -0,0 +1,96 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base of the simulated power devices. A simulator owns its outlets and the link the requests go through,
+ * it is started on a port and answers the protocol of the emulated device until closed.
+ */
+public abstract class PduSimulator implements AutoCloseable {
+
+    protected final OutletBank outlets;
+
+    protected final SimulatedLink link;
+
+    protected PduSimulator(int outlets, NetworkConditions conditions) {
+        this.outlets = new OutletBank(outlets);
+        this.link = new SimulatedLink(conditions);
+    }
+
+    /**
+     * Starts the simulator on a free loopback port.
+     * @return this simulator
+     * @throws IOException if the port could not be bound
+     */
+    public PduSimulator start() throws IOException {
+        return start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    /**
+     * Starts the simulator.
+     * @param address address to listen on, port 0 picks a free port
+     * @return this simulator
+     * @throws IOException if the address could not be bound
+     */
+    public abstract PduSimulator start(InetSocketAddress address) throws IOException;
+
+    /**
+     * @return the port the simulator listens on
+     */
+    public abstract int getPort();
+
+    /**
+     * Stops listening and releases the threads.
+     */
+    @Override
+    public abstract void close();
+
+    public OutletBank getOutlets() {
+        return outlets;
+    }
+
+    public SimulatedLink getLink() {
+        return link;
+    }
+
+    /**
+     * @param name
+     * @return unbounded pool of daemon threads, requests wait on the link and not in a queue
+     */
+    protected static ExecutorService workers(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[port=" + getPort() + ", outlets=" + outlets.size() + ", " + link.getConditions() + "]";
+    }
+}
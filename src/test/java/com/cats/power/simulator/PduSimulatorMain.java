@@ -0,0 +1,152 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs simulated PDUs standalone, for load testing the service without hardware.
+ * <pre>
+ * java -jar power-ms-simulator.jar [options] &lt;type&gt;:&lt;port&gt;[:&lt;outlets&gt;] ...
+ *
+ * types:   synaccess-http, synaccess-snmp, synaccess-telnet, dli, dli-rest, eaton, raritan, lindy
+ * options: --bind=&lt;address&gt;     address to listen on, default loopback
+ *          --outlets=&lt;n&gt;        outlets per PDU, default 8
+ *          --latency=&lt;ms&gt;       mean answer delay, default 0
+ *          --jitter=&lt;ms&gt;        answer delay variation, default 0
+ *          --loss=&lt;rate&gt;        share of unanswered requests between 0 and 1, default 0
+ *          --concurrency=&lt;n&gt;    requests a PDU handles at once, default 0 (unlimited)
+ * </pre>
+ * Example: {@code eaton:16100 eaton:16101 dli-rest:8081 --latency=40 --jitter=15 --concurrency=2}
+ */
+public class PduSimulatorMain {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        InetAddress bind = InetAddress.getLoopbackAddress();
+        int defaultOutlets = 8;
+        long latency = 0;
+        long jitter = 0;
+        double loss = 0.0;
+        int concurrency = 0;
+        List<String> specs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                specs.add(arg);
+                continue;
+            }
+            String[] option = arg.substring(2).split("=", 2);
+            String value = option.length > 1 ? option[1] : "";
+            switch (option[0]) {
+                case "bind":
+                    bind = InetAddress.getByName(value);
+                    break;
+                case "outlets":
+                    defaultOutlets = Integer.parseInt(value);
+                    break;
+                case "latency":
+                    latency = Long.parseLong(value);
+                    break;
+                case "jitter":
+                    jitter = Long.parseLong(value);
+                    break;
+                case "loss":
+                    loss = Double.parseDouble(value);
+                    break;
+                case "concurrency":
+                    concurrency = Integer.parseInt(value);
+                    break;
+                default:
+                    usage("Unknown option " + arg);
+                    return;
+            }
+        }
+        if (specs.isEmpty()) {
+            usage("No simulator given");
+            return;
+        }
+        NetworkConditions conditions = NetworkConditions.IDEAL.withLatency(latency, jitter).withLoss(loss).withMaxConcurrency(concurrency);
+
+        List<PduSimulator> simulators = new ArrayList<>();
+        for (String spec : specs) {
+            String[] parts = spec.split(":");
+            if (parts.length < 2) {
+                usage("Expected <type>:<port>[:<outlets>] but got " + spec);
+                return;
+            }
+            int outlets = parts.length > 2 ? Integer.parseInt(parts[2]) : defaultOutlets;
+            PduSimulator simulator = create(parts[0], outlets, conditions);
+            if (simulator == null) {
+                usage("Unknown simulator type " + parts[0]);
+                return;
+            }
+            simulator.start(new InetSocketAddress(bind, Integer.parseInt(parts[1])));
+            simulators.add(simulator);
+            System.out.println("Started " + parts[0] + " " + simulator);
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            simulators.forEach(PduSimulator::close);
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+
+    /**
+     * @param type
+     * @param outlets
+     * @param conditions
+     * @return the simulator of the type, null for an unknown type
+     */
+    static PduSimulator create(String type, int outlets, NetworkConditions conditions) {
+        switch (type) {
+            case "synaccess-http":
+                return new SynaccessHttpSimulator(outlets, conditions);
+            case "synaccess-snmp":
+                return new SnmpPduSimulator(SnmpPduProfile.SYNACCESS, outlets, conditions);
+            case "synaccess-telnet":
+                return new SynaccessTelnetSimulator(outlets, conditions);
+            case "dli":
+                return new DigitalLoggerHttpSimulator(outlets, conditions);
+            case "dli-rest":
+                return new DigitalLoggerRestSimulator(outlets, conditions);
+            case "eaton":
+                return new SnmpPduSimulator(SnmpPduProfile.EATON_G3, outlets, conditions);
+            case "raritan":
+                return new SnmpPduSimulator(SnmpPduProfile.RARITAN, outlets, conditions);
+            case "lindy":
+                return new SnmpPduSimulator(SnmpPduProfile.LINDY, outlets, conditions);
+            default:
+                return null;
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: [--bind=<address>] [--outlets=<n>] [--latency=<ms>] [--jitter=<ms>] [--loss=<rate>] "
+                + "[--concurrency=<n>] <type>:<port>[:<outlets>] ...");
+        System.err.println("Types: synaccess-http, synaccess-snmp, synaccess-telnet, dli, dli-rest, eaton, raritan, lindy");
+        System.exit(2);
+    }
+}
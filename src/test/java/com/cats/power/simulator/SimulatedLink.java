@@ -0,0 +1,127 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies {@link NetworkConditions} to the requests of one simulated PDU and counts what happened to them.
+ * The peak concurrency tells whether the service kept to one command at a time per device.
+ */
+public class SimulatedLink {
+
+    /**
+     * An answer to a request, run once the request was admitted and delayed.
+     */
+    @FunctionalInterface
+    public interface Answer {
+        void send() throws IOException;
+    }
+
+    private final NetworkConditions conditions;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger peakConcurrency = new AtomicInteger();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SimulatedLink(NetworkConditions conditions) {
+        this.conditions = conditions;
+        this.permits = conditions.getMaxConcurrency() > 0 ? new Semaphore(conditions.getMaxConcurrency(), true) : null;
+    }
+
+    /**
+     * Waits for a free slot, delays and then either sends the answer or drops the request.
+     * @param answer
+     * @return false if the request was dropped
+     * @throws IOException if the answer could not be sent
+     */
+    public boolean exchange(Answer answer) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (permits != null) {
+                permits.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+            return false;
+        }
+        peakConcurrency.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = conditions.nextDelayMs(random);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            if (conditions.nextDropped(random)) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            answer.send();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+            return false;
+        } finally {
+            inFlight.decrementAndGet();
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    public NetworkConditions getConditions() {
+        return conditions;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return most requests handled at the same time since the last reset
+     */
+    public int getPeakConcurrency() {
+        return peakConcurrency.get();
+    }
+
+    /**
+     * Clears the counters.
+     */
+    public void reset() {
+        requests.set(0);
+        dropped.set(0);
+        peakConcurrency.set(inFlight.get());
+    }
+}
@@ -0,0 +1,119 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.Eaton_G3_SNMPPowerDevice;
+import com.cats.power.model.DeviceConnectionState;
+import com.cats.power.service.DeviceCircuitBreaker;
+import com.cats.power.service.DeviceFanOutExecutor;
+import com.cats.power.service.PowerDeviceRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the breaker of a real SNMP driver against a simulated agent that stops and starts answering.
+ */
+class SnmpDeviceBreakerTest {
+
+    private static final int TIMEOUT_MS = 200;
+
+    private AnnotationConfigApplicationContext context;
+
+    private DeviceCircuitBreaker breaker;
+
+    private SnmpPduSimulator agent;
+
+    @BeforeEach
+    void startBreaker() {
+        context = DeviceTransportContext.start(Map.of("breaker.failureThreshold", "3", "breaker.openMs", "50"),
+                PowerDeviceRegistry.class, DeviceFanOutExecutor.class, DeviceCircuitBreaker.class);
+        breaker = context.getBean(DeviceCircuitBreaker.class);
+    }
+
+    @AfterEach
+    void stopBreaker() {
+        if (agent != null) {
+            agent.close();
+        }
+        context.close();
+    }
+
+    private Eaton_G3_SNMPPowerDevice device(NetworkConditions conditions, int port) throws Exception {
+        agent = new SnmpPduSimulator(SnmpPduProfile.EATON_G3, 8, conditions);
+        agent.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Eaton_G3_SNMPPowerDevice device = DeviceTransportContext.withOutlets(
+                new Eaton_G3_SNMPPowerDevice("127.0.0.1", agent.getPort(), TIMEOUT_MS, 0), 8);
+        context.getBean(PowerDeviceRegistry.class).register(device);
+        return device;
+    }
+
+    private void awaitState(Eaton_G3_SNMPPowerDevice device, DeviceCircuitBreaker.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (breaker.getState(device) != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(state, breaker.getState(device));
+    }
+
+    @Test
+    void statusReadsOfASilentAgentOpenTheBreaker() throws Exception {
+        Eaton_G3_SNMPPowerDevice device = device(NetworkConditions.IDEAL.withLoss(1.0), 0);
+        for (int i = 0; i < 3; i++) {
+            breaker.call(device, () -> device.getOutletStatus(1));
+        }
+        assertTrue(breaker.isOpen(device));
+        assertEquals(DeviceConnectionState.UNREACHABLE, device.getPowerInfo().getConnection());
+    }
+
+    @Test
+    void answeredStatusReadsKeepTheBreakerClosed() throws Exception {
+        Eaton_G3_SNMPPowerDevice device = device(NetworkConditions.IDEAL, 0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ON", breaker.call(device, () -> device.getOutletStatus(1)));
+        }
+        assertFalse(breaker.isOpen(device));
+    }
+
+    @Test
+    void probeClosesTheBreakerOnceTheAgentAnswersAgain() throws Exception {
+        Eaton_G3_SNMPPowerDevice device = device(NetworkConditions.IDEAL.withLoss(1.0), 0);
+        int port = agent.getPort();
+        breaker.open(device);
+        Thread.sleep(300);
+        assertTrue(breaker.isOpen(device));
+
+        agent.close();
+        agent = new SnmpPduSimulator(SnmpPduProfile.EATON_G3, 8, NetworkConditions.IDEAL);
+        agent.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        awaitState(device, DeviceCircuitBreaker.State.CLOSED);
+        assertEquals(DeviceConnectionState.CONNECTED, device.getPowerInfo().getConnection());
+        assertTrue(breaker.call(device, () -> device.powerOff(2)));
+    }
+}
@@ -0,0 +1,231 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.Variable;
+
+/**
+ * OID layout of the SNMP power devices the service drives. A profile answers GETs and applies SETs on the
+ * outlets of a simulated PDU, {@code null} means the OID does not exist on the device.
+ */
+public enum SnmpPduProfile {
+
+    /**
+     * Eaton G3 ePDU: separate ON, OFF and reboot command OIDs per outlet, status 1 ON / 0 OFF.
+     */
+    EATON_G3 {
+        private static final String STATUS = "1.3.6.1.4.1.534.6.6.7.6.6.1.2.0.";
+        private static final String OFF = "1.3.6.1.4.1.534.6.6.7.6.6.1.3.0.";
+        private static final String ON = "1.3.6.1.4.1.534.6.6.7.6.6.1.4.0.";
+        private static final String REBOOT = "1.3.6.1.4.1.534.6.6.7.6.6.1.5.0.";
+
+        @Override
+        Variable get(OutletBank outlets, String oid) {
+            Integer outlet = outlet(outlets, oid, STATUS);
+            return outlet == null ? null : new Integer32(outlets.isOn(outlet) ? 1 : 0);
+        }
+
+        @Override
+        Variable set(OutletBank outlets, String oid, Variable value) {
+            Integer outlet;
+            if ((outlet = outlet(outlets, oid, ON)) != null) {
+                outlets.set(outlet, true);
+            } else if ((outlet = outlet(outlets, oid, OFF)) != null) {
+                outlets.set(outlet, false);
+            } else if ((outlet = outlet(outlets, oid, REBOOT)) != null) {
+                outlets.cycle(outlet);
+            } else {
+                return null;
+            }
+            return value;
+        }
+    },
+
+    /**
+     * Raritan PX: one control OID per outlet taking 0 OFF, 1 ON, 2 cycle, status 7 ON / 8 OFF. PDU id 1.
+     */
+    RARITAN {
+        private static final String CONTROL = "1.3.6.1.4.1.13742.6.4.1.2.1.2.1.";
+        private static final String STATUS = "1.3.6.1.4.1.13742.6.4.1.2.1.3.1.";
+        private static final String MODEL = "1.3.6.1.4.1.13742.6.3.2.1.1.3.1";
+        private static final String SERIAL_NUMBER = "1.3.6.1.4.1.13742.6.3.2.1.1.4.1";
+        private static final String FIRMWARE_VERSION = "1.3.6.1.4.1.13742.6.3.2.3.1.6.1.1.1";
+
+        @Override
+        Variable get(OutletBank outlets, String oid) {
+            Integer outlet = outlet(outlets, oid, STATUS);
+            if (outlet != null) {
+                return new Integer32(outlets.isOn(outlet) ? 7 : 8);
+            }
+            switch (oid) {
+                case MODEL:
+                    return new OctetString("PX2-5496");
+                case SERIAL_NUMBER:
+                    return new OctetString("PKE0954001");
+                case FIRMWARE_VERSION:
+                    return new OctetString("3.5.0.5-45871");
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        Variable set(OutletBank outlets, String oid, Variable value) {
+            Integer outlet = outlet(outlets, oid, CONTROL);
+            if (outlet == null) {
+                return null;
+            }
+            switch (value.toInt()) {
+                case 0:
+                    outlets.set(outlet, false);
+                    break;
+                case 1:
+                    outlets.set(outlet, true);
+                    break;
+                case 2:
+                    outlets.cycle(outlet);
+                    break;
+                default:
+                    return null;
+            }
+            return value;
+        }
+    },
+
+    /**
+     * Lindy IPower: every outlet state in one comma separated string, 1 ON / 0 OFF, written back as a whole.
+     */
+    LINDY {
+        private static final String OUTLETS = "1.3.6.1.4.1.17420.1.2.9.1.13.0";
+        private static final String MODEL = "1.3.6.1.4.1.17420.1.2.9.1.19.0";
+        private static final String SERIAL_NUMBER = "1.3.6.1.4.1.17420.1.2.3.0";
+        private static final String FIRMWARE_VERSION = "1.3.6.1.4.1.17420.1.2.4.0";
+
+        @Override
+        Variable get(OutletBank outlets, String oid) {
+            switch (oid) {
+                case OUTLETS:
+                    return new OctetString(outlets.join("1", "0"));
+                case MODEL:
+                    return new OctetString("IPower Switch Classic 8");
+                case SERIAL_NUMBER:
+                    return new OctetString("LINDY-32657");
+                case FIRMWARE_VERSION:
+                    return new OctetString("v2.6.2");
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        Variable set(OutletBank outlets, String oid, Variable value) {
+            if (!OUTLETS.equals(oid)) {
+                return null;
+            }
+            String[] states = value.toString().split(",");
+            if (states.length != outlets.size()) {
+                return null;
+            }
+            for (int i = 0; i < states.length; i++) {
+                outlets.set(i + 1, "1".equals(states[i].trim()));
+            }
+            return new OctetString(outlets.join("1", "0"));
+        }
+    },
+
+    /**
+     * Synaccess NP: one action OID per outlet taking 1 ON, 2 OFF, 3 reboot, status 1 ON / 0 OFF.
+     */
+    SYNACCESS {
+        private static final String STATUS = "1.3.6.1.4.1.21728.3.2.1.1.3.";
+        private static final String ACTION = "1.3.6.1.4.1.21728.3.2.1.1.4.";
+
+        @Override
+        Variable get(OutletBank outlets, String oid) {
+            Integer outlet = outlet(outlets, oid, STATUS);
+            return outlet == null ? null : new Integer32(outlets.isOn(outlet) ? 1 : 0);
+        }
+
+        @Override
+        Variable set(OutletBank outlets, String oid, Variable value) {
+            Integer outlet = outlet(outlets, oid, ACTION);
+            if (outlet == null) {
+                return null;
+            }
+            switch (value.toInt()) {
+                case 1:
+                    outlets.set(outlet, true);
+                    break;
+                case 2:
+                    outlets.set(outlet, false);
+                    break;
+                case 3:
+                    outlets.cycle(outlet);
+                    break;
+                default:
+                    return null;
+            }
+            return value;
+        }
+    };
+
+    /**
+     * @param outlets
+     * @param oid dotted OID without a leading dot
+     * @return the value of the OID, null if it does not exist
+     */
+    abstract Variable get(OutletBank outlets, String oid);
+
+    /**
+     * @param outlets
+     * @param oid dotted OID without a leading dot
+     * @param value
+     * @return the value to answer, null if the OID does not exist or is not writable with that value
+     */
+    abstract Variable set(OutletBank outlets, String oid, Variable value);
+
+    Variable get(OutletBank outlets, OID oid) {
+        return get(outlets, oid.toDottedString());
+    }
+
+    Variable set(OutletBank outlets, OID oid, Variable value) {
+        return set(outlets, oid.toDottedString(), value);
+    }
+
+    /**
+     * @param outlets
+     * @param oid
+     * @param prefix per outlet OID without the outlet number
+     * @return the outlet the OID addresses, null if the OID has another prefix or no such outlet exists
+     */
+    static Integer outlet(OutletBank outlets, String oid, String prefix) {
+        if (!oid.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            int outlet = Integer.parseInt(oid.substring(prefix.length()));
+            return outlets.contains(outlet) ? outlet : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.MPv1;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * SNMP v1/v2c agent answering the OIDs of a {@link SnmpPduProfile}. Any community is accepted.
+ * Requests are answered on worker threads so latency and the concurrency limit do not block the transport.
+ * A dropped request is never answered and times out on the manager side.
+ */
+public class SnmpPduSimulator extends PduSimulator implements CommandResponder {
+
+    private final SnmpPduProfile profile;
+
+    private Snmp snmp;
+
+    private DefaultUdpTransportMapping transport;
+
+    private ExecutorService workers;
+
+    public SnmpPduSimulator(SnmpPduProfile profile, int outlets, NetworkConditions conditions) {
+        super(outlets, conditions);
+        this.profile = profile;
+    }
+
+    @Override
+    public PduSimulator start(InetSocketAddress address) throws IOException {
+        transport = new DefaultUdpTransportMapping(new UdpAddress(address.getAddress(), address.getPort()));
+        snmp = new Snmp(transport);
+        snmp.addCommandResponder(this);
+        workers = workers(profile + "-agent");
+        snmp.listen();
+        return this;
+    }
+
+    @Override
+    public <A extends org.snmp4j.smi.Address> void processPdu(CommandResponderEvent<A> event) {
+        PDU request = event.getPDU();
+        if (request == null || (request.getType() != PDU.GET && request.getType() != PDU.SET)) {
+            return;
+        }
+        event.setProcessed(true);
+        workers.execute(() -> {
+            try {
+                link.exchange(() -> respond(event, request));
+            } catch (IOException e) {
+                // the manager retries or times out like with a real device
+            }
+        });
+    }
+
+    private <A extends org.snmp4j.smi.Address> void respond(CommandResponderEvent<A> event, PDU request) throws IOException {
+        PDU response = (PDU) request.clone();
+        response.setType(PDU.RESPONSE);
+        response.setErrorStatus(PDU.noError);
+        response.setErrorIndex(0);
+        boolean v1 = event.getMessageProcessingModel() == MPv1.ID;
+        for (int i = 0; i < response.size(); i++) {
+            VariableBinding vb = response.get(i);
+            Variable value = request.getType() == PDU.SET
+                    ? profile.set(outlets, vb.getOid(), vb.getVariable())
+                    : profile.get(outlets, vb.getOid());
+            if (value != null) {
+                vb.setVariable(value);
+            } else if (request.getType() == PDU.SET) {
+                response.setErrorStatus(PDU.notWritable);
+                response.setErrorIndex(i + 1);
+                break;
+            } else if (v1) {
+                response.setErrorStatus(PDU.noSuchName);
+                response.setErrorIndex(i + 1);
+                break;
+            } else {
+                vb.setVariable(Null.noSuchObject);
+            }
+        }
+        try {
+            event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(), event.getSecurityModel(),
+                    event.getSecurityName(), event.getSecurityLevel(), response, event.getMaxSizeResponsePDU(),
+                    event.getStateReference(), new StatusInformation());
+        } catch (MessageException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public SnmpPduProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public int getPort() {
+        return transport == null ? -1 : transport.getListenAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        if (snmp != null) {
+            try {
+                snmp.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.device.Eaton_G3_SNMPPowerDevice;
+import com.cats.power.device.LindySnmpPowerDevice;
+import com.cats.power.device.RaritanSnmpPowerDevice;
+import com.cats.power.device.SynaccessSnmpPowerControllerDevice;
+import com.cats.power.exceptions.DeviceUnreachableException;
+import com.cats.power.model.OutletInfo;
+import com.cats.power.model.OutletState;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the SNMP device drivers against the simulated agents.
+ */
+class SnmpPduSimulatorTest {
+
+    private static final int TIMEOUT_MS = 300;
+
+    private static AnnotationConfigApplicationContext context;
+
+    @BeforeAll
+    static void startTransports() {
+        context = DeviceTransportContext.start();
+    }
+
+    @AfterAll
+    static void stopTransports() {
+        context.close();
+    }
+
+    private static SnmpPduSimulator agent(SnmpPduProfile profile, NetworkConditions conditions) throws Exception {
+        SnmpPduSimulator simulator = new SnmpPduSimulator(profile, 8, conditions);
+        simulator.start();
+        return simulator;
+    }
+
+    @Test
+    void eatonDriverSwitchesSingleAndBatchedOutlets() throws Exception {
+        try (SnmpPduSimulator simulator = agent(SnmpPduProfile.EATON_G3, NetworkConditions.IDEAL)) {
+            Eaton_G3_SNMPPowerDevice device = DeviceTransportContext.withOutlets(
+                    new Eaton_G3_SNMPPowerDevice("127.0.0.1", simulator.getPort(), TIMEOUT_MS, 0), 8);
+
+            assertTrue(device.powerOff(3));
+            assertEquals("OFF", device.getOutletStatus(3));
+
+            Map<Integer, Boolean> results = device.powerOffOutlets(List.of(1, 2, 4));
+            assertEquals(Map.of(1, true, 2, true, 4, true), results);
+            List<OutletInfo> outlets = device.retrieveOutletStatus();
+            assertEquals("OFF", outlets.get(3).getStatus());
+            assertEquals("ON", outlets.get(4).getStatus());
+        }
+    }
+
+    @Test
+    void raritanDriverUsesTheControlAndStatusTables() throws Exception {
+        try (SnmpPduSimulator simulator = agent(SnmpPduProfile.RARITAN, NetworkConditions.IDEAL)) {
+            RaritanSnmpPowerDevice device = DeviceTransportContext.withOutlets(
+                    new RaritanSnmpPowerDevice("127.0.0.1", simulator.getPort(), TIMEOUT_MS, 0), 8);
+
+            assertTrue(device.powerOff(2));
+            assertFalse(simulator.getOutlets().isOn(2));
+            assertEquals("OFF", device.getOutletStatus(2));
+            assertTrue(device.powerOn(2));
+            assertEquals("ON", device.getOutletStatus(2));
+            assertEquals("PX2-5496", device.getMetadata().get("model"));
+        }
+    }
+
+    @Test
+    void lindyDriverRewritesTheOutletString() throws Exception {
+        try (SnmpPduSimulator simulator = agent(SnmpPduProfile.LINDY, NetworkConditions.IDEAL)) {
+            LindySnmpPowerDevice device = DeviceTransportContext.withOutlets(
+                    new LindySnmpPowerDevice("127.0.0.1", simulator.getPort(), TIMEOUT_MS, 0), 8);
+
+            assertTrue(device.powerOff(2));
+            assertEquals("1,0,1,1,1,1,1,1", simulator.getOutlets().join("1", "0"));
+            assertEquals("OFF", device.getOutletStatus(2));
+            assertTrue(device.powerOffAllOutlets());
+            assertEquals("OFF", device.retrieveOutletStatus().get(7).getStatus());
+        }
+    }
+
+    @Test
+    void synaccessSnmpDriverSwitchesOutlets() throws Exception {
+        try (SnmpPduSimulator simulator = agent(SnmpPduProfile.SYNACCESS, NetworkConditions.IDEAL)) {
+            SynaccessSnmpPowerControllerDevice device = DeviceTransportContext.withOutlets(
+                    new SynaccessSnmpPowerControllerDevice("127.0.0.1", simulator.getPort(), TIMEOUT_MS, 0), 8);
+
+            assertTrue(device.powerOff(6));
+            assertEquals("OFF", device.getOutletStatus(6));
+            assertEquals("ON", device.getOutletStatus(5));
+        }
+    }
+
+    @Test
+    void lostRequestsTimeOut() throws Exception {
+        try (SnmpPduSimulator simulator = agent(SnmpPduProfile.EATON_G3, NetworkConditions.IDEAL.withLoss(1.0))) {
+            Eaton_G3_SNMPPowerDevice device = DeviceTransportContext.withOutlets(
+                    new Eaton_G3_SNMPPowerDevice("127.0.0.1", simulator.getPort(), TIMEOUT_MS, 0), 8);
+
+            assertFalse(device.powerOff(1));
+            assertTrue(simulator.getOutlets().isOn(1));
+            assertEquals(1, simulator.getLink().getDropped());
+        }
+    }
+
+    @Test
+    void lostStatusReadFailsAndForgetsTheOutletStates() throws Exception {
+        try (SnmpPduSimulator simulator = agent(SnmpPduProfile.EATON_G3, NetworkConditions.IDEAL.withLoss(1.0))) {
+            Eaton_G3_SNMPPowerDevice device = DeviceTransportContext.withOutlets(
+                    new Eaton_G3_SNMPPowerDevice("127.0.0.1", simulator.getPort(), TIMEOUT_MS, 0), 8);
+            device.getPowerInfo().setOutletState(1, OutletState.ON);
+
+            assertThrows(DeviceUnreachableException.class, device::retrieveOutletStatus);
+            assertEquals(OutletState.UNKNOWN, device.getPowerInfo().getOutletState(1));
+        }
+    }
+
+    @Test
+    void latencyDelaysAnswers() throws Exception {
+        try (SnmpPduSimulator simulator = agent(SnmpPduProfile.EATON_G3, NetworkConditions.IDEAL.withLatency(100, 20))) {
+            Eaton_G3_SNMPPowerDevice device = DeviceTransportContext.withOutlets(
+                    new Eaton_G3_SNMPPowerDevice("127.0.0.1", simulator.getPort(), 1000, 0), 8);
+
+            long start = System.nanoTime();
+            assertEquals("ON", device.getOutletStatus(1));
+            assertTrue(System.nanoTime() - start >= 80_000_000L, "answer was not delayed");
+        }
+    }
+}
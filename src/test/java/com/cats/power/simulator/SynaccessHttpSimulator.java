@@ -0,0 +1,77 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synaccess NP series web interface: the {@code cmd.cgi} commands used by the HTTP driver.
+ * <ul>
+ *     <li>{@code $A3 <outlet> <1|0>} switches an outlet ON or OFF</li>
+ *     <li>{@code $A4 <outlet>} reboots an outlet</li>
+ *     <li>{@code $A5} reads the outlet states, outlet 1 is the last digit</li>
+ *     <li>{@code $A7 <1|0>} switches every outlet</li>
+ * </ul>
+ * Successful commands answer {@code $A0}, failed ones {@code $AF}.
+ */
+public class SynaccessHttpSimulator extends HttpPduSimulator {
+
+    static final String OK = "$A0";
+
+    static final String FAILED = "$AF";
+
+    public SynaccessHttpSimulator(int outlets, NetworkConditions conditions) {
+        super(outlets, conditions);
+    }
+
+    @Override
+    protected void registerPages() {
+        page("/cmd.cgi", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query == null) {
+                return Response.text(FAILED);
+            }
+            String[] args = URLDecoder.decode(query, StandardCharsets.UTF_8).trim().split("\\s+");
+            try {
+                return Response.text(command(args));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                return Response.text(FAILED);
+            }
+        });
+    }
+
+    private String command(String[] args) {
+        switch (args[0]) {
+            case "$A3":
+                outlets.set(outlet(args[1]), "1".equals(args[2]));
+                return OK;
+            case "$A4":
+                outlets.cycle(outlet(args[1]));
+                return OK;
+            case "$A5":
+                return OK + "," + outlets.bits(true) + ",0.21,0.21,XX";
+            case "$A7":
+                outlets.setAll("1".equals(args[1]));
+                return OK;
+            default:
+                return FAILED;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Synaccess Telnet console, enough for the version query: the {@code >} prompt and the {@code ver} command,
+ * answered with the hardware, firmware and web firmware versions. Other commands are echoed.
+ * Each command goes through the link, a dropped command gets no answer until the next one.
+ */
+public class SynaccessTelnetSimulator extends PduSimulator {
+
+    static final String PROMPT = ">";
+
+    static final String VERSION = "NP-05B HW1.3 FW6.12 WF2.1";
+
+    private static final int IAC = 255;
+
+    private ServerSocket serverSocket;
+
+    private ExecutorService workers;
+
+    public SynaccessTelnetSimulator(int outlets, NetworkConditions conditions) {
+        super(outlets, conditions);
+    }
+
+    @Override
+    public PduSimulator start(InetSocketAddress address) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        workers = workers("SynaccessTelnet");
+        workers.execute(this::accept);
+        return this;
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                workers.execute(() -> session(socket));
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void session(Socket socket) {
+        try (Socket client = socket; InputStream in = client.getInputStream(); OutputStream out = client.getOutputStream()) {
+            write(out, PROMPT);
+            String line;
+            while ((line = readLine(in)) != null) {
+                String command = line.trim();
+                if (command.isEmpty()) {
+                    write(out, "\r\n" + PROMPT);
+                    continue;
+                }
+                if ("logout".equalsIgnoreCase(command) || "exit".equalsIgnoreCase(command)) {
+                    return;
+                }
+                link.exchange(() -> write(out, command + "\r\n" + answer(command) + PROMPT));
+            }
+        } catch (SocketException e) {
+            // client went away
+        } catch (IOException e) {
+            // session over
+        }
+    }
+
+    private String answer(String command) {
+        if ("ver".equalsIgnoreCase(command)) {
+            return VERSION + "\r\n";
+        }
+        return "";
+    }
+
+    /**
+     * Reads a command terminated by CR or LF, skipping Telnet option negotiation.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == IAC) {
+                in.read();
+                in.read();
+                continue;
+            }
+            if (b == '\r' || b == '\n') {
+                if (line.length() > 0) {
+                    return line.toString();
+                }
+                continue;
+            }
+            line.append((char) b);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public int getPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.cats.power.simulator;
+
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.cats.power.utils.TelnetConnection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads the Synaccess versions over the simulated Telnet console the way the HTTP driver does.
+ */
+class SynaccessTelnetSimulatorTest {
+
+    @Test
+    void versionCommandAnswersHardwareAndFirmware() throws Exception {
+        try (SynaccessTelnetSimulator simulator = new SynaccessTelnetSimulator(8, NetworkConditions.IDEAL)) {
+            simulator.start();
+            TelnetConnection connection = new TelnetConnection("127.0.0.1", simulator.getPort(), ">");
+            connection.connect(false);
+            try {
+                String result = connection.sendVersionCommand("ver\r");
+                assertTrue(result != null && result.contains("HW1.3") && result.contains("FW6.12"), "unexpected version " + result);
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+}